@@ -0,0 +1,238 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import com.google.protobuf.ByteString;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable CharSequence view over ASCII bytes of a string field value, one char per byte.
+ * Comparison, hashing and prefix checks do not allocate. hashCode() is the same as String.hashCode()
+ * of the same ASCII text, so a view can look up a map keyed by owned copy() sequences.
+ * A view must not be used as a map key itself as its content changes when it is rewrapped.
+ * {@code
+ *	AsciiSequence clOrdId = new AsciiSequence();
+ *	Map<AsciiSequence, Order> orders = new HashMap<>();
+ *	...
+ *	if (er.getAscii(ClOrdID.tag, clOrdId) != null)
+ *		order = orders.get(clOrdId);
+ * }
+ */
+public final class AsciiSequence implements CharSequence, Comparable<CharSequence> {
+	private byte[] _array;
+	private ByteString _bytes;
+	private ByteBuffer _buffer;
+	private int _offset;
+	private int _length;
+
+	/**
+	 * Constructs empty view
+	 */
+	public AsciiSequence() {
+	}
+
+	/**
+	 * Constructs owned sequence with content of given ASCII text, chars above 0xFF are truncated
+	 * @param value text to copy
+	 * @return owned sequence
+	 */
+	public static AsciiSequence copyOf(CharSequence value) {
+		byte[] array = new byte[value.length()];
+		for (int i = 0; i < array.length; ++i)
+			array[i] = (byte) value.charAt(i);
+		return new AsciiSequence().wrap(array, 0, array.length);
+	}
+
+	/**
+	 * Wraps byte array range
+	 * @param array array with ASCII text
+	 * @param offset text offset
+	 * @param length text length
+	 * @return self
+	 */
+	public AsciiSequence wrap(byte[] array, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > array.length)
+			throw new IndexOutOfBoundsException(String.format("offset=%d length=%d array length=%d", offset, length, array.length));
+		reset();
+		_array = array;
+		_offset = offset;
+		_length = length;
+		return this;
+	}
+
+	/**
+	 * Wraps ByteString
+	 * @param bytes ASCII text
+	 * @return self
+	 */
+	public AsciiSequence wrap(ByteString bytes) {
+		reset();
+		_bytes = bytes;
+		_length = bytes.size();
+		return this;
+	}
+
+	/**
+	 * Wraps ByteBuffer range, buffer position and limit are ignored and not changed
+	 * @param buffer buffer with ASCII text
+	 * @param index text absolute index
+	 * @param length text length
+	 * @return self
+	 */
+	public AsciiSequence wrap(ByteBuffer buffer, int index, int length) {
+		if (index < 0 || length < 0 || index + length > buffer.capacity())
+			throw new IndexOutOfBoundsException(String.format("index=%d length=%d capacity=%d", index, length, buffer.capacity()));
+		reset();
+		_buffer = buffer;
+		_offset = index;
+		_length = length;
+		return this;
+	}
+
+	/**
+	 * Releases wrapped bytes
+	 * @return self
+	 */
+	public AsciiSequence reset() {
+		_array = null;
+		_bytes = null;
+		_buffer = null;
+		_offset = _length = 0;
+		return this;
+	}
+
+	/**
+	 * Copies content to owned sequence, which can be used as a map key
+	 * @return owned sequence
+	 */
+	public AsciiSequence copy() {
+		byte[] array = new byte[_length];
+		for (int i = 0; i < _length; ++i)
+			array[i] = byteAt(i);
+		return new AsciiSequence().wrap(array, 0, array.length);
+	}
+
+	@Override
+	public int length() {
+		return _length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= _length)
+			throw new IndexOutOfBoundsException(String.format("index=%d length=%d", index, _length));
+		return (char) (byteAt(index) & 0xFF);
+	}
+
+	/**
+	 * Returns view of the same bytes range, allocates new view
+	 * @param start start index, inclusive
+	 * @param end end index, exclusive
+	 * @return subsequence view
+	 */
+	@Override
+	public AsciiSequence subSequence(int start, int end) {
+		if (start < 0 || start > end || end > _length)
+			throw new IndexOutOfBoundsException(String.format("start=%d end=%d length=%d", start, end, _length));
+		AsciiSequence sub = new AsciiSequence();
+		sub._array = _array;
+		sub._bytes = _bytes;
+		sub._buffer = _buffer;
+		sub._offset = _offset + start;
+		sub._length = end - start;
+		return sub;
+	}
+
+	/**
+	 * Checks content equality with any CharSequence, String included
+	 * @param value value to compare with
+	 * @return true if content is the same
+	 */
+	public boolean contentEquals(CharSequence value) {
+		if (value == null || value.length() != _length)
+			return false;
+		for (int i = 0; i < _length; ++i) {
+			if ((byteAt(i) & 0xFF) != value.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether sequence starts with given prefix
+	 * @param prefix prefix to check
+	 * @return true if sequence starts with prefix
+	 */
+	public boolean startsWith(CharSequence prefix) {
+		int n = prefix.length();
+		if (n > _length)
+			return false;
+		for (int i = 0; i < n; ++i) {
+			if ((byteAt(i) & 0xFF) != prefix.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Compares lexicographically with any CharSequence, same order as String.compareTo
+	 * @param value value to compare with
+	 * @return negative, zero or positive as this sequence is less, equal or greater than value
+	 */
+	@Override
+	public int compareTo(CharSequence value) {
+		int n = Math.min(_length, value.length());
+		for (int i = 0; i < n; ++i) {
+			int diff = (byteAt(i) & 0xFF) - value.charAt(i);
+			if (diff != 0)
+				return diff;
+		}
+		return _length - value.length();
+	}
+
+	/**
+	 * Equality with other AsciiSequence. Use contentEquals() to compare with String.
+	 * @param obj object to compare with
+	 * @return true if obj is AsciiSequence with the same content
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		return obj == this || obj instanceof AsciiSequence && contentEquals((AsciiSequence) obj);
+	}
+
+	/**
+	 * Hash code, same as String.hashCode() of the same text
+	 * @return hash code
+	 */
+	@Override
+	public int hashCode() {
+		int h = 0;
+		for (int i = 0; i < _length; ++i)
+			h = 31 * h + (byteAt(i) & 0xFF);
+		return h;
+	}
+
+	/**
+	 * Converts to String, allocates
+	 * @return String with the same content
+	 */
+	@Override
+	public String toString() {
+		if (_length == 0)
+			return "";
+		if (_array != null)
+			return new String(_array, _offset, _length, StandardCharsets.ISO_8859_1);
+		byte[] array = new byte[_length];
+		for (int i = 0; i < _length; ++i)
+			array[i] = byteAt(i);
+		return new String(array, StandardCharsets.ISO_8859_1);
+	}
+
+	private byte byteAt(int index) {
+		if (_array != null)
+			return _array[_offset + index];
+		if (_bytes != null)
+			return _bytes.byteAt(_offset + index);
+		return _buffer.get(_offset + index);
+	}
+}
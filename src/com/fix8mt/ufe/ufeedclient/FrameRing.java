@@ -0,0 +1,173 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.fix8mt.ufe.ufeedclient.UFEedConfiguration.WaitStrategy;
+
+/**
+ * Bounded single-producer multi-consumer ring of raw frames. Slots are allocated once; the producer
+ * fills the next free slot and each frame is taken by exactly one consumer, which claims it with a CAS
+ * on the head counter. Waiting side idles according to the wait strategy; producer waiting for a free
+ * slot parks instead of blocking. Capacity is rounded up to a power of two.
+ * publish() and close() may be called from the producer thread only, take() from any thread.
+ */
+final class FrameRing {
+	private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+	private static final long BLOCK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private final int _mask;
+	private final byte[][] _frames;
+	// slot sequence: position + 1 when frame at position is published, position + capacity when slot is free again
+	private final AtomicLongArray _sequences;
+	private final AtomicLong _head = new AtomicLong();
+	private long _tail;
+	private final WaitStrategy _waitStrategy;
+	private volatile boolean _closed;
+	// consumers waiting on the condition, BLOCK strategy only
+	private final ReentrantLock _lock = new ReentrantLock();
+	private final Condition _published = _lock.newCondition();
+	private final AtomicInteger _blocked = new AtomicInteger();
+
+	/**
+	 * Constructs ring
+	 * @param capacity max number of frames, rounded up to a power of two
+	 * @param waitStrategy how consumers wait for frames and producer for free slots
+	 */
+	FrameRing(int capacity, WaitStrategy waitStrategy) {
+		if (capacity < 1 || capacity > 1 << 30)
+			throw new IllegalArgumentException(String.format("capacity %d is out of range", capacity));
+		int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		_mask = size - 1;
+		_frames = new byte[size][];
+		_sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; ++i)
+			_sequences.set(i, i);
+		_waitStrategy = waitStrategy;
+	}
+
+	/**
+	 * Ring capacity
+	 * @return max number of frames
+	 */
+	int capacity() {
+		return _mask + 1;
+	}
+
+	/**
+	 * Adds frame, waits while the ring is full. Producer thread only.
+	 * @param frame frame to add, not null
+	 */
+	void publish(byte[] frame) {
+		long tail = _tail;
+		int index = (int) tail & _mask;
+		while (_sequences.get(index) != tail) {
+			// slot is not consumed yet
+			switch (_waitStrategy) {
+				case BUSY_SPIN:
+					break;
+				case YIELD:
+					Thread.yield();
+					break;
+				default:
+					LockSupport.parkNanos(this, PARK_NANOS);
+					break;
+			}
+		}
+		_frames[index] = frame;
+		// volatile store, so the blocked consumers count read below is ordered after publishing
+		_sequences.set(index, tail + 1);
+		_tail = tail + 1;
+		if (_blocked.get() > 0)
+			signal();
+	}
+
+	/**
+	 * Marks the end of frames, consumers take the remaining ones and then get null. Producer thread only.
+	 */
+	void close() {
+		_closed = true;
+		if (_waitStrategy == WaitStrategy.BLOCK)
+			signal();
+	}
+
+	/**
+	 * Takes the oldest frame not taken by other consumers, waits while the ring is empty. Any thread.
+	 * @return frame or null once the ring is closed and empty
+	 * @throws InterruptedException thrown if interrupted while blocked
+	 */
+	byte[] take() throws InterruptedException {
+		for (;;) {
+			long head = _head.get();
+			int index = (int) head & _mask;
+			long gap = _sequences.get(index) - (head + 1);
+			if (gap == 0) {
+				if (_head.compareAndSet(head, head + 1)) {
+					byte[] frame = _frames[index];
+					_frames[index] = null;
+					_sequences.set(index, head + _mask + 1);
+					return frame;
+				}
+			} else if (gap < 0) {
+				// nothing published at head; frames published before close() are visible once closed is
+				if (_closed) {
+					if (_sequences.get(index) != head + 1 && _head.get() == head)
+						return null;
+					continue;
+				}
+				idle();
+			}
+			// otherwise another consumer took head, retry with the next one
+		}
+	}
+
+	private void idle() throws InterruptedException {
+		switch (_waitStrategy) {
+			case BUSY_SPIN:
+				break;
+			case YIELD:
+				Thread.yield();
+				break;
+			case PARK:
+				LockSupport.parkNanos(this, PARK_NANOS);
+				break;
+			default:
+				_lock.lock();
+				try {
+					// raise the count before the final check, so publish() either signals or its frame is seen here
+					_blocked.incrementAndGet();
+					try {
+						if (isEmpty() && !_closed)
+							_published.awaitNanos(BLOCK_NANOS);
+					} finally {
+						_blocked.decrementAndGet();
+					}
+				} finally {
+					_lock.unlock();
+				}
+				break;
+		}
+	}
+
+	private boolean isEmpty() {
+		long head = _head.get();
+		return _sequences.get((int) head & _mask) != head + 1;
+	}
+
+	private void signal() {
+		_lock.lock();
+		try {
+			if (_closed)
+				_published.signalAll();
+			else
+				_published.signal();
+		} finally {
+			_lock.unlock();
+		}
+	}
+}
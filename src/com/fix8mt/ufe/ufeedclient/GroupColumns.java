@@ -0,0 +1,364 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.util.Arrays;
+
+import static com.fix8mt.ufe.Ufeapi.UFEField;
+import static com.fix8mt.ufe.Ufeapi.UFEField.UFEFieldType.*;
+import static com.fix8mt.ufe.Ufeapi.WireMessage;
+
+/**
+ * Columnar view of a repeating group. Selected tags of every group item are loaded in one pass into
+ * primitive column arrays indexed by item number, without UFEMessage/HashMap per item. Loads from
+ * UFEMessage or straight from encoded frame through UFEMessageView. Column arrays are reused and
+ * only grow, so loading groups of similar size does not allocate.
+ * {@code
+ *	GroupColumns md = new GroupColumns();
+ *	int px = md.addDecimal(MDEntryPx.tag, 8);
+ *	int size = md.addDecimal(MDEntrySize.tag, 0);
+ *	int type = md.addChar(MDEntryType.tag);
+ *	...
+ *	int count = md.load(snapshot, NoMDEntries.tag);
+ *	long[] pxs = md.getLongs(px);
+ *	char[] types = md.getChars(type);
+ *	for (int i = 0; i < count; ++i)
+ *		if (types[i] == MDEntryType.BID)
+ *			...
+ * }
+ */
+public final class GroupColumns {
+	private static final int LONG = 0, DECIMAL = 1, DOUBLE = 2, CHAR = 3;
+
+	private int _columnCount;
+	private int[] _tags = new int[0];
+	private int[] _kinds = new int[0];
+	private int[] _scales = new int[0];
+	private long[][] _longs = new long[0][];
+	private double[][] _doubles = new double[0][];
+	private char[][] _chars = new char[0][];
+	private long[][] _present = new long[0][];
+	private TagIndex _index;
+	private int _capacity;
+	private int _size;
+	private final UFEDecimal _decimal = new UFEDecimal();
+	private final UFEMessageView _item = new UFEMessageView();
+
+	/**
+	 * Adds long column: int and time field ival, double field value rounded to integer
+	 * @param tag column tag
+	 * @return column index
+	 */
+	public int addLong(int tag) {
+		return addColumn(tag, LONG, 0);
+	}
+
+	/**
+	 * Adds scaled decimal column: int or double field value as mantissa of given scale,
+	 * rounded half away from zero if the value has more digits
+	 * @param tag column tag
+	 * @param scale column scale
+	 * @return column index
+	 */
+	public int addDecimal(int tag, int scale) {
+		if (scale < 0 || scale > UFEDecimal.MAX_SCALE)
+			throw new IllegalArgumentException(String.format("scale %d is out of range", scale));
+		return addColumn(tag, DECIMAL, scale);
+	}
+
+	/**
+	 * Adds double column: double field fval or int field ival
+	 * @param tag column tag
+	 * @return column index
+	 */
+	public int addDouble(int tag) {
+		return addColumn(tag, DOUBLE, 0);
+	}
+
+	/**
+	 * Adds char column: first sval byte of char or string field
+	 * @param tag column tag
+	 * @return column index
+	 */
+	public int addChar(int tag) {
+		return addColumn(tag, CHAR, 0);
+	}
+
+	/**
+	 * Loads group items of message
+	 * @param msg message with group
+	 * @param groupTag group tag
+	 * @return loaded items count, 0 if message has no such group
+	 * @throws ArithmeticException thrown if decimal column value does not fit long
+	 */
+	public int load(UFEMessage msg, int groupTag) {
+		UFEField group = msg.findField(groupTag);
+		if (group == null || group.getType() != ft_msg) {
+			_size = 0;
+			return 0;
+		}
+		int count = group.getMvalCount();
+		prepare(count);
+		for (int item = 0; item < count; ++item) {
+			WireMessage wm = group.getMval(item);
+			for (int i = 0, n = wm.getFieldsCount(); i < n; ++i) {
+				UFEField field = wm.getFields(i);
+				int column = _index.get(field.getTag());
+				if (column != TagIndex.NOT_FOUND) {
+					ByteString sval = field.getSval();
+					put(column, item, field.getTypeValue(), field.getIval(), field.getFval(),
+						sval.isEmpty() ? -1 : sval.byteAt(0) & 0xFF);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Loads group items of wrapped frame, moves view field cursor
+	 * @param view view of message with group
+	 * @param groupTag group tag
+	 * @return loaded items count, 0 if message has no such group
+	 * @throws InvalidProtocolBufferException thrown if frame is malformed
+	 * @throws ArithmeticException thrown if decimal column value does not fit long
+	 */
+	public int load(UFEMessageView view, int groupTag) throws InvalidProtocolBufferException {
+		if (!view.findField(groupTag) || view.getFieldTypeValue() != ft_msg_VALUE) {
+			_size = 0;
+			return 0;
+		}
+		int count = view.getFieldMvalCount();
+		prepare(count);
+		for (int i = 0; i < count; ++i) {
+			view.getFieldMval(i, _item);
+			while (_item.nextField()) {
+				int column = _index.get(_item.getFieldTag());
+				if (column != TagIndex.NOT_FOUND)
+					put(column, i, _item.getFieldTypeValue(), _item.getFieldIval(), _item.getFieldFval(),
+						_item.getFieldSvalLength() == 0 ? -1 : _item.getFieldChar());
+			}
+		}
+		_item.reset();
+		return count;
+	}
+
+	/**
+	 * Number of loaded items
+	 * @return loaded items count
+	 */
+	public int size() {
+		return _size;
+	}
+
+	/**
+	 * Number of columns
+	 * @return columns count
+	 */
+	public int getColumnCount() {
+		return _columnCount;
+	}
+
+	/**
+	 * Column tag getter
+	 * @param column column index
+	 * @return column tag
+	 */
+	public int getTag(int column) {
+		return _tags[checkColumn(column)];
+	}
+
+	/**
+	 * Checks whether item has column field
+	 * @param column column index
+	 * @param item item number
+	 * @return true if item has the field with a value of column type
+	 */
+	public boolean isPresent(int column, int item) {
+		checkItem(item);
+		return (_present[checkColumn(column)][item >>> 6] & 1L << item) != 0;
+	}
+
+	/**
+	 * Long or decimal column value
+	 * @param column column index
+	 * @param item item number
+	 * @return value or mantissa, 0 if not present
+	 */
+	public long getLong(int column, int item) {
+		return getLongs(column)[checkItem(item)];
+	}
+
+	/**
+	 * Double column value
+	 * @param column column index
+	 * @param item item number
+	 * @return value, 0 if not present
+	 */
+	public double getDouble(int column, int item) {
+		return getDoubles(column)[checkItem(item)];
+	}
+
+	/**
+	 * Char column value
+	 * @param column column index
+	 * @param item item number
+	 * @return value, '\0' if not present
+	 */
+	public char getChar(int column, int item) {
+		return getChars(column)[checkItem(item)];
+	}
+
+	/**
+	 * Long or decimal column array, valid for the first size() items until the next load
+	 * @param column column index
+	 * @return column values or mantissas
+	 */
+	public long[] getLongs(int column) {
+		long[] values = _longs[checkColumn(column)];
+		if (values == null)
+			throw new IllegalArgumentException(String.format("column %d is not long or decimal column", column));
+		return values;
+	}
+
+	/**
+	 * Double column array, valid for the first size() items until the next load
+	 * @param column column index
+	 * @return column values
+	 */
+	public double[] getDoubles(int column) {
+		double[] values = _doubles[checkColumn(column)];
+		if (values == null)
+			throw new IllegalArgumentException(String.format("column %d is not double column", column));
+		return values;
+	}
+
+	/**
+	 * Char column array, valid for the first size() items until the next load
+	 * @param column column index
+	 * @return column values
+	 */
+	public char[] getChars(int column) {
+		char[] values = _chars[checkColumn(column)];
+		if (values == null)
+			throw new IllegalArgumentException(String.format("column %d is not char column", column));
+		return values;
+	}
+
+	/**
+	 * Decimal column scale
+	 * @param column column index
+	 * @return column scale, 0 for non decimal columns
+	 */
+	public int getScale(int column) {
+		return _scales[checkColumn(column)];
+	}
+
+	private int addColumn(int tag, int kind, int scale) {
+		for (int i = 0; i < _columnCount; ++i) {
+			if (_tags[i] == tag)
+				throw new IllegalArgumentException(String.format("tag %d already has column %d", tag, i));
+		}
+		int column = _columnCount++;
+		_tags = Arrays.copyOf(_tags, _columnCount);
+		_kinds = Arrays.copyOf(_kinds, _columnCount);
+		_scales = Arrays.copyOf(_scales, _columnCount);
+		_longs = Arrays.copyOf(_longs, _columnCount);
+		_doubles = Arrays.copyOf(_doubles, _columnCount);
+		_chars = Arrays.copyOf(_chars, _columnCount);
+		_present = Arrays.copyOf(_present, _columnCount);
+		_tags[column] = tag;
+		_kinds[column] = kind;
+		_scales[column] = scale;
+		allocate(column, _capacity);
+		_index = null;
+		_size = 0;
+		return column;
+	}
+
+	private void allocate(int column, int capacity) {
+		switch (_kinds[column]) {
+			case DOUBLE:
+				_doubles[column] = new double[capacity];
+				break;
+			case CHAR:
+				_chars[column] = new char[capacity];
+				break;
+			default:
+				_longs[column] = new long[capacity];
+				break;
+		}
+		_present[column] = new long[(capacity + 63) >>> 6];
+	}
+
+	/**
+	 * Sizes and clears columns for count items
+	 */
+	private void prepare(int count) {
+		if (_index == null)
+			_index = new TagIndex(_tags);
+		if (count > _capacity) {
+			_capacity = Math.max(count, _capacity * 2);
+			for (int column = 0; column < _columnCount; ++column)
+				allocate(column, _capacity);
+		} else {
+			for (int column = 0; column < _columnCount; ++column) {
+				if (_longs[column] != null)
+					Arrays.fill(_longs[column], 0, count, 0L);
+				if (_doubles[column] != null)
+					Arrays.fill(_doubles[column], 0, count, 0D);
+				if (_chars[column] != null)
+					Arrays.fill(_chars[column], 0, count, '\0');
+				Arrays.fill(_present[column], 0, (count + 63) >>> 6, 0L);
+			}
+		}
+		_size = count;
+	}
+
+	/**
+	 * Stores field value to column, values of types not convertible to column type are skipped
+	 */
+	private void put(int column, int item, int type, long ival, double fval, int firstByte) {
+		switch (_kinds[column]) {
+			case LONG:
+				if (type == ft_double_VALUE)
+					_longs[column][item] = UFEMessage.decimal(type, ival, fval, _decimal).round(0).getMantissa();
+				else if (type == ft_int_VALUE || type == ft_time_VALUE || type == ft_status_VALUE)
+					_longs[column][item] = ival;
+				else
+					return;
+				break;
+			case DECIMAL:
+				if (UFEMessage.decimal(type, ival, fval, _decimal) == null)
+					return;
+				_longs[column][item] = _decimal.round(_scales[column]).getMantissa();
+				break;
+			case DOUBLE:
+				if (type == ft_double_VALUE)
+					_doubles[column][item] = fval;
+				else if (type == ft_int_VALUE)
+					_doubles[column][item] = ival;
+				else
+					return;
+				break;
+			default:
+				if (firstByte < 0 || (type != ft_char_VALUE && type != ft_string_VALUE))
+					return;
+				_chars[column][item] = (char) firstByte;
+				break;
+		}
+		_present[column][item >>> 6] |= 1L << item;
+	}
+
+	private int checkColumn(int column) {
+		if (column < 0 || column >= _columnCount)
+			throw new IndexOutOfBoundsException(String.format("column %d, column count %d", column, _columnCount));
+		return column;
+	}
+
+	private int checkItem(int item) {
+		if (item < 0 || item >= _size)
+			throw new IndexOutOfBoundsException(String.format("item %d, size %d", item, _size));
+		return item;
+	}
+}
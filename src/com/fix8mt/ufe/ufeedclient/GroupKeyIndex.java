@@ -0,0 +1,208 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import com.google.protobuf.ByteString;
+
+import static com.fix8mt.ufe.Ufeapi.UFEField;
+import static com.fix8mt.ufe.Ufeapi.UFEField.UFEFieldType.*;
+import static com.fix8mt.ufe.Ufeapi.WireMessage;
+
+/**
+ * Index of group items by key field value. Integer (int, time, status) keys are looked up by long,
+ * char and string keys by char or ASCII character sequence. Lookups neither box nor allocate.
+ * Index is immutable once constructed and can be shared between threads.
+ * When a key is present in more than one item, the first item wins.
+ */
+final class GroupKeyIndex {
+	static final int NOT_FOUND = -1;
+
+	private final int _groupTag;
+	private final int _keyTag;
+	private final UFEField[] _keys;	// item position -> key field or null
+	private final int[] _slots;		// item position + 1, 0 is empty
+	private final int _mask;
+
+	/**
+	 * Constructs index of group items by key field
+	 * @param group group field
+	 * @param keyTag key field tag
+	 */
+	GroupKeyIndex(UFEField group, int keyTag) {
+		int count = group.getMvalCount();
+		_groupTag = group.getTag();
+		_keyTag = keyTag;
+		_keys = new UFEField[count];
+		_mask = TagIndex.capacity(count) - 1;
+		_slots = new int[_mask + 1];
+		for (int item = 0; item < count; ++item) {
+			UFEField key = keyField(group.getMval(item), keyTag);
+			if (key == null || find(key) != NOT_FOUND)
+				continue;
+			_keys[item] = key;
+			for (int i = hash(key) & _mask;; i = (i + 1) & _mask) {
+				if (_slots[i] == 0) {
+					_slots[i] = item + 1;
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks whether index is built for given group and key tags
+	 * @param groupTag group tag
+	 * @param keyTag key tag
+	 * @return true if index matches
+	 */
+	boolean matches(int groupTag, int keyTag) {
+		return _groupTag == groupTag && _keyTag == keyTag;
+	}
+
+	/**
+	 * Finds item with integer key field
+	 * @param key key to find
+	 * @return item position or NOT_FOUND
+	 */
+	int get(long key) {
+		for (int i = mix(Long.hashCode(key)) & _mask;; i = (i + 1) & _mask) {
+			int slot = _slots[i];
+			if (slot == 0)
+				return NOT_FOUND;
+			if (keyEquals(_keys[slot - 1], key))
+				return slot - 1;
+		}
+	}
+
+	/**
+	 * Finds item with char or single character string key field
+	 * @param key key to find
+	 * @return item position or NOT_FOUND
+	 */
+	int get(char key) {
+		if (key > 0xFF)
+			return NOT_FOUND;
+		// same hash as of single byte string key
+		for (int i = mix(Long.hashCode(31L + key)) & _mask;; i = (i + 1) & _mask) {
+			int slot = _slots[i];
+			if (slot == 0)
+				return NOT_FOUND;
+			if (keyEquals(_keys[slot - 1], key))
+				return slot - 1;
+		}
+	}
+
+	/**
+	 * Finds item with string key field
+	 * @param key ASCII key to find
+	 * @return item position or NOT_FOUND
+	 */
+	int get(CharSequence key) {
+		int length = key.length();
+		long hash = length;
+		for (int i = 0; i < length; ++i) {
+			char c = key.charAt(i);
+			if (c > 0x7F)
+				return NOT_FOUND;
+			hash = 31 * hash + c;
+		}
+		for (int i = mix(Long.hashCode(hash)) & _mask;; i = (i + 1) & _mask) {
+			int slot = _slots[i];
+			if (slot == 0)
+				return NOT_FOUND;
+			if (keyEquals(_keys[slot - 1], key))
+				return slot - 1;
+		}
+	}
+
+	/**
+	 * Checks whether key field has integer key value
+	 * @param field key field
+	 * @param key key value
+	 * @return true if field is integer field with the value
+	 */
+	static boolean keyEquals(UFEField field, long key) {
+		return isInteger(field) && field.getIval() == key;
+	}
+
+	/**
+	 * Checks whether key field has char key value
+	 * @param field key field
+	 * @param key key value
+	 * @return true if field is single byte char or string field with the value
+	 */
+	static boolean keyEquals(UFEField field, char key) {
+		return !isInteger(field) && field.getSval().size() == 1 && (char) (field.getSval().byteAt(0) & 0xFF) == key;
+	}
+
+	/**
+	 * Checks whether key field has ASCII string key value
+	 * @param field key field
+	 * @param key key value
+	 * @return true if field is char or string field with the value
+	 */
+	static boolean keyEquals(UFEField field, CharSequence key) {
+		return !isInteger(field) && equal(field.getSval(), key);
+	}
+
+	private int find(UFEField key) {
+		for (int i = hash(key) & _mask;; i = (i + 1) & _mask) {
+			int slot = _slots[i];
+			if (slot == 0)
+				return NOT_FOUND;
+			UFEField field = _keys[slot - 1];
+			if (isInteger(key) ? isInteger(field) && field.getIval() == key.getIval()
+					: !isInteger(field) && field.getSval().equals(key.getSval()))
+				return slot - 1;
+		}
+	}
+
+	private static int hash(UFEField key) {
+		if (isInteger(key))
+			return mix(Long.hashCode(key.getIval()));
+		ByteString sval = key.getSval();
+		long hash = sval.size();
+		for (int i = 0; i < sval.size(); ++i)
+			hash = 31 * hash + (sval.byteAt(i) & 0xFF);
+		return mix(Long.hashCode(hash));
+	}
+
+	private static int mix(int hash) {
+		hash *= 0x9E3779B9;
+		return hash ^ hash >>> 16;
+	}
+
+	private static boolean isInteger(UFEField field) {
+		switch (field.getTypeValue()) {
+			case ft_int_VALUE:
+			case ft_time_VALUE:
+			case ft_status_VALUE:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private static boolean equal(ByteString sval, CharSequence key) {
+		if (sval.size() != key.length())
+			return false;
+		for (int i = 0; i < key.length(); ++i) {
+			if (sval.byteAt(i) != key.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Finds key field of group item, the last field with key tag as of UFEMessage.findField()
+	 * @param item group item
+	 * @param keyTag key field tag
+	 * @return key field or null if item has none or it is a group
+	 */
+	static UFEField keyField(WireMessage item, int keyTag) {
+		for (int i = item.getFieldsCount() - 1; i >= 0; --i) {
+			UFEField field = item.getFields(i);
+			if (field.getTag() == keyTag)
+				return field.getTypeValue() == ft_msg_VALUE ? null : field;
+		}
+		return null;
+	}
+}
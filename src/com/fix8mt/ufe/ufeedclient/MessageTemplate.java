@@ -0,0 +1,209 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import com.fix8mt.ufe.Ufeapi.UFEField.UFEFieldLocation;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static com.fix8mt.ufe.Ufeapi.WireMessage;
+
+/**
+ * Pre-encoded message template. Header and constant fields are serialized once when the template
+ * is created; each message is then composed by copying the encoded prefix into a writer and
+ * encoding only variable fields through template slots.
+ * Variable fields are appended after constant ones in the order slots are set.
+ * {@code
+ *	MessageTemplate nos = new MessageTemplate(uc.createMessage()
+ *		.setLongName("NewOrderSingle")
+ *		.setType(st_fixmsg)
+ *		.setServiceId(1)
+ *		.setName(MsgType.NEWORDERSINGLE)
+ *		.addField(OrdType.tag, OrdType.LIMIT, fl_body)
+ *		.addField(Side.tag, Side.BUY, fl_body));
+ *	MessageTemplate.Slot clOrdId = nos.slot(ClOrdID.tag, fl_body);
+ *	MessageTemplate.Slot price = nos.slot(Price.tag, fl_body);
+ *	...
+ *	UFEMessageWriter writer = nos.begin(pool.local());
+ *	clOrdId.set(writer, "123");
+ *	price.set(writer, 123.456, 4);
+ *	uc.request(writer);
+ * }
+ */
+public final class MessageTemplate {
+	private final byte[] _prefix;
+	private final int _serviceId;
+	private final TagIndex _constantTags;
+
+	/**
+	 * Constructs template, encoding builder header and fields as template constant part
+	 * @param constant builder with header and constant fields
+	 * @throws IllegalStateException thrown if group started with beginGroup() is not completed
+	 */
+	public MessageTemplate(UFEMessage.Builder constant) {
+		if (constant.hasOpenGroup())
+			throw new IllegalStateException("MessageTemplate constructed with incomplete group");
+		WireMessage wm = constant.getWireMessageBuilder().buildPartial();
+		_prefix = wm.toByteArray();
+		_serviceId = wm.getServiceId();
+		_constantTags = new TagIndex(wm);
+	}
+
+	/**
+	 * Creates slot for variable field
+	 * @param tag field tag
+	 * @param loc field location
+	 * @return slot to set field value with
+	 * @throws UFEedException thrown if tag is already in template constant part
+	 */
+	public Slot slot(int tag, UFEFieldLocation loc) throws UFEedException {
+		if (_constantTags.contains(tag))
+			throw new UFEedException(String.format("Tag %d is already in template constant part", tag));
+		return new Slot(tag, loc);
+	}
+
+	/**
+	 * Resets writer and copies template header and constant fields to it
+	 * @param writer writer to compose message with
+	 * @return writer ready to get variable fields
+	 */
+	public UFEMessageWriter begin(UFEMessageWriter writer) {
+		writer.reset().putPrefix(_prefix, _serviceId);
+		return writer;
+	}
+
+	/**
+	 * Template service id getter
+	 * @return template service id
+	 */
+	public int getServiceId() {
+		return _serviceId;
+	}
+
+	/**
+	 * Encoded constant part length
+	 * @return encoded header and constant fields length
+	 */
+	public int getPrefixLength() {
+		return _prefix.length;
+	}
+
+	/**
+	 * Variable field of template
+	 */
+	public static final class Slot {
+		private final int _tag;
+		private final UFEFieldLocation _loc;
+
+		private Slot(int tag, UFEFieldLocation loc) {
+			_tag = tag;
+			_loc = loc;
+		}
+
+		/**
+		 * Slot tag getter
+		 * @return slot tag
+		 */
+		public int getTag() {
+			return _tag;
+		}
+
+		/**
+		 * Slot location getter
+		 * @return slot location
+		 */
+		public UFEFieldLocation getLocation() {
+			return _loc;
+		}
+
+		/**
+		 * Sets long field value
+		 * @param writer writer started with template begin()
+		 * @param val field value
+		 * @return writer
+		 */
+		public UFEMessageWriter set(UFEMessageWriter writer, long val) {
+			return writer.addField(_tag, val, _loc);
+		}
+
+		/**
+		 * Sets String field value
+		 * @param writer writer started with template begin()
+		 * @param val field value
+		 * @return writer
+		 */
+		public UFEMessageWriter set(UFEMessageWriter writer, CharSequence val) {
+			return writer.addField(_tag, val, _loc);
+		}
+
+		/**
+		 * Sets char field value
+		 * @param writer writer started with template begin()
+		 * @param val field value
+		 * @return writer
+		 */
+		public UFEMessageWriter set(UFEMessageWriter writer, char val) {
+			return writer.addField(_tag, val, _loc);
+		}
+
+		/**
+		 * Sets double field value
+		 * @param writer writer started with template begin()
+		 * @param val field value
+		 * @param precision double field precision
+		 * @return writer
+		 */
+		public UFEMessageWriter set(UFEMessageWriter writer, double val, int precision) {
+			return writer.addField(_tag, val, _loc, precision);
+		}
+
+		/**
+		 * Sets decimal field value
+		 * @param writer writer started with template begin()
+		 * @param val field value
+		 * @return writer
+		 */
+		public UFEMessageWriter set(UFEMessageWriter writer, UFEDecimal val) {
+			return writer.addField(_tag, val, _loc);
+		}
+
+		/**
+		 * Sets bool field value
+		 * @param writer writer started with template begin()
+		 * @param val field value
+		 * @return writer
+		 */
+		public UFEMessageWriter set(UFEMessageWriter writer, boolean val) {
+			return writer.addField(_tag, val, _loc);
+		}
+
+		/**
+		 * Sets time field value
+		 * @param writer writer started with template begin()
+		 * @param val field value
+		 * @return writer
+		 */
+		public UFEMessageWriter set(UFEMessageWriter writer, Instant val) {
+			return writer.addField(_tag, val, _loc);
+		}
+
+		/**
+		 * Sets time field value
+		 * @param writer writer started with template begin()
+		 * @param epochNanos field value, nanoseconds since epoch
+		 * @return writer
+		 */
+		public UFEMessageWriter setTime(UFEMessageWriter writer, long epochNanos) {
+			return writer.addTime(_tag, epochNanos, _loc);
+		}
+
+		/**
+		 * Sets UUID field value
+		 * @param writer writer started with template begin()
+		 * @param val field value
+		 * @return writer
+		 */
+		public UFEMessageWriter set(UFEMessageWriter writer, UUID val) {
+			return writer.addField(_tag, val, _loc);
+		}
+	}
+}
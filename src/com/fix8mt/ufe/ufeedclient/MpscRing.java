@@ -0,0 +1,91 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free multi-producer single-consumer ring. Producers claim slots with a CAS on the
+ * tail counter; each slot sequence publishes the element to the consumer and hands the slot back
+ * to producers once consumed, so neither side takes a lock. Capacity is rounded up to a power of two.
+ * offer() may be called from any thread, poll() and isEmpty() from the consumer thread only.
+ * @param <E> element type
+ */
+final class MpscRing<E> {
+	private final int _mask;
+	private final AtomicReferenceArray<E> _elements;
+	// slot sequence: position + 1 when element at position is published, position + capacity when slot is free again
+	private final AtomicLongArray _sequences;
+	private final AtomicLong _tail = new AtomicLong();
+	private long _head;
+
+	/**
+	 * Constructs ring
+	 * @param capacity max number of elements, rounded up to a power of two
+	 */
+	MpscRing(int capacity) {
+		if (capacity < 1 || capacity > 1 << 30)
+			throw new IllegalArgumentException(String.format("capacity %d is out of range", capacity));
+		int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		_mask = size - 1;
+		_elements = new AtomicReferenceArray<>(size);
+		_sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; ++i)
+			_sequences.set(i, i);
+	}
+
+	/**
+	 * Ring capacity
+	 * @return max number of elements
+	 */
+	int capacity() {
+		return _mask + 1;
+	}
+
+	/**
+	 * Adds element, any thread
+	 * @param element element to add, not null
+	 * @return false if ring is full
+	 */
+	boolean offer(E element) {
+		for (;;) {
+			long tail = _tail.get();
+			int index = (int) tail & _mask;
+			long gap = _sequences.get(index) - tail;
+			if (gap == 0) {
+				if (_tail.compareAndSet(tail, tail + 1)) {
+					_elements.lazySet(index, element);
+					// volatile store, so a producer checking consumer state afterwards is ordered after publishing
+					_sequences.set(index, tail + 1);
+					return true;
+				}
+			} else if (gap < 0) {
+				return false; // slot is not consumed yet
+			}
+		}
+	}
+
+	/**
+	 * Removes the oldest element, consumer thread only
+	 * @return element or null if ring is empty
+	 */
+	E poll() {
+		long head = _head;
+		int index = (int) head & _mask;
+		if (_sequences.get(index) != head + 1)
+			return null;
+		E element = _elements.get(index);
+		_elements.lazySet(index, null);
+		_sequences.lazySet(index, head + _mask + 1);
+		_head = head + 1;
+		return element;
+	}
+
+	/**
+	 * Checks whether ring has no published elements, consumer thread only
+	 * @return true if poll() would return null
+	 */
+	boolean isEmpty() {
+		return _sequences.get((int) _head & _mask) != _head + 1;
+	}
+}
@@ -0,0 +1,179 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Synchronous requests over a pool of REQ sockets. A REQ socket takes the next request only after it received
+ * the response to the previous one, so requests of other threads are queued in order and sent over shared
+ * sockets as they become idle, while a request of the owning thread itself is sent at once over a socket
+ * reserved for it. Owning thread only.
+ */
+final class RequesterPool {
+	/**
+	 * REQ socket of the pool and the request waiting for its response
+	 */
+	abstract static class Requester {
+		private CompletableFuture<byte[]> _current;	// response of request of other thread
+		private boolean _replyPending;					// socket expects to receive response
+
+		/**
+		 * Sends request frames
+		 * @param msg encoded request
+		 */
+		protected abstract void send(ByteBuffer msg);
+
+		/**
+		 * Receives response frames, blocks until they arrive
+		 * @return encoded response
+		 */
+		protected abstract byte[] recv();
+
+		/**
+		 * Sends request, response shall be received before the next one is sent
+		 * @param msg encoded request
+		 */
+		final void request(ByteBuffer msg) {
+			send(msg);
+			_replyPending = true;
+		}
+
+		/**
+		 * Receives response to the last request
+		 * @return encoded response
+		 */
+		final byte[] response() {
+			byte[] msgBytes = recv();
+			_replyPending = false;
+			return msgBytes;
+		}
+
+		/**
+		 * Checks whether socket waits for response
+		 * @return true if a request was sent and its response is not received yet
+		 */
+		final boolean isReplyPending() {
+			return _replyPending;
+		}
+	}
+
+	private static final class Queued {
+		private final byte[] _msg;
+		private final CompletableFuture<byte[]> _reply;
+
+		Queued(byte[] msg, CompletableFuture<byte[]> reply) {
+			_msg = msg;
+			_reply = reply;
+		}
+	}
+
+	private final Requester _reserved;
+	private final Requester[] _requesters;
+	private final ArrayDeque<Queued> _queued = new ArrayDeque<>();
+
+	/**
+	 * Constructs pool. A socket may have a response to an abandoned request pending.
+	 * @param reserved socket for requests of owning thread
+	 * @param requesters shared sockets for requests of other threads, at least one
+	 */
+	RequesterPool(Requester reserved, Requester[] requesters) {
+		if (requesters.length == 0)
+			throw new IllegalArgumentException("requester pool is empty");
+		_reserved = reserved;
+		_requesters = requesters.clone();
+	}
+
+	/**
+	 * Pool size
+	 * @return number of shared sockets
+	 */
+	int size() {
+		return _requesters.length;
+	}
+
+	/**
+	 * Shared socket
+	 * @param index socket index
+	 * @return socket
+	 */
+	Requester get(int index) {
+		return _requesters[index];
+	}
+
+	/**
+	 * Queues request of other thread, call dispatch() to send it
+	 * @param msg encoded request
+	 * @param reply completed with encoded response
+	 */
+	void enqueue(byte[] msg, CompletableFuture<byte[]> reply) {
+		_queued.add(new Queued(msg, reply));
+	}
+
+	/**
+	 * Sends queued requests in order over sockets waiting for no response. A request failing to be sent
+	 * fails its reply and the exception is rethrown.
+	 */
+	void dispatch() {
+		for (int i = 0; i < _requesters.length && !_queued.isEmpty(); ++i) {
+			Requester requester = _requesters[i];
+			if (requester._replyPending)
+				continue;
+			Queued queued = _queued.poll();
+			try {
+				requester.request(ByteBuffer.wrap(queued._msg));
+				requester._current = queued._reply;
+			} catch (RuntimeException e) {
+				queued._reply.completeExceptionally(e);
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Receives response on socket reported readable and completes its request; response to an
+	 * abandoned request is dropped. Nothing is received if socket waits for no response.
+	 * @param index socket index
+	 */
+	void receive(int index) {
+		Requester requester = _requesters[index];
+		if (!requester._replyPending)
+			return;
+		byte[] msgBytes = requester.response();
+		CompletableFuture<byte[]> reply = requester._current;
+		requester._current = null;
+		if (reply != null)
+			reply.complete(msgBytes);
+	}
+
+	/**
+	 * Sends request of owning thread, which cannot wait for a shared socket to become idle, over the reserved
+	 * socket and waits for response, never behind a response to another request. Requests queued by other
+	 * threads are left for dispatch().
+	 * @param msg encoded request
+	 * @return encoded response
+	 */
+	byte[] request(ByteBuffer msg) {
+		if (_reserved._replyPending)
+			_reserved.response();	// response to abandoned request
+		_reserved.request(msg);
+		return _reserved.response();
+	}
+
+	/**
+	 * Fails queued requests and requests waiting for response. Sockets still expect their responses,
+	 * the next request made on each discards it.
+	 * @param cause failure cause
+	 */
+	void fail(Exception cause) {
+		Queued queued;
+		while ((queued = _queued.poll()) != null)
+			queued._reply.completeExceptionally(cause);
+		for (Requester requester : _requesters) {
+			if (requester._current != null) {
+				requester._current.completeExceptionally(cause);
+				requester._current = null;
+			}
+		}
+	}
+}
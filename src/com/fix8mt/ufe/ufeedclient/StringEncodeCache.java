@@ -0,0 +1,161 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import com.google.protobuf.ByteString;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of UTF-8 encoded outbound string values. Builders with the cache set reuse encoded
+ * ByteStrings of repeated values (Account, Symbol, ExDestination...) instead of encoding them on
+ * every addField() call. Constant values can also be registered up front and referenced by small
+ * ids. Number of cached values is bounded by capacity: once full, new values are encoded on every
+ * call until clear(). Safe for concurrent use.
+ * {@code
+ *	StringEncodeCache cache = new StringEncodeCache(1024);
+ *	int account = cache.register("ACC-001");
+ *	uc.setStringEncodeCache(cache);
+ *	uc.createMessage()
+ *		.addField(Symbol.tag, symbol, fl_body)               // cached by value
+ *		.addField(Account.tag, cache.get(account), fl_body)  // registered
+ *		...
+ * }
+ */
+public final class StringEncodeCache {
+	private final int _capacity;
+	private final ConcurrentHashMap<String, ByteString> _values;
+	private volatile ByteString[] _registered = new ByteString[0];
+	private final LongAdder _hits = new LongAdder();
+	private final LongAdder _misses = new LongAdder();
+
+	/**
+	 * Constructs cache
+	 * @param capacity max number of values cached by encode()
+	 */
+	public StringEncodeCache(int capacity) {
+		_capacity = capacity;
+		_values = new ConcurrentHashMap<>(Math.min(capacity, 1 << 16) * 4 / 3 + 1);
+	}
+
+	/**
+	 * Registers constant value, registered values do not count against capacity
+	 * @param value value to register
+	 * @return value id to get encoded value with
+	 */
+	public int register(String value) {
+		ByteString encoded = ByteString.copyFromUtf8(value);
+		synchronized (_values) {
+			ByteString[] registered = Arrays.copyOf(_registered, _registered.length + 1);
+			registered[registered.length - 1] = encoded;
+			_registered = registered;
+			return registered.length - 1;
+		}
+	}
+
+	/**
+	 * Returns registered value
+	 * @param id value id returned by register()
+	 * @return encoded value
+	 */
+	public ByteString get(int id) {
+		return _registered[id];
+	}
+
+	/**
+	 * Returns encoded value, cached if there is room for it
+	 * @param value value to encode
+	 * @return encoded value
+	 */
+	public ByteString encode(String value) {
+		ByteString encoded = _values.get(value);
+		if (encoded != null) {
+			_hits.increment();
+			return encoded;
+		}
+		_misses.increment();
+		encoded = ByteString.copyFromUtf8(value);
+		if (_values.size() < _capacity) {
+			ByteString cached = _values.putIfAbsent(value, encoded);
+			if (cached != null)
+				return cached;
+		}
+		return encoded;
+	}
+
+	/**
+	 * Number of values cached by encode()
+	 * @return cached values count
+	 */
+	public int size() {
+		return _values.size();
+	}
+
+	/**
+	 * Max number of values cached by encode()
+	 * @return capacity
+	 */
+	public int getCapacity() {
+		return _capacity;
+	}
+
+	/**
+	 * Number of registered values
+	 * @return registered values count
+	 */
+	public int getRegisteredCount() {
+		return _registered.length;
+	}
+
+	/**
+	 * Number of encode() calls that reused cached value
+	 * @return hit count
+	 */
+	public long getHitCount() {
+		return _hits.sum();
+	}
+
+	/**
+	 * Number of encode() calls that encoded value
+	 * @return miss count
+	 */
+	public long getMissCount() {
+		return _misses.sum();
+	}
+
+	/**
+	 * Share of encode() calls that reused cached value
+	 * @return hit rate from 0 to 1
+	 */
+	public double getHitRate() {
+		long hits = _hits.sum(), lookups = hits + _misses.sum();
+		return lookups == 0 ? 0D : (double) hits / lookups;
+	}
+
+	/**
+	 * Approximate heap retained by cached and registered values
+	 * @return approximate footprint in bytes
+	 */
+	public long getFootprintBytes() {
+		// map node, key String with its chars and ByteString per cached value
+		long bytes = 0;
+		for (ByteString value : _values.values())
+			bytes += 120 + value.size() * 3L;
+		for (ByteString value : _registered)
+			bytes += 48 + value.size();
+		return bytes;
+	}
+
+	/**
+	 * Removes values cached by encode(), keeping registered values and statistics
+	 */
+	public void clear() {
+		_values.clear();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("size=%d capacity=%d registered=%d hits=%d misses=%d hitRate=%.4f footprint=%d",
+			size(), _capacity, getRegisteredCount(), getHitCount(), getMissCount(), getHitRate(), getFootprintBytes());
+	}
+}
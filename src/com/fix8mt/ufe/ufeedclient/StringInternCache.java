@@ -0,0 +1,294 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bounded intern table of string field values keyed on their raw UTF-8 bytes. A value seen before
+ * resolves to the same canonical String and ByteString instances without being decoded or copied.
+ * The table is split into 4-way sets, each evicting with its own clock hand, so memory stays bounded
+ * by capacity. Only fields with opted-in tags are interned and values longer than MAX_VALUE_LENGTH
+ * bytes never are. Safe for concurrent use.
+ * {@code
+ *	StringInternCache cache = new StringInternCache(4096, Symbol.tag, Account.tag, SecurityExchange.tag);
+ *	uc.setStringInternCache(cache);
+ *	...
+ *	String symbol = (String) msg.findFieldValue(Symbol.tag); // canonical instance
+ * }
+ */
+public final class StringInternCache {
+	public static final int MAX_VALUE_LENGTH = 64;
+
+	private static final int WAYS = 4;
+	// rough per entry overhead of key array, String with its chars, ByteString and slot arrays
+	private static final int ENTRY_OVERHEAD = 120;
+
+	private final TagIndex _tags;
+	private final boolean _allTags;
+	private final int _setMask;
+	private final int[] _hashes;
+	private final byte[][] _keys;
+	private final String[] _strings;
+	private final ByteString[] _byteStrings;
+	private final boolean[] _referenced;
+	private final int[] _hands;
+	private int _size;
+	private long _keyBytes;
+	private long _hits, _misses, _evictions;
+
+	/**
+	 * Constructs cache
+	 * @param capacity max number of interned values, rounded up to a power of two of at least 4
+	 * @param tags tags of fields to intern, no tags to intern all string fields
+	 */
+	public StringInternCache(int capacity, int... tags) {
+		int need = (capacity + WAYS - 1) / WAYS;
+		int sets = need <= 1 ? 1 : Integer.highestOneBit(need - 1) << 1;
+		_setMask = sets - 1;
+		_hashes = new int[sets * WAYS];
+		_keys = new byte[sets * WAYS][];
+		_strings = new String[sets * WAYS];
+		_byteStrings = new ByteString[sets * WAYS];
+		_referenced = new boolean[sets * WAYS];
+		_hands = new int[sets];
+		_tags = new TagIndex(tags);
+		_allTags = tags.length == 0;
+	}
+
+	/**
+	 * Checks whether values of field with given tag are interned
+	 * @param tag tag to check
+	 * @return true if values are interned
+	 */
+	public boolean accepts(int tag) {
+		return _allTags || _tags.contains(tag);
+	}
+
+	/**
+	 * Resolves canonical String of UTF-8 bytes
+	 * @param bytes value bytes
+	 * @return canonical String
+	 */
+	public String intern(ByteString bytes) {
+		if (bytes.size() > MAX_VALUE_LENGTH)
+			return bytes.toStringUtf8();
+		synchronized (this) {
+			return _strings[find(null, bytes, null, 0, bytes.size())];
+		}
+	}
+
+	/**
+	 * Resolves canonical String of UTF-8 bytes
+	 * @param array array containing value bytes
+	 * @param offset value offset
+	 * @param length value length
+	 * @return canonical String
+	 */
+	public String intern(byte[] array, int offset, int length) {
+		if (length > MAX_VALUE_LENGTH)
+			return new String(array, offset, length, StandardCharsets.UTF_8);
+		synchronized (this) {
+			return _strings[find(array, null, null, offset, length)];
+		}
+	}
+
+	/**
+	 * Resolves canonical String of UTF-8 bytes, buffer position and limit are ignored and not changed
+	 * @param buffer buffer containing value bytes
+	 * @param index value absolute index
+	 * @param length value length
+	 * @return canonical String
+	 */
+	public String intern(ByteBuffer buffer, int index, int length) {
+		if (length > MAX_VALUE_LENGTH)
+			return new String(copy(null, null, buffer, index, length), StandardCharsets.UTF_8);
+		synchronized (this) {
+			return _strings[find(null, null, buffer, index, length)];
+		}
+	}
+
+	/**
+	 * Resolves canonical ByteString of bytes
+	 * @param bytes value bytes
+	 * @return canonical ByteString
+	 */
+	public ByteString internBytes(ByteString bytes) {
+		if (bytes.size() > MAX_VALUE_LENGTH)
+			return bytes;
+		synchronized (this) {
+			return _byteStrings[find(null, bytes, null, 0, bytes.size())];
+		}
+	}
+
+	/**
+	 * Resolves canonical ByteString of bytes
+	 * @param array array containing value bytes
+	 * @param offset value offset
+	 * @param length value length
+	 * @return canonical ByteString
+	 */
+	public ByteString internBytes(byte[] array, int offset, int length) {
+		if (length > MAX_VALUE_LENGTH)
+			return ByteString.copyFrom(array, offset, length);
+		synchronized (this) {
+			return _byteStrings[find(array, null, null, offset, length)];
+		}
+	}
+
+	/**
+	 * Number of interned values
+	 * @return interned values count
+	 */
+	public synchronized int size() {
+		return _size;
+	}
+
+	/**
+	 * Max number of interned values
+	 * @return capacity
+	 */
+	public int getCapacity() {
+		return _keys.length;
+	}
+
+	/**
+	 * Number of lookups resolved to an interned value
+	 * @return hit count
+	 */
+	public synchronized long getHitCount() {
+		return _hits;
+	}
+
+	/**
+	 * Number of lookups that interned a new value
+	 * @return miss count
+	 */
+	public synchronized long getMissCount() {
+		return _misses;
+	}
+
+	/**
+	 * Number of values evicted to make room for new ones
+	 * @return eviction count
+	 */
+	public synchronized long getEvictionCount() {
+		return _evictions;
+	}
+
+	/**
+	 * Share of lookups resolved to an interned value
+	 * @return hit rate from 0 to 1
+	 */
+	public synchronized double getHitRate() {
+		long lookups = _hits + _misses;
+		return lookups == 0 ? 0D : (double) _hits / lookups;
+	}
+
+	/**
+	 * Approximate heap retained by the cache, including its slot arrays
+	 * @return approximate footprint in bytes
+	 */
+	public synchronized long getFootprintBytes() {
+		// key bytes are held by key array, String chars (2 bytes each) and shared with ByteString
+		return _keys.length * 32L + _size * (long) ENTRY_OVERHEAD + _keyBytes * 3;
+	}
+
+	/**
+	 * Removes all interned values, keeping statistics
+	 */
+	public synchronized void clear() {
+		for (int i = 0; i < _keys.length; ++i) {
+			_keys[i] = null;
+			_strings[i] = null;
+			_byteStrings[i] = null;
+			_referenced[i] = false;
+		}
+		_size = 0;
+		_keyBytes = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("size=%d capacity=%d hits=%d misses=%d evictions=%d hitRate=%.4f footprint=%d",
+			_size, _keys.length, _hits, _misses, _evictions, getHitRate(), getFootprintBytes());
+	}
+
+	/**
+	 * Finds slot of value given by one of array, bytes or buffer, interning it on miss
+	 */
+	private int find(byte[] array, ByteString bytes, ByteBuffer buffer, int offset, int length) {
+		int hash = 0;
+		for (int i = 0; i < length; ++i)
+			hash = 31 * hash + byteAt(array, bytes, buffer, offset + i);
+		int set = (hash ^ hash >>> 16) & _setMask;
+		int first = set * WAYS;
+		for (int slot = first; slot < first + WAYS; ++slot) {
+			byte[] key = _keys[slot];
+			if (key != null && _hashes[slot] == hash && key.length == length && equal(key, array, bytes, buffer, offset)) {
+				_referenced[slot] = true;
+				++_hits;
+				return slot;
+			}
+		}
+		++_misses;
+		int slot = victim(set);
+		if (_keys[slot] != null) {
+			++_evictions;
+			--_size;
+			_keyBytes -= _keys[slot].length;
+		}
+		byte[] key = copy(array, bytes, buffer, offset, length);
+		_hashes[slot] = hash;
+		_keys[slot] = key;
+		_strings[slot] = new String(key, StandardCharsets.UTF_8);
+		_byteStrings[slot] = bytes != null ? bytes : UnsafeByteOperations.unsafeWrap(key); // key is never modified
+		_referenced[slot] = false;
+		++_size;
+		_keyBytes += length;
+		return slot;
+	}
+
+	/**
+	 * Picks free slot of the set or the first one not referenced since the hand passed it
+	 */
+	private int victim(int set) {
+		int first = set * WAYS;
+		for (int slot = first; slot < first + WAYS; ++slot) {
+			if (_keys[slot] == null)
+				return slot;
+		}
+		int hand = _hands[set];
+		while (_referenced[first + hand]) {
+			_referenced[first + hand] = false;
+			hand = (hand + 1) % WAYS;
+		}
+		_hands[set] = (hand + 1) % WAYS;
+		return first + hand;
+	}
+
+	private static boolean equal(byte[] key, byte[] array, ByteString bytes, ByteBuffer buffer, int offset) {
+		for (int i = 0; i < key.length; ++i) {
+			if (key[i] != byteAt(array, bytes, buffer, offset + i))
+				return false;
+		}
+		return true;
+	}
+
+	private static byte[] copy(byte[] array, ByteString bytes, ByteBuffer buffer, int offset, int length) {
+		byte[] copy = new byte[length];
+		for (int i = 0; i < length; ++i)
+			copy[i] = byteAt(array, bytes, buffer, offset + i);
+		return copy;
+	}
+
+	private static byte byteAt(byte[] array, ByteString bytes, ByteBuffer buffer, int index) {
+		if (array != null)
+			return array[index];
+		if (bytes != null)
+			return bytes.byteAt(index);
+		return buffer.get(index);
+	}
+}
@@ -0,0 +1,153 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import java.util.Arrays;
+
+import static com.fix8mt.ufe.Ufeapi.WireMessage;
+
+/**
+ * Primitive tag to position index. Tags below DENSE_LIMIT (standard FIX tags) live in
+ * a dense array sized to the highest tag seen, all others (UFE system tags 70000+,
+ * user defined tags) in an open addressing table. Lookups neither box nor allocate.
+ * Index is immutable once constructed and can be shared between threads.
+ * When a tag is present more than once, the last position wins and the tag is reported by isRepeated().
+ */
+final class TagIndex {
+	static final int DENSE_LIMIT = 1024;
+	static final int NOT_FOUND = -1;
+	private static final int[] NO_TAGS = new int[0];
+
+	private final int[] _dense;		// tag -> position + 1, 0 is empty
+	private final int[] _keys;		// sparse tags, 0 is empty
+	private final int[] _values;	// sparse positions
+	private final int _mask;
+	private final int[] _repeated;	// tags present more than once, usually none
+
+	/**
+	 * Constructs index of WireMessage fields, mapping field tag to its position in fields list
+	 * @param wm WireMessage to index
+	 */
+	TagIndex(WireMessage wm) {
+		int count = wm.getFieldsCount();
+		int maxDense = -1, sparse = 0;
+		for (int i = 0; i < count; ++i) {
+			int tag = wm.getFields(i).getTag();
+			if (isDense(tag))
+				maxDense = Math.max(maxDense, tag);
+			else
+				++sparse;
+		}
+		_dense = new int[maxDense + 1];
+		_mask = capacity(sparse) - 1;
+		_keys = new int[_mask + 1];
+		_values = new int[_mask + 1];
+		int[] repeated = NO_TAGS;
+		for (int i = 0; i < count; ++i)
+			repeated = put(wm.getFields(i).getTag(), i, repeated);
+		_repeated = repeated;
+	}
+
+	/**
+	 * Constructs index of given tags, mapping tag to its position in tags array
+	 * @param tags tags to index
+	 */
+	TagIndex(int... tags) {
+		int maxDense = -1, sparse = 0;
+		for (int tag : tags) {
+			if (isDense(tag))
+				maxDense = Math.max(maxDense, tag);
+			else
+				++sparse;
+		}
+		_dense = new int[maxDense + 1];
+		_mask = capacity(sparse) - 1;
+		_keys = new int[_mask + 1];
+		_values = new int[_mask + 1];
+		int[] repeated = NO_TAGS;
+		for (int i = 0; i < tags.length; ++i)
+			repeated = put(tags[i], i, repeated);
+		_repeated = repeated;
+	}
+
+	/**
+	 * Finds position by tag
+	 * @param tag tag to find
+	 * @return found position or NOT_FOUND
+	 */
+	int get(int tag) {
+		if (isDense(tag))
+			return tag < _dense.length ? _dense[tag] - 1 : NOT_FOUND;
+		for (int i = hash(tag) & _mask;; i = (i + 1) & _mask) {
+			int key = _keys[i];
+			if (key == tag)
+				return _values[i];
+			if (key == 0)
+				return NOT_FOUND;
+		}
+	}
+
+	/**
+	 * Checks whether tag is indexed
+	 * @param tag tag to check
+	 * @return true if tag is indexed
+	 */
+	boolean contains(int tag) {
+		return get(tag) != NOT_FOUND;
+	}
+
+	/**
+	 * Checks whether tag is present more than once
+	 * @param tag tag to check
+	 * @return true if get() returns the last of several positions
+	 */
+	boolean isRepeated(int tag) {
+		for (int repeated : _repeated) {
+			if (repeated == tag)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Maps tag to position, returns repeated tags with the tag added if it was already mapped
+	 */
+	private int[] put(int tag, int position, int[] repeated) {
+		boolean present;
+		if (isDense(tag)) {
+			present = _dense[tag] != 0;
+			_dense[tag] = position + 1;
+		} else {
+			int i = hash(tag) & _mask;
+			while (_keys[i] != 0 && _keys[i] != tag)
+				i = (i + 1) & _mask;
+			present = _keys[i] == tag;
+			_keys[i] = tag;
+			_values[i] = position;
+		}
+		if (!present)
+			return repeated;
+		for (int t : repeated) {
+			if (t == tag)
+				return repeated;
+		}
+		repeated = Arrays.copyOf(repeated, repeated.length + 1);
+		repeated[repeated.length - 1] = tag;
+		return repeated;
+	}
+
+	private static boolean isDense(int tag) {
+		return tag >= 0 && tag < DENSE_LIMIT;
+	}
+
+	private static int hash(int tag) {
+		int h = tag * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	static int capacity(int count) {
+		// keep load factor at or below 0.5
+		int capacity = 2;
+		while (capacity < count * 2)
+			capacity <<= 1;
+		return capacity;
+	}
+}
@@ -0,0 +1,418 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnknownFieldSet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.fix8mt.ufe.Ufeapi.UFEField;
+import static com.fix8mt.ufe.Ufeapi.WireMessage;
+import static com.fix8mt.ufe.ufeedclient.UFEMessageWriter.varintSize;
+import static com.fix8mt.ufe.ufeedclient.WireReader.*;
+
+/**
+ * WireMessage encoder and decoder specialized for ufeapi.proto schema. Produces and accepts exactly
+ * the bytes of generated WireMessage.toByteArray()/parseFrom(), including unknown fields, with
+ * field-number switches instead of generic CodedInputStream/CodedOutputStream calls. Encoder
+ * computes all nested message sizes in one pass into a reusable array and writes straight into
+ * the destination array. Deprecated group wire types are not supported and fail decoding.
+ * Generated Ufeapi classes remain the reference implementation and the default of UFEedClient,
+ * which uses a codec per thread when UFEedConfiguration.setSpecializedCodec(true) is set.
+ * Codec is not thread safe; use one codec per thread.
+ * {@code
+ *	UFECodec codec = new UFECodec();
+ *	byte[] frame = codec.encode(msg.getWireMessage());
+ *	WireMessage wm = codec.decode(frame);
+ * }
+ */
+public final class UFECodec {
+	// same as CodedInputStream default recursion limit
+	static final int MAX_NESTING = 100;
+
+	private final WireReader _reader = new WireReader();
+	// sizes of fields and group items in pre-order, filled by size pass, consumed by write pass
+	private int[] _sizes = new int[64];
+	private int _sizeCount;
+	private int _sizeIndex;
+	private byte[] _dst;
+	private int _pos;
+	private int _nesting;
+
+	/**
+	 * Computes encoded message size
+	 * @param wm message to encode
+	 * @return encoded size in bytes
+	 */
+	public int getEncodedSize(WireMessage wm) {
+		_sizeCount = 0;
+		return messageSize(wm);
+	}
+
+	/**
+	 * Encodes message to new array
+	 * @param wm message to encode
+	 * @return encoded message bytes
+	 */
+	public byte[] encode(WireMessage wm) {
+		byte[] dst = new byte[getEncodedSize(wm)];
+		write(wm, dst, 0);
+		return dst;
+	}
+
+	/**
+	 * Encodes message to array
+	 * @param wm message to encode
+	 * @param dst destination array
+	 * @param offset destination offset
+	 * @return encoded size in bytes
+	 * @throws IndexOutOfBoundsException thrown if encoded message does not fit the array
+	 */
+	public int encode(WireMessage wm, byte[] dst, int offset) {
+		int size = getEncodedSize(wm);
+		if (offset < 0 || size > dst.length - offset)
+			throw new IndexOutOfBoundsException(String.format("offset=%d size=%d array length=%d", offset, size, dst.length));
+		write(wm, dst, offset);
+		return size;
+	}
+
+	/**
+	 * Decodes whole byte array
+	 * @param frame encoded WireMessage
+	 * @return decoded message
+	 * @throws InvalidProtocolBufferException thrown if frame is malformed
+	 */
+	public WireMessage decode(byte[] frame) throws InvalidProtocolBufferException {
+		return decode(frame, 0, frame.length);
+	}
+
+	/**
+	 * Decodes byte array range
+	 * @param frame array containing encoded WireMessage
+	 * @param offset message offset
+	 * @param length message length
+	 * @return decoded message
+	 * @throws InvalidProtocolBufferException thrown if frame is malformed
+	 */
+	public WireMessage decode(byte[] frame, int offset, int length) throws InvalidProtocolBufferException {
+		_reader.wrap(frame, offset, length);
+		return decode();
+	}
+
+	/**
+	 * Decodes ByteBuffer range between its position and limit. Buffer position is not changed.
+	 * @param frame buffer containing encoded WireMessage
+	 * @return decoded message
+	 * @throws InvalidProtocolBufferException thrown if frame is malformed
+	 */
+	public WireMessage decode(ByteBuffer frame) throws InvalidProtocolBufferException {
+		_reader.wrap(frame);
+		return decode();
+	}
+
+	private WireMessage decode() throws InvalidProtocolBufferException {
+		try {
+			_nesting = 0;
+			return readMessage();
+		} finally {
+			_reader.reset();
+		}
+	}
+
+	private int messageSize(WireMessage wm) {
+		int size = stringSize(wm.getNameBytes()) + stringSize(wm.getLongnameBytes())
+			+ uint32Size(wm.getSeq()) + int32Size(wm.getTypeValue())
+			+ int32Size(wm.getServiceId()) + int32Size(wm.getSubserviceId());
+		for (int i = 0, n = wm.getFieldsCount(); i < n; ++i) {
+			int fieldSize = fieldSize(wm.getFields(i));
+			size += 1 + varintSize(fieldSize) + fieldSize;
+		}
+		return size + unknownSize(wm.getUnknownFields());
+	}
+
+	private int fieldSize(UFEField field) {
+		int count = field.getMvalCount();
+		int slot = _sizeCount;
+		reserveSizes(1 + count);
+		int size = int32Size(field.getLocationValue()) + int32Size(field.getTypeValue()) + uint32Size(field.getTag());
+		if (field.getIval() != 0L)
+			size += 1 + varintSize(field.getIval());
+		if (field.getFval() != 0D)
+			size += 9;
+		if (field.getBval())
+			size += 2;
+		size += stringSize(field.getSval());
+		for (int i = 0; i < count; ++i) {
+			int itemSize = messageSize(field.getMval(i));
+			_sizes[slot + 1 + i] = itemSize;
+			size += 1 + varintSize(itemSize) + itemSize;
+		}
+		size += unknownSize(field.getUnknownFields());
+		_sizes[slot] = size;
+		return size;
+	}
+
+	private void reserveSizes(int count) {
+		if (_sizeCount + count > _sizes.length)
+			_sizes = Arrays.copyOf(_sizes, Math.max(_sizeCount + count, _sizes.length * 2));
+		_sizeCount += count;
+	}
+
+	private void write(WireMessage wm, byte[] dst, int offset) {
+		_dst = dst;
+		_pos = offset;
+		_sizeIndex = 0;
+		try {
+			writeMessage(wm);
+		} finally {
+			_dst = null;
+		}
+	}
+
+	private void writeMessage(WireMessage wm) {
+		writeString(WireMessage.NAME_FIELD_NUMBER, wm.getNameBytes());
+		writeString(WireMessage.LONGNAME_FIELD_NUMBER, wm.getLongnameBytes());
+		writeUInt32(WireMessage.SEQ_FIELD_NUMBER, wm.getSeq());
+		writeInt32(WireMessage.TYPE_FIELD_NUMBER, wm.getTypeValue());
+		writeInt32(WireMessage.SERVICE_ID_FIELD_NUMBER, wm.getServiceId());
+		writeInt32(WireMessage.SUBSERVICE_ID_FIELD_NUMBER, wm.getSubserviceId());
+		for (int i = 0, n = wm.getFieldsCount(); i < n; ++i)
+			writeField(wm.getFields(i));
+		writeUnknown(wm.getUnknownFields());
+	}
+
+	private void writeField(UFEField field) {
+		int slot = _sizeIndex;
+		_sizeIndex += 1 + field.getMvalCount();
+		long ival = field.getIval();
+		double fval = field.getFval();
+		_dst[_pos++] = (byte) (WireMessage.FIELDS_FIELD_NUMBER << 3 | WT_LENGTH);
+		writeVarint(_sizes[slot]);
+		writeInt32(UFEField.LOCATION_FIELD_NUMBER, field.getLocationValue());
+		writeInt32(UFEField.TYPE_FIELD_NUMBER, field.getTypeValue());
+		writeUInt32(UFEField.TAG_FIELD_NUMBER, field.getTag());
+		if (ival != 0L) {
+			_dst[_pos++] = (byte) (UFEField.IVAL_FIELD_NUMBER << 3 | WT_VARINT);
+			writeVarint(ival);
+		}
+		if (fval != 0D) {
+			_dst[_pos++] = (byte) (UFEField.FVAL_FIELD_NUMBER << 3 | WT_FIXED64);
+			long bits = Double.doubleToRawLongBits(fval);
+			for (int i = 0; i < 8; ++i, bits >>>= 8)
+				_dst[_pos++] = (byte) bits;
+		}
+		if (field.getBval()) {
+			_dst[_pos++] = (byte) (UFEField.BVAL_FIELD_NUMBER << 3 | WT_VARINT);
+			_dst[_pos++] = 1;
+		}
+		writeString(UFEField.SVAL_FIELD_NUMBER, field.getSval());
+		for (int i = 0, n = field.getMvalCount(); i < n; ++i) {
+			_dst[_pos++] = (byte) (UFEField.MVAL_FIELD_NUMBER << 3 | WT_LENGTH);
+			writeVarint(_sizes[slot + 1 + i]);
+			writeMessage(field.getMval(i));
+		}
+		writeUnknown(field.getUnknownFields());
+	}
+
+	private void writeString(int fieldNumber, ByteString value) {
+		int length = value.size();
+		if (length != 0) {
+			_dst[_pos++] = (byte) (fieldNumber << 3 | WT_LENGTH);
+			writeVarint(length);
+			value.copyTo(_dst, _pos);
+			_pos += length;
+		}
+	}
+
+	private void writeInt32(int fieldNumber, int value) {
+		if (value != 0) {
+			_dst[_pos++] = (byte) (fieldNumber << 3 | WT_VARINT);
+			writeVarint(value);
+		}
+	}
+
+	private void writeUInt32(int fieldNumber, int value) {
+		if (value != 0) {
+			_dst[_pos++] = (byte) (fieldNumber << 3 | WT_VARINT);
+			writeVarint(value & 0xFFFFFFFFL);
+		}
+	}
+
+	private void writeVarint(long value) {
+		while ((value & ~0x7FL) != 0) {
+			_dst[_pos++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		_dst[_pos++] = (byte) value;
+	}
+
+	private void writeUnknown(UnknownFieldSet unknown) {
+		int size = unknownSize(unknown);
+		if (size == 0)
+			return;
+		try {
+			CodedOutputStream out = CodedOutputStream.newInstance(_dst, _pos, size);
+			unknown.writeTo(out);
+			out.checkNoSpaceLeft();
+		} catch (IOException e) {
+			throw new IllegalStateException("unknown fields size mismatch", e);
+		}
+		_pos += size;
+	}
+
+	private static int unknownSize(UnknownFieldSet unknown) {
+		// messages without unknown fields share the default instance, skip iterating its empty map
+		return unknown == UnknownFieldSet.getDefaultInstance() ? 0 : unknown.getSerializedSize();
+	}
+
+	private static int stringSize(ByteString value) {
+		int length = value.size();
+		return length == 0 ? 0 : 1 + varintSize(length) + length;
+	}
+
+	private static int int32Size(int value) {
+		return value == 0 ? 0 : 1 + varintSize(value);
+	}
+
+	private static int uint32Size(int value) {
+		return value == 0 ? 0 : 1 + varintSize(value & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Reads message up to reader limit
+	 */
+	private WireMessage readMessage() throws InvalidProtocolBufferException {
+		WireMessage.Builder wmb = WireMessage.newBuilder();
+		UnknownFieldSet.Builder unknown = null;
+		while (_reader.hasRemaining()) {
+			int start = _reader.position();
+			int key = checkKey(_reader.readKey());
+			switch (key) {
+				case WireMessage.NAME_FIELD_NUMBER << 3 | WT_LENGTH: {
+					int length = _reader.readLength();
+					wmb.setName(_reader.string(_reader.position(), length));
+					_reader.position(_reader.position() + length);
+					break;
+				}
+				case WireMessage.LONGNAME_FIELD_NUMBER << 3 | WT_LENGTH: {
+					int length = _reader.readLength();
+					wmb.setLongname(_reader.string(_reader.position(), length));
+					_reader.position(_reader.position() + length);
+					break;
+				}
+				case WireMessage.SEQ_FIELD_NUMBER << 3 | WT_VARINT:
+					wmb.setSeq(_reader.readVarint32());
+					break;
+				case WireMessage.TYPE_FIELD_NUMBER << 3 | WT_VARINT:
+					wmb.setTypeValue(_reader.readVarint32());
+					break;
+				case WireMessage.SERVICE_ID_FIELD_NUMBER << 3 | WT_VARINT:
+					wmb.setServiceId(_reader.readVarint32());
+					break;
+				case WireMessage.SUBSERVICE_ID_FIELD_NUMBER << 3 | WT_VARINT:
+					wmb.setSubserviceId(_reader.readVarint32());
+					break;
+				case WireMessage.FIELDS_FIELD_NUMBER << 3 | WT_LENGTH: {
+					int length = _reader.readLength();
+					int limit = enter(length);
+					wmb.addFields(readField());
+					leave(limit);
+					break;
+				}
+				default:
+					unknown = readUnknown(unknown, start, key);
+					break;
+			}
+		}
+		if (unknown != null)
+			wmb.setUnknownFields(unknown.build());
+		return wmb.build();
+	}
+
+	/**
+	 * Reads field up to reader limit
+	 */
+	private UFEField readField() throws InvalidProtocolBufferException {
+		UFEField.Builder fb = UFEField.newBuilder();
+		UnknownFieldSet.Builder unknown = null;
+		while (_reader.hasRemaining()) {
+			int start = _reader.position();
+			int key = checkKey(_reader.readKey());
+			switch (key) {
+				case UFEField.LOCATION_FIELD_NUMBER << 3 | WT_VARINT:
+					fb.setLocationValue(_reader.readVarint32());
+					break;
+				case UFEField.TYPE_FIELD_NUMBER << 3 | WT_VARINT:
+					fb.setTypeValue(_reader.readVarint32());
+					break;
+				case UFEField.TAG_FIELD_NUMBER << 3 | WT_VARINT:
+					fb.setTag(_reader.readVarint32());
+					break;
+				case UFEField.IVAL_FIELD_NUMBER << 3 | WT_VARINT:
+					fb.setIval(_reader.readVarint64());
+					break;
+				case UFEField.FVAL_FIELD_NUMBER << 3 | WT_FIXED64:
+					fb.setFval(Double.longBitsToDouble(_reader.readFixed64()));
+					break;
+				case UFEField.BVAL_FIELD_NUMBER << 3 | WT_VARINT:
+					fb.setBval(_reader.readVarint64() != 0L);
+					break;
+				case UFEField.SVAL_FIELD_NUMBER << 3 | WT_LENGTH: {
+					int length = _reader.readLength();
+					fb.setSval(_reader.bytes(_reader.position(), length));
+					_reader.position(_reader.position() + length);
+					break;
+				}
+				case UFEField.MVAL_FIELD_NUMBER << 3 | WT_LENGTH: {
+					int length = _reader.readLength();
+					int limit = enter(length);
+					fb.addMval(readMessage());
+					leave(limit);
+					break;
+				}
+				default:
+					unknown = readUnknown(unknown, start, key);
+					break;
+			}
+		}
+		if (unknown != null)
+			fb.setUnknownFields(unknown.build());
+		return fb.build();
+	}
+
+	/**
+	 * Limits reader to nested message of given length
+	 * @return outer limit to restore
+	 */
+	private int enter(int length) throws InvalidProtocolBufferException {
+		if (++_nesting > MAX_NESTING)
+			throw new InvalidProtocolBufferException("Protocol message had too many levels of nesting.");
+		int limit = _reader.limit();
+		_reader.limit(_reader.position() + length);
+		return limit;
+	}
+
+	private void leave(int limit) {
+		_reader.limit(limit);
+		--_nesting;
+	}
+
+	private static int checkKey(int key) throws InvalidProtocolBufferException {
+		if (key >>> 3 == 0)
+			throw new InvalidProtocolBufferException("Protocol message contained an invalid tag (zero).");
+		return key;
+	}
+
+	/**
+	 * Skips field with unknown number or wire type, keeping it as generated parser does
+	 */
+	private UnknownFieldSet.Builder readUnknown(UnknownFieldSet.Builder unknown, int start, int key) throws InvalidProtocolBufferException {
+		_reader.skip(key & 7);
+		if (unknown == null)
+			unknown = UnknownFieldSet.newBuilder();
+		return unknown.mergeFrom(_reader.bytes(start, _reader.position() - start));
+	}
+}
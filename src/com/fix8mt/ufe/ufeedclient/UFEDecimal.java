@@ -0,0 +1,332 @@
+package com.fix8mt.ufe.ufeedclient;
+
+/**
+ * Mutable fixed-point decimal: value is mantissa * 10^-scale, scale is 0 to MAX_SCALE.
+ * Intended for prices and quantities: arithmetic and comparison are exact, formatting and
+ * parsing do not go through double, and a decimal can be reused to avoid allocation.
+ * On the wire decimal is an ft_double field: fval holds the value and ival the precision (scale).
+ * Conversion both ways is exact while mantissa magnitude is below 2^51: each way rounds once,
+ * so the round trip is off by less than half a unit in the last place only up to that bound.
+ * Not thread safe.
+ * {@code
+ *	UFEDecimal price = UFEDecimal.parse("123.4500");
+ *	nos.addField(Price.tag, price, fl_body);
+ *	...
+ *	if (er.getDecimal(LastPx.tag, px) != null && px.compareTo(limit) > 0)
+ *		...
+ * }
+ */
+public final class UFEDecimal implements Comparable<UFEDecimal> {
+	public static final int MAX_SCALE = 18;
+
+	private static final long[] POW10 = new long[MAX_SCALE + 1];
+	private static final double[] DOUBLE_POW10 = new double[MAX_SCALE + 1];
+	static {
+		POW10[0] = 1;
+		DOUBLE_POW10[0] = 1D;
+		for (int i = 1; i <= MAX_SCALE; ++i) {
+			POW10[i] = POW10[i - 1] * 10;
+			DOUBLE_POW10[i] = DOUBLE_POW10[i - 1] * 10D; // exact up to 10^22
+		}
+	}
+
+	private long _mantissa;
+	private int _scale;
+
+	/**
+	 * Constructs zero decimal
+	 */
+	public UFEDecimal() {
+	}
+
+	/**
+	 * Constructs decimal
+	 * @param mantissa decimal mantissa
+	 * @param scale number of digits after decimal point
+	 */
+	public UFEDecimal(long mantissa, int scale) {
+		set(mantissa, scale);
+	}
+
+	/**
+	 * Parses decimal text, see set(CharSequence)
+	 * @param text decimal text
+	 * @return new decimal
+	 * @throws NumberFormatException thrown if text is not a decimal or does not fit
+	 */
+	public static UFEDecimal parse(CharSequence text) {
+		return new UFEDecimal().set(text);
+	}
+
+	/**
+	 * Sets value
+	 * @param mantissa decimal mantissa
+	 * @param scale number of digits after decimal point
+	 * @return self
+	 */
+	public UFEDecimal set(long mantissa, int scale) {
+		_mantissa = mantissa;
+		_scale = checkScale(scale);
+		return this;
+	}
+
+	/**
+	 * Copies value of other decimal
+	 * @param other decimal to copy
+	 * @return self
+	 */
+	public UFEDecimal set(UFEDecimal other) {
+		_mantissa = other._mantissa;
+		_scale = other._scale;
+		return this;
+	}
+
+	/**
+	 * Sets value from double with precision, the ft_double field encoding
+	 * @param value double value (fval)
+	 * @param precision number of digits after decimal point (ival)
+	 * @return self
+	 * @throws ArithmeticException thrown if value is not finite or does not fit
+	 */
+	public UFEDecimal set(double value, int precision) {
+		checkScale(precision);
+		double scaled = value * DOUBLE_POW10[precision];
+		if (Double.isNaN(scaled) || Math.abs(scaled) >= 0x1p63)
+			throw new ArithmeticException(String.format("%s does not fit decimal with scale %d", value, precision));
+		_mantissa = Math.round(scaled);
+		_scale = precision;
+		return this;
+	}
+
+	/**
+	 * Parses decimal text: optional sign, digits with optional decimal point, no exponent.
+	 * Scale is the number of digits after decimal point, so "1.50" has scale 2.
+	 * @param text decimal text
+	 * @return self
+	 * @throws NumberFormatException thrown if text is not a decimal or does not fit
+	 */
+	public UFEDecimal set(CharSequence text) {
+		int n = text.length(), i = 0;
+		boolean negative = false;
+		if (n > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+			negative = text.charAt(0) == '-';
+			++i;
+		}
+		// accumulate negated to accept Long.MIN_VALUE mantissa
+		long mantissa = 0;
+		int scale = -1;
+		boolean digits = false;
+		for (; i < n; ++i) {
+			char c = text.charAt(i);
+			if (c == '.' && scale < 0) {
+				scale = 0;
+				continue;
+			}
+			int digit = c - '0';
+			if (digit < 0 || digit > 9 || mantissa < Long.MIN_VALUE / 10 || mantissa * 10 < Long.MIN_VALUE + digit)
+				throw new NumberFormatException(String.format("invalid decimal \"%s\"", text));
+			mantissa = mantissa * 10 - digit;
+			digits = true;
+			if (scale >= 0)
+				++scale;
+		}
+		if (!digits || scale > MAX_SCALE || !negative && mantissa == Long.MIN_VALUE)
+			throw new NumberFormatException(String.format("invalid decimal \"%s\"", text));
+		_mantissa = negative ? mantissa : -mantissa;
+		_scale = Math.max(scale, 0);
+		return this;
+	}
+
+	/**
+	 * Mantissa getter
+	 * @return decimal mantissa
+	 */
+	public long getMantissa() {
+		return _mantissa;
+	}
+
+	/**
+	 * Scale getter
+	 * @return number of digits after decimal point
+	 */
+	public int getScale() {
+		return _scale;
+	}
+
+	/**
+	 * Converts to double, the ft_double fval
+	 * @return nearest double value
+	 */
+	public double toDouble() {
+		// both operands are exact below 2^53, so division is correctly rounded
+		return _scale == 0 ? (double) _mantissa : _mantissa / DOUBLE_POW10[_scale];
+	}
+
+	/**
+	 * Changes scale without changing value
+	 * @param scale new scale
+	 * @return self
+	 * @throws ArithmeticException thrown if value has more digits than new scale or does not fit
+	 */
+	public UFEDecimal setScale(int scale) {
+		checkScale(scale);
+		if (scale >= _scale) {
+			_mantissa = Math.multiplyExact(_mantissa, POW10[scale - _scale]);
+		} else {
+			long divisor = POW10[_scale - scale];
+			if (_mantissa % divisor != 0)
+				throw new ArithmeticException(String.format("%s does not fit scale %d", this, scale));
+			_mantissa /= divisor;
+		}
+		_scale = scale;
+		return this;
+	}
+
+	/**
+	 * Changes scale, rounding half away from zero if digits are dropped
+	 * @param scale new scale
+	 * @return self
+	 * @throws ArithmeticException thrown if value does not fit
+	 */
+	public UFEDecimal round(int scale) {
+		checkScale(scale);
+		if (scale >= _scale)
+			return setScale(scale);
+		long divisor = POW10[_scale - scale];
+		long quotient = _mantissa / divisor;
+		long remainder = _mantissa % divisor;
+		if (Math.abs(remainder) >= divisor - Math.abs(remainder))
+			quotient += _mantissa < 0 ? -1 : 1;
+		_mantissa = quotient;
+		_scale = scale;
+		return this;
+	}
+
+	/**
+	 * Adds other decimal, result scale is the larger of both scales
+	 * @param other decimal to add
+	 * @return self
+	 * @throws ArithmeticException thrown if result does not fit
+	 */
+	public UFEDecimal add(UFEDecimal other) {
+		return add(other._mantissa, other._scale);
+	}
+
+	/**
+	 * Subtracts other decimal, result scale is the larger of both scales
+	 * @param other decimal to subtract
+	 * @return self
+	 * @throws ArithmeticException thrown if result does not fit
+	 */
+	public UFEDecimal subtract(UFEDecimal other) {
+		return add(Math.negateExact(other._mantissa), other._scale);
+	}
+
+	/**
+	 * Multiplies by integer, scale is not changed
+	 * @param multiplier multiplier
+	 * @return self
+	 * @throws ArithmeticException thrown if result does not fit
+	 */
+	public UFEDecimal multiply(long multiplier) {
+		_mantissa = Math.multiplyExact(_mantissa, multiplier);
+		return this;
+	}
+
+	/**
+	 * Compares numerically, 1.5 and 1.50 are equal
+	 * @param other decimal to compare with
+	 * @return negative, zero or positive as this decimal is less, equal or greater than other
+	 */
+	@Override
+	public int compareTo(UFEDecimal other) {
+		if (_scale == other._scale)
+			return Long.compare(_mantissa, other._mantissa);
+		if (_scale < other._scale)
+			return compareScaled(_mantissa, other._scale - _scale, other._mantissa);
+		return -compareScaled(other._mantissa, _scale - other._scale, _mantissa);
+	}
+
+	/**
+	 * Numeric equality, 1.5 and 1.50 are equal
+	 * @param obj object to compare with
+	 * @return true if obj is decimal with the same value
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		return obj == this || obj instanceof UFEDecimal && compareTo((UFEDecimal) obj) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		long mantissa = _mantissa;
+		int scale = _scale;
+		while (scale > 0 && mantissa % 10 == 0) {
+			mantissa /= 10;
+			--scale;
+		}
+		return 31 * Long.hashCode(mantissa) + scale;
+	}
+
+	/**
+	 * Appends decimal text with scale digits after decimal point
+	 * @param sb builder to append to
+	 * @return sb
+	 */
+	public StringBuilder appendTo(StringBuilder sb) {
+		// format negated to handle Long.MIN_VALUE mantissa
+		long n = _mantissa < 0 ? _mantissa : -_mantissa;
+		if (_mantissa < 0)
+			sb.append('-');
+		int digits = 1;
+		for (long t = n / 10; t != 0; t /= 10)
+			++digits;
+		int length = Math.max(digits - _scale, 1) + (_scale > 0 ? _scale + 1 : 0);
+		int start = sb.length();
+		sb.setLength(start + length);
+		int i = start + length - 1;
+		for (int k = 0; k < _scale; ++k, n /= 10)
+			sb.setCharAt(i--, (char) ('0' - n % 10));
+		if (_scale > 0)
+			sb.setCharAt(i--, '.');
+		for (; i >= start; n /= 10)
+			sb.setCharAt(i--, (char) ('0' - n % 10));
+		return sb;
+	}
+
+	/**
+	 * Decimal text with scale digits after decimal point, allocates String
+	 * @return decimal text
+	 */
+	@Override
+	public String toString() {
+		return appendTo(new StringBuilder(24)).toString();
+	}
+
+	private UFEDecimal add(long mantissa, int scale) {
+		if (scale > _scale) {
+			_mantissa = Math.multiplyExact(_mantissa, POW10[scale - _scale]);
+			_scale = scale;
+		} else {
+			mantissa = Math.multiplyExact(mantissa, POW10[_scale - scale]);
+		}
+		_mantissa = Math.addExact(_mantissa, mantissa);
+		return this;
+	}
+
+	/**
+	 * Compares mantissa * 10^power with other
+	 */
+	private static int compareScaled(long mantissa, int power, long other) {
+		long limit = Long.MAX_VALUE / POW10[power];
+		if (mantissa > limit || mantissa < -limit)
+			return mantissa < 0 ? -1 : 1; // scaled magnitude is beyond any long
+		return Long.compare(mantissa * POW10[power], other);
+	}
+
+	private static int checkScale(int scale) {
+		if (scale < 0 || scale > MAX_SCALE)
+			throw new IllegalArgumentException(String.format("scale %d is out of range 0..%d", scale, MAX_SCALE));
+		return scale;
+	}
+}
@@ -7,21 +7,30 @@ import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Predicate;
 
 import static com.fix8mt.ufe.Ufeapi.UFEField;
 import static com.fix8mt.ufe.Ufeapi.UFEField.UFEFieldType.*;
 import static com.fix8mt.ufe.Ufeapi.WireMessage;
 
 /**
- * UFE message wrapper class
+ * UFE message wrapper class. When a tag is present more than once, field lookups (findField,
+ * getFields, primitive getters) return the last field with the tag, while group lookups (findGroup,
+ * getGroups, findGroupItem) see the items of all groups with the tag in frame order.
  */
 public class UFEMessage {
-	private WireMessage _wm;
-	private HashMap<Integer, UFEField> _fields = new HashMap<>();
-	private HashMap<Integer, List<UFEMessage>> _groups = new HashMap<>();
+	private final WireMessage _wm;
+	private final StringInternCache _internCache;
+	private TagIndex _index;
+	private List<UFEMessage>[] _groupItems;
+	private GroupKeyIndex[] _groupKeyIndexes;
+	private HashMap<Integer, UFEField> _fields;
+	private HashMap<Integer, List<UFEMessage>> _groups;
+	private volatile boolean _mapped = false;
 
 	/**
 	 * Status class to keep long value of numeric status
@@ -69,14 +78,21 @@ public class UFEMessage {
 	 * }
 	 */
 	public static class Builder {
+		private final WireMessage.Builder _root;
+		// message or group item being composed
 		private WireMessage.Builder _builder;
+		private StringEncodeCache _encodeCache;
+		// groups open with beginGroup() and builders they are added to on endGroup()
+		private UFEField.Builder[] _openGroups = new UFEField.Builder[4];
+		private WireMessage.Builder[] _groupOwners = new WireMessage.Builder[4];
+		private int _groupDepth;
 
 		/**
 		 * Constructs builder from WireMessage
 		 * @param wm WireMessage to copy from or null
 		 */
 		public Builder(WireMessage wm) {
-			_builder = (wm == null ? WireMessage.newBuilder() : wm.toBuilder());
+			this(wm == null ? WireMessage.newBuilder() : wm.toBuilder());
 		}
 
 		/**
@@ -84,17 +100,59 @@ public class UFEMessage {
 		 * @param wmb WireMessageBuilder to take ownership from
 		 */
 		public Builder(WireMessage.Builder wmb) {
+			_root = wmb;
 			_builder = wmb;
 		}
 
 		/**
-		 * Returns WireMessage builder
+		 * Clears header and fields so builder can be reused for the next message.
+		 * Messages built before stay intact. Only the builder itself is reused: added fields and
+		 * built messages are still allocated, use UFEMessageWriter to compose without allocation.
+		 * @return self
+		 */
+		public Builder clear() {
+			_root.clear();
+			_builder = _root;
+			Arrays.fill(_openGroups, 0, _groupDepth, null);
+			Arrays.fill(_groupOwners, 0, _groupDepth, null);
+			_groupDepth = 0;
+			return this;
+		}
+
+		/**
+		 * Sets cache that String field values are encoded through, inherited by group items added after the call
+		 * @param encodeCache cache of encoded values or null
+		 * @return self
+		 */
+		public Builder setEncodeCache(StringEncodeCache encodeCache) {
+			_encodeCache = encodeCache;
+			return this;
+		}
+
+		/**
+		 * Returns WireMessage builder of the message, also while a group is open
 		 * @return WireMessage builder
 		 */
 		public WireMessage.Builder getWireMessageBuilder() {
+			return _root;
+		}
+
+		/**
+		 * Returns WireMessage builder of group item started with beginItem(), or of the message outside of items
+		 * @return WireMessage builder
+		 */
+		public WireMessage.Builder getItemWireMessageBuilder() {
 			return _builder;
 		}
 
+		/**
+		 * Checks whether a group started with beginGroup() is not completed yet
+		 * @return true if a group is open
+		 */
+		boolean hasOpenGroup() {
+			return _groupDepth != 0;
+		}
+
 		/**
 		 * Longname getter
 		 * @return message long name
@@ -219,7 +277,8 @@ public class UFEMessage {
 		 * @return self
 		 */
 		public Builder addField(int tag, String val, UFEFieldLocation loc) {
-			UFEField field = UFEField.newBuilder().setTag(tag).setType(ft_string).setSval(ByteString.copyFromUtf8(val)).setLocation(loc).build();
+			ByteString sval = _encodeCache == null ? ByteString.copyFromUtf8(val) : _encodeCache.encode(val);
+			UFEField field = UFEField.newBuilder().setTag(tag).setType(ft_string).setSval(sval).setLocation(loc).build();
 			_builder.addFields(field);
 			return this;
 		}
@@ -250,6 +309,17 @@ public class UFEMessage {
 			return this;
 		}
 
+		/**
+		 * Adds decimal field to message as double field with decimal scale as precision
+		 * @param tag field tag
+		 * @param val field value
+		 * @param loc field location
+		 * @return self
+		 */
+		public Builder addField(int tag, UFEDecimal val, UFEFieldLocation loc) {
+			return addField(tag, val.toDouble(), loc, val.getScale());
+		}
+
 		/**
 		 * Adds bool field to message
 		 * @param tag field tag
@@ -348,6 +418,182 @@ public class UFEMessage {
 			return this;
 		}
 
+		/**
+		 * Sets long field, replacing the last field with the same tag in place or adding it if there is none
+		 * @param tag field tag
+		 * @param val field value
+		 * @param loc field location
+		 * @return self
+		 */
+		public Builder setField(int tag, long val, UFEFieldLocation loc) {
+			return addField(tag, val, loc).moveLastField(tag);
+		}
+
+		/**
+		 * Sets ByteString field, replacing the last field with the same tag in place or adding it if there is none
+		 * @param tag field tag
+		 * @param val field value
+		 * @param loc field location
+		 * @return self
+		 */
+		public Builder setField(int tag, ByteString val, UFEFieldLocation loc) {
+			return addField(tag, val, loc).moveLastField(tag);
+		}
+
+		/**
+		 * Sets String field, replacing the last field with the same tag in place or adding it if there is none
+		 * @param tag field tag
+		 * @param val field value
+		 * @param loc field location
+		 * @return self
+		 */
+		public Builder setField(int tag, String val, UFEFieldLocation loc) {
+			return addField(tag, val, loc).moveLastField(tag);
+		}
+
+		/**
+		 * Sets char field, replacing the last field with the same tag in place or adding it if there is none
+		 * @param tag field tag
+		 * @param val field value
+		 * @param loc field location
+		 * @return self
+		 */
+		public Builder setField(int tag, char val, UFEFieldLocation loc) {
+			return addField(tag, val, loc).moveLastField(tag);
+		}
+
+		/**
+		 * Sets double field, replacing the last field with the same tag in place or adding it if there is none
+		 * @param tag field tag
+		 * @param val field value
+		 * @param loc field location
+		 * @param precision double field precision
+		 * @return self
+		 */
+		public Builder setField(int tag, double val, UFEFieldLocation loc, int precision) {
+			return addField(tag, val, loc, precision).moveLastField(tag);
+		}
+
+		/**
+		 * Sets decimal field, replacing the last field with the same tag in place or adding it if there is none
+		 * @param tag field tag
+		 * @param val field value
+		 * @param loc field location
+		 * @return self
+		 */
+		public Builder setField(int tag, UFEDecimal val, UFEFieldLocation loc) {
+			return addField(tag, val, loc).moveLastField(tag);
+		}
+
+		/**
+		 * Sets bool field, replacing the last field with the same tag in place or adding it if there is none
+		 * @param tag field tag
+		 * @param val field value
+		 * @param loc field location
+		 * @return self
+		 */
+		public Builder setField(int tag, boolean val, UFEFieldLocation loc) {
+			return addField(tag, val, loc).moveLastField(tag);
+		}
+
+		/**
+		 * Sets time field, replacing the last field with the same tag in place or adding it if there is none
+		 * @param tag field tag
+		 * @param val field value
+		 * @param loc field location
+		 * @return self
+		 */
+		public Builder setField(int tag, Instant val, UFEFieldLocation loc) {
+			return addField(tag, val, loc).moveLastField(tag);
+		}
+
+		/**
+		 * Sets UUID field, replacing the last field with the same tag in place or adding it if there is none
+		 * @param tag field tag
+		 * @param val field value
+		 * @param loc field location
+		 * @return self
+		 */
+		public Builder setField(int tag, UUID val, UFEFieldLocation loc) {
+			return addField(tag, val, loc).moveLastField(tag);
+		}
+
+		/**
+		 * Sets status field, replacing the last field with the same tag in place or adding it if there is none
+		 * @param tag field tag
+		 * @param val field value
+		 * @param loc field location
+		 * @return self
+		 */
+		public Builder setField(int tag, Status val, UFEFieldLocation loc) {
+			return addField(tag, val, loc).moveLastField(tag);
+		}
+
+		/**
+		 * Sets prebuilt field, replacing the last field with the same tag in place or adding it if there is none
+		 * @param field field to set
+		 * @return self
+		 */
+		public Builder setField(UFEField field) {
+			return replaceField(field.getTag(), field);
+		}
+
+		/**
+		 * Replaces the last field with given tag in place by field of any tag, adding field if there is none.
+		 * Amending a stored order this way keeps field order, e.g. ClOrdID value becoming OrigClOrdID.
+		 * @param tag tag of field to replace
+		 * @param field field to replace with
+		 * @return self
+		 */
+		public Builder replaceField(int tag, UFEField field) {
+			int pos = fieldPosition(tag, _builder.getFieldsCount());
+			if (pos < 0)
+				_builder.addFields(field);
+			else
+				_builder.setFields(pos, field);
+			return this;
+		}
+
+		/**
+		 * Removes all fields with given tag
+		 * @param tag tag of fields to remove
+		 * @return self
+		 */
+		public Builder removeField(int tag) {
+			for (int i = _builder.getFieldsCount() - 1; i >= 0; --i) {
+				if (_builder.getFields(i).getTag() == tag)
+					_builder.removeFields(i);
+			}
+			return this;
+		}
+
+		/**
+		 * Finds position of the last field with given tag before given position, the one findField() returns
+		 * @param tag tag to find
+		 * @param end position to search before
+		 * @return field position or -1
+		 */
+		private int fieldPosition(int tag, int end) {
+			for (int i = end - 1; i >= 0; --i) {
+				if (_builder.getFields(i).getTag() == tag)
+					return i;
+			}
+			return -1;
+		}
+
+		/**
+		 * Moves just added last field in place of the previous last field with the same tag, if there is one
+		 */
+		private Builder moveLastField(int tag) {
+			int last = _builder.getFieldsCount() - 1;
+			int pos = fieldPosition(tag, last);
+			if (pos >= 0) {
+				_builder.setFields(pos, _builder.getFields(last));
+				_builder.removeFields(last);
+			}
+			return this;
+		}
+
 		public static class GroupBuilderRef {
 			public UFEField.Builder _builder;
 		}
@@ -379,16 +625,83 @@ public class UFEMessage {
 		 * @return created item builder
 		 */
 		public Builder addGroupItem(UFEField.Builder group) {
-			return new UFEMessage.Builder(group.addMvalBuilder());
+			return new UFEMessage.Builder(group.addMvalBuilder()).setEncodeCache(_encodeCache);
+		}
+
+		/**
+		 * Starts group without wrapper objects or lambdas. Add items with beginItem()/endItem() and
+		 * complete it with endGroup(); encoded result is the same as of addGroup().
+		 * {@code
+		 *	builder.beginGroup(NoAllocs.tag, fl_body);
+		 *	for (Alloc alloc : allocs)
+		 *		builder.beginItem()
+		 *			.setLongName("NoAlloc")
+		 *			.addField(AllocAccount.tag, alloc.account, fl_body)
+		 *			.addField(AllocQty.tag, alloc.qty, fl_body)
+		 *			.endItem();
+		 *	builder.endGroup();
+		 * }
+		 * @param tag group tag
+		 * @param loc group location
+		 * @return self
+		 */
+		public Builder beginGroup(int tag, UFEFieldLocation loc) {
+			if (_groupDepth == _openGroups.length) {
+				_openGroups = Arrays.copyOf(_openGroups, _groupDepth * 2);
+				_groupOwners = Arrays.copyOf(_groupOwners, _groupDepth * 2);
+			}
+			_openGroups[_groupDepth] = UFEField.newBuilder().setTag(tag).setType(ft_msg).setLocation(loc);
+			_groupOwners[_groupDepth] = _builder;
+			++_groupDepth;
+			return this;
+		}
+
+		/**
+		 * Starts group item. Item header setters and fields are applied to the item until endItem().
+		 * @return self
+		 */
+		public Builder beginItem() {
+			if (!inGroup())
+				throw new IllegalStateException("beginItem() called outside of group");
+			_builder = _openGroups[_groupDepth - 1].addMvalBuilder();
+			return this;
+		}
+
+		/**
+		 * Completes group item
+		 * @return self
+		 */
+		public Builder endItem() {
+			if (_groupDepth == 0 || inGroup())
+				throw new IllegalStateException("endItem() called outside of group item");
+			_builder = _groupOwners[_groupDepth - 1];
+			return this;
+		}
+
+		/**
+		 * Completes group, adding it to message or group item it was started in
+		 * @return self
+		 */
+		public Builder endGroup() {
+			if (!inGroup())
+				throw new IllegalStateException("endGroup() called outside of group");
+			UFEField.Builder group = _openGroups[--_groupDepth];
+			_builder.addFields(group.setIval(group.getMvalCount()));
+			_openGroups[_groupDepth] = null;
+			_groupOwners[_groupDepth] = null;
+			return this;
 		}
 
 		/**
 		 * Builds UFEMessage when composing is complete. Message is ummutable agter the call.
 		 * @return Immutable composed UFEMessage
+		 * @throws IllegalStateException thrown if group started with beginGroup() is not completed
 		 */
 		public UFEMessage build() {
-			WireMessage wm = _builder.build();
-			return new UFEMessage(wm);
+			if (_groupDepth != 0)
+				throw new IllegalStateException("build() called with incomplete group");
+			WireMessage wm = _root.build();
+			return new UFEMessage(wm, null);
 		}
 
 		/**
@@ -396,7 +709,11 @@ public class UFEMessage {
 		 * @return printed message content
 		 */
 		public String print() {
-			return printWm(_builder.buildPartial(), 0);
+			return printWm(_root.buildPartial(), 0);
+		}
+
+		private boolean inGroup() {
+			return _groupDepth != 0 && _builder == _groupOwners[_groupDepth - 1];
 		}
 
 		static public String printWm(WireMessage wm, int depth) {
@@ -477,13 +794,36 @@ public class UFEMessage {
 		return new Builder(wm);
 	}
 
+	/**
+	 * Wraps received WireMessage without copying it. Tag index and group views are built
+	 * on the first findField/findGroup call, field and group maps on the first
+	 * getFields/getGroups call.
+	 * @param wm WireMessage to wrap
+	 * @return wrapping UFEMessage
+	 */
+	public static UFEMessage wrap(WireMessage wm) {
+		return new UFEMessage(wm, null);
+	}
+
+	/**
+	 * Wraps received WireMessage without copying it, resolving string field values of its
+	 * and its group items through intern cache
+	 * @param wm WireMessage to wrap
+	 * @param internCache cache of string field values or null
+	 * @return wrapping UFEMessage
+	 */
+	public static UFEMessage wrap(WireMessage wm, StringInternCache internCache) {
+		return new UFEMessage(wm, internCache);
+	}
+
 	/**
 	 * Constructs privately UFEMessage. USE UFEMessageBuilder to create new messages.
 	 * @param wm WireMessage to construct from
+	 * @param internCache cache of string field values or null
 	 */
-	private UFEMessage(WireMessage wm) {
+	private UFEMessage(WireMessage wm, StringInternCache internCache) {
 		_wm = wm;
-		remapWireMessage();
+		_internCache = internCache;
 	}
 
 	/**
@@ -499,6 +839,7 @@ public class UFEMessage {
 	 * @return mapped fields hash map
 	 */
 	public HashMap<Integer, UFEField> getFields() {
+		ensureMapped();
 		return _fields;
 	}
 
@@ -507,6 +848,7 @@ public class UFEMessage {
 	 * @return mapped groups hash map
 	 */
 	public HashMap<Integer, List<UFEMessage>> getGroups() {
+		ensureMapped();
 		return _groups;
 	}
 
@@ -516,7 +858,8 @@ public class UFEMessage {
 	 * @return found field or null
 	 */
 	public UFEField findField(int tag) {
-		return _fields.get(tag);
+		int pos = index().get(tag);
+		return pos == TagIndex.NOT_FOUND ? null : _wm.getFields(pos);
 	}
 
 	/**
@@ -533,20 +876,17 @@ public class UFEMessage {
 			case ft_int:
 				return field.getIval();
 			case ft_char:
-				return (char)field.getSval().byteAt(0);
+				return (char) (field.getSval().byteAt(0) & 0xFF);
 			case ft_double:
 				return field.getFval();
 			case ft_string:
-				return field.getSval().toStringUtf8();
+				return string(field);
 			case ft_bool:
 				return field.getBval();
 			case ft_time:
 				return Instant.ofEpochMilli(field.getIval()/1000000).plusNanos(field.getIval()%1000000);
 			case ft_uuid:
-				ByteBuffer bb = ByteBuffer.allocate(64);
-				field.getSval().copyTo(bb);
-				bb.position(0);
-				return new UUID(bb.getLong(), bb.getLong());
+				return new UUID(longBigEndian(field.getSval(), 0), longBigEndian(field.getSval(), 8));
 			case ft_msg:
 				return findGroup(tag);
 			default:
@@ -560,7 +900,218 @@ public class UFEMessage {
 	 * @return found group of null
 	 */
 	public List<UFEMessage> findGroup(int tag) {
-		return _groups.get(tag);
+		TagIndex index = index();
+		if (index.isRepeated(tag))
+			return getGroups().get(tag);
+		int pos = index.get(tag);
+		if (pos == TagIndex.NOT_FOUND || _wm.getFields(pos).getType() != ft_msg)
+			return null;
+		return groupItems(pos);
+	}
+
+	/**
+	 * Finds group item by integer (int, time, status) key field. Items are indexed
+	 * by the key on the first lookup, the first item wins if the key is not unique.
+	 * @param groupTag group tag
+	 * @param keyTag key field tag
+	 * @param key key value
+	 * @return found group item or null
+	 */
+	public UFEMessage findGroupItem(int groupTag, int keyTag, long key) {
+		if (index().isRepeated(groupTag))
+			return findRepeatedGroupItem(groupTag, keyTag, field -> GroupKeyIndex.keyEquals(field, key));
+		int pos = index().get(groupTag);
+		GroupKeyIndex keys = groupKeyIndex(pos, groupTag, keyTag);
+		return keys == null ? null : groupItem(pos, keys.get(key));
+	}
+
+	/**
+	 * Finds group item by char or single character string key field. Items are indexed
+	 * by the key on the first lookup, the first item wins if the key is not unique.
+	 * @param groupTag group tag
+	 * @param keyTag key field tag
+	 * @param key key value
+	 * @return found group item or null
+	 */
+	public UFEMessage findGroupItem(int groupTag, int keyTag, char key) {
+		if (index().isRepeated(groupTag))
+			return findRepeatedGroupItem(groupTag, keyTag, field -> GroupKeyIndex.keyEquals(field, key));
+		int pos = index().get(groupTag);
+		GroupKeyIndex keys = groupKeyIndex(pos, groupTag, keyTag);
+		return keys == null ? null : groupItem(pos, keys.get(key));
+	}
+
+	/**
+	 * Finds group item by ASCII string key field. Items are indexed by the key
+	 * on the first lookup, the first item wins if the key is not unique.
+	 * @param groupTag group tag
+	 * @param keyTag key field tag
+	 * @param key key value, String or AsciiSequence
+	 * @return found group item or null
+	 */
+	public UFEMessage findGroupItem(int groupTag, int keyTag, CharSequence key) {
+		if (index().isRepeated(groupTag))
+			return findRepeatedGroupItem(groupTag, keyTag, field -> GroupKeyIndex.keyEquals(field, key));
+		int pos = index().get(groupTag);
+		GroupKeyIndex keys = groupKeyIndex(pos, groupTag, keyTag);
+		return keys == null ? null : groupItem(pos, keys.get(key));
+	}
+
+	/**
+	 * Checks whether message has field with given tag
+	 * @param tag tag to check
+	 * @return true if field found
+	 */
+	public boolean hasField(int tag) {
+		return index().contains(tag);
+	}
+
+	/**
+	 * Finds long (ival) field value without boxing
+	 * @param tag tag to find field
+	 * @param defaultValue value to return if field not found or is not int, time or status
+	 * @return found field ival or default value
+	 */
+	public long getLong(int tag, long defaultValue) {
+		UFEField field = findField(tag);
+		if (field == null)
+			return defaultValue;
+		switch (field.getTypeValue()) {
+			case ft_int_VALUE:
+			case ft_time_VALUE:
+			case ft_status_VALUE:
+				return field.getIval();
+			default:
+				return defaultValue;
+		}
+	}
+
+	/**
+	 * Finds double (fval) field value without boxing
+	 * @param tag tag to find field
+	 * @param defaultValue value to return if field not found or is not double
+	 * @return found field fval or default value
+	 */
+	public double getDouble(int tag, double defaultValue) {
+		UFEField field = findField(tag);
+		return field == null || field.getTypeValue() != ft_double_VALUE ? defaultValue : field.getFval();
+	}
+
+	/**
+	 * Finds char field value without boxing
+	 * @param tag tag to find field
+	 * @param defaultValue value to return if field not found or empty
+	 * @return found field first sval byte or default value
+	 */
+	public char getChar(int tag, char defaultValue) {
+		UFEField field = findField(tag);
+		return field == null || field.getSval().isEmpty() ? defaultValue : (char) (field.getSval().byteAt(0) & 0xFF);
+	}
+
+	/**
+	 * Finds bool (bval) field value without boxing
+	 * @param tag tag to find field
+	 * @param defaultValue value to return if field not found or is not bool
+	 * @return found field bval or default value
+	 */
+	public boolean getBool(int tag, boolean defaultValue) {
+		UFEField field = findField(tag);
+		return field == null || field.getTypeValue() != ft_bool_VALUE ? defaultValue : field.getBval();
+	}
+
+	/**
+	 * Finds time field value without creating Instant
+	 * @param tag tag to find field
+	 * @param defaultValue value to return if field not found or is not time
+	 * @return found field value in nanoseconds since epoch or default value
+	 */
+	public long getEpochNanos(int tag, long defaultValue) {
+		UFEField field = findField(tag);
+		return field == null || field.getTypeValue() != ft_time_VALUE ? defaultValue : field.getIval();
+	}
+
+	/**
+	 * Finds most significant bits of UUID field value without creating UUID
+	 * @param tag tag to find field
+	 * @param defaultValue value to return if field not found or is not UUID
+	 * @return found UUID most significant bits or default value
+	 */
+	public long getUuidMsb(int tag, long defaultValue) {
+		UFEField field = findField(tag);
+		return field == null || field.getSval().size() < 16 ? defaultValue : longBigEndian(field.getSval(), 0);
+	}
+
+	/**
+	 * Finds least significant bits of UUID field value without creating UUID
+	 * @param tag tag to find field
+	 * @param defaultValue value to return if field not found or is not UUID
+	 * @return found UUID least significant bits or default value
+	 */
+	public long getUuidLsb(int tag, long defaultValue) {
+		UFEField field = findField(tag);
+		return field == null || field.getSval().size() < 16 ? defaultValue : longBigEndian(field.getSval(), 8);
+	}
+
+	/**
+	 * Finds double or int field value as decimal, double field precision is used as scale
+	 * @param tag tag to find field
+	 * @param dst decimal to set
+	 * @return dst or null if field not found or is not double or int
+	 */
+	public UFEDecimal getDecimal(int tag, UFEDecimal dst) {
+		UFEField field = findField(tag);
+		return field == null ? null : decimal(field.getTypeValue(), field.getIval(), field.getFval(), dst);
+	}
+
+	/**
+	 * Finds string field value, canonical instance if message is wrapped with intern cache accepting the tag
+	 * @param tag tag to find field
+	 * @param defaultValue value to return if field not found
+	 * @return found field value or default value
+	 */
+	public String getString(int tag, String defaultValue) {
+		UFEField field = findField(tag);
+		return field == null ? defaultValue : string(field);
+	}
+
+	/**
+	 * Finds string field value as ASCII view, without decoding it to String
+	 * @param tag tag to find field
+	 * @param dst view to wrap over field value
+	 * @return dst or null if field not found
+	 */
+	public AsciiSequence getAscii(int tag, AsciiSequence dst) {
+		UFEField field = findField(tag);
+		return field == null ? null : dst.wrap(field.getSval());
+	}
+
+	/**
+	 * Copies string (sval) field bytes to buffer position, advancing it
+	 * @param tag tag to find field
+	 * @param dst destination buffer
+	 * @return number of bytes copied or -1 if field not found
+	 */
+	public int getBytes(int tag, ByteBuffer dst) {
+		UFEField field = findField(tag);
+		if (field == null)
+			return -1;
+		field.getSval().copyTo(dst);
+		return field.getSval().size();
+	}
+
+	/**
+	 * Copies string (sval) field bytes to array
+	 * @param tag tag to find field
+	 * @param dst destination array
+	 * @param offset destination offset
+	 * @return number of bytes copied or -1 if field not found
+	 */
+	public int getBytes(int tag, byte[] dst, int offset) {
+		UFEField field = findField(tag);
+		if (field == null)
+			return -1;
+		field.getSval().copyTo(dst, offset);
+		return field.getSval().size();
 	}
 
 	/**
@@ -571,19 +1122,109 @@ public class UFEMessage {
 		return Builder.printWm(_wm, 0);
 	}
 
-	private void remapField(UFEField field) {
-		if (field.getType() == ft_msg) {
-			if (!_groups.containsKey(field.getTag()))
-				_groups.put(field.getTag(), new ArrayList<>());
-			List<UFEMessage> msgs = _groups.get(field.getTag());
-			for(WireMessage mval: field.getMvalList())
-				msgs.add(new UFEMessage(mval));
+	private String string(UFEField field) {
+		StringInternCache cache = _internCache;
+		return cache != null && cache.accepts(field.getTag()) ? cache.intern(field.getSval()) : field.getSval().toStringUtf8();
+	}
+
+	static UFEDecimal decimal(int type, long ival, double fval, UFEDecimal dst) {
+		switch (type) {
+			case ft_double_VALUE:
+				return dst.set(fval, (int) Math.min(Math.max(ival, 0), UFEDecimal.MAX_SCALE));
+			case ft_int_VALUE:
+				return dst.set(ival, 0);
+			default:
+				return null;
 		}
-		_fields.put(field.getTag(), field);
+	}
+
+	private static long longBigEndian(ByteString bytes, int offset) {
+		long value = 0;
+		for (int i = 0; i < 8; ++i)
+			value = value << 8 | (bytes.byteAt(offset + i) & 0xFFL);
+		return value;
+	}
+
+	private TagIndex index() {
+		// TagIndex is immutable, racy initialization just builds it once more
+		TagIndex index = _index;
+		if (index == null)
+			_index = index = new TagIndex(_wm);
+		return index;
+	}
+
+	private GroupKeyIndex groupKeyIndex(int pos, int groupTag, int keyTag) {
+		if (pos == TagIndex.NOT_FOUND || _wm.getFields(pos).getType() != ft_msg)
+			return null;
+		// indexes are immutable, racy update at worst builds one once more
+		GroupKeyIndex[] indexes = _groupKeyIndexes;
+		if (indexes != null) {
+			for (GroupKeyIndex index : indexes) {
+				if (index.matches(groupTag, keyTag))
+					return index;
+			}
+		}
+		GroupKeyIndex index = new GroupKeyIndex(_wm.getFields(pos), keyTag);
+		indexes = indexes == null ? new GroupKeyIndex[1] : Arrays.copyOf(indexes, indexes.length + 1);
+		indexes[indexes.length - 1] = index;
+		_groupKeyIndexes = indexes;
+		return index;
+	}
+
+	/**
+	 * Finds the first item with matching key field among items of all groups with the tag
+	 */
+	private UFEMessage findRepeatedGroupItem(int groupTag, int keyTag, Predicate<UFEField> key) {
+		List<UFEMessage> items = findGroup(groupTag);
+		if (items != null) {
+			for (UFEMessage item : items) {
+				UFEField keyField = GroupKeyIndex.keyField(item._wm, keyTag);
+				if (keyField != null && key.test(keyField))
+					return item;
+			}
+		}
+		return null;
+	}
+
+	private UFEMessage groupItem(int pos, int item) {
+		return item == GroupKeyIndex.NOT_FOUND ? null : groupItems(pos).get(item);
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private List<UFEMessage> groupItems(int pos) {
+		List<UFEMessage>[] groupItems = _groupItems;
+		if (groupItems == null)
+			_groupItems = groupItems = (List<UFEMessage>[]) new List[_wm.getFieldsCount()];
+		List<UFEMessage> items = groupItems[pos];
+		if (items == null) {
+			UFEField field = _wm.getFields(pos);
+			UFEMessage[] msgs = new UFEMessage[field.getMvalCount()];
+			for (int i = 0; i < msgs.length; ++i)
+				msgs[i] = new UFEMessage(field.getMval(i), _internCache);
+			groupItems[pos] = items = Arrays.asList(msgs);
+		}
+		return items;
 	}
 
 	private void remapWireMessage() {
-		for(UFEField field: _wm.getFieldsList())
-			remapField(field);
+		_fields = new HashMap<>();
+		_groups = new HashMap<>();
+		for (int i = 0; i < _wm.getFieldsCount(); ++i) {
+			UFEField field = _wm.getFields(i);
+			if (field.getType() == ft_msg)
+				_groups.computeIfAbsent(field.getTag(), tag -> new ArrayList<>()).addAll(groupItems(i));
+			_fields.put(field.getTag(), field);
+		}
+	}
+
+	private void ensureMapped() {
+		if (_mapped)
+			return;
+		synchronized (this) {
+			if (!_mapped) {
+				remapWireMessage();
+				_mapped = true;
+			}
+		}
 	}
 }
@@ -0,0 +1,131 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.nio.ByteBuffer;
+
+import static com.fix8mt.ufe.Ufeapi.UFEField;
+import static com.fix8mt.ufe.Ufeapi.WireMessage;
+import static com.fix8mt.ufe.ufeedclient.WireReader.*;
+
+/**
+ * Tag-filtered WireMessage decoder. Header is always decoded; of the fields, only those with
+ * a tag from the filter are materialized as UFEField. Other fields, including whole groups, are
+ * skipped by their length without being parsed. Decoded message contains matching fields only,
+ * in their frame order, so findField()/findGroup() of any other tag return null.
+ * Decoder is not thread safe; use one decoder per thread.
+ * {@code
+ *	UFEMessageDecoder decoder = new UFEMessageDecoder(ClOrdID.tag, OrderID.tag, OrdStatus.tag,
+ *		ExecType.tag, CumQty.tag, AvgPx.tag);
+ *	UFEMessage er = decoder.decode(frame);
+ * }
+ */
+public final class UFEMessageDecoder {
+	private final TagIndex _tags;
+	private final WireReader _reader = new WireReader();
+
+	/**
+	 * Constructs decoder
+	 * @param tags tags of fields to decode
+	 */
+	public UFEMessageDecoder(int... tags) {
+		_tags = new TagIndex(tags);
+	}
+
+	/**
+	 * Checks whether field with given tag is decoded
+	 * @param tag tag to check
+	 * @return true if field is decoded
+	 */
+	public boolean accepts(int tag) {
+		return _tags.contains(tag);
+	}
+
+	/**
+	 * Decodes whole byte array
+	 * @param frame encoded WireMessage
+	 * @return message with header and matching fields
+	 * @throws InvalidProtocolBufferException thrown if frame is malformed
+	 */
+	public UFEMessage decode(byte[] frame) throws InvalidProtocolBufferException {
+		return UFEMessage.wrap(decodeWireMessage(frame));
+	}
+
+	/**
+	 * Decodes byte array range
+	 * @param frame array containing encoded WireMessage
+	 * @param offset message offset
+	 * @param length message length
+	 * @return message with header and matching fields
+	 * @throws InvalidProtocolBufferException thrown if frame is malformed
+	 */
+	public UFEMessage decode(byte[] frame, int offset, int length) throws InvalidProtocolBufferException {
+		_reader.wrap(frame, offset, length);
+		return UFEMessage.wrap(decode());
+	}
+
+	/**
+	 * Decodes ByteBuffer range between its position and limit. Buffer position is not changed.
+	 * @param frame buffer containing encoded WireMessage
+	 * @return message with header and matching fields
+	 * @throws InvalidProtocolBufferException thrown if frame is malformed
+	 */
+	public UFEMessage decode(ByteBuffer frame) throws InvalidProtocolBufferException {
+		_reader.wrap(frame);
+		return UFEMessage.wrap(decode());
+	}
+
+	WireMessage decodeWireMessage(byte[] frame) throws InvalidProtocolBufferException {
+		_reader.wrap(frame, 0, frame.length);
+		return decode();
+	}
+
+	private WireMessage decode() throws InvalidProtocolBufferException {
+		try {
+			WireMessage.Builder wmb = WireMessage.newBuilder();
+			while (_reader.hasRemaining()) {
+				int key = _reader.readKey();
+				switch (key) {
+					case WireMessage.NAME_FIELD_NUMBER << 3 | WT_LENGTH: {
+						int length = _reader.readLength();
+						wmb.setNameBytes(_reader.bytes(_reader.position(), length));
+						_reader.position(_reader.position() + length);
+						break;
+					}
+					case WireMessage.LONGNAME_FIELD_NUMBER << 3 | WT_LENGTH: {
+						int length = _reader.readLength();
+						wmb.setLongnameBytes(_reader.bytes(_reader.position(), length));
+						_reader.position(_reader.position() + length);
+						break;
+					}
+					case WireMessage.SEQ_FIELD_NUMBER << 3 | WT_VARINT:
+						wmb.setSeq(_reader.readVarint32());
+						break;
+					case WireMessage.TYPE_FIELD_NUMBER << 3 | WT_VARINT:
+						wmb.setTypeValue(_reader.readVarint32());
+						break;
+					case WireMessage.SERVICE_ID_FIELD_NUMBER << 3 | WT_VARINT:
+						wmb.setServiceId(_reader.readVarint32());
+						break;
+					case WireMessage.SUBSERVICE_ID_FIELD_NUMBER << 3 | WT_VARINT:
+						wmb.setSubserviceId(_reader.readVarint32());
+						break;
+					case WireMessage.FIELDS_FIELD_NUMBER << 3 | WT_LENGTH: {
+						int length = _reader.readLength();
+						int start = _reader.position();
+						if (_tags.contains(_reader.fieldTag(start, start + length)))
+							wmb.addFields(_reader.parse(UFEField.parser(), start, length));
+						_reader.position(start + length);
+						break;
+					}
+					default:
+						_reader.skip(key & 7);
+						break;
+				}
+			}
+			return wmb.build();
+		} finally {
+			_reader.reset();
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static com.fix8mt.ufe.Ufeapi.WireMessage;
+import static com.fix8mt.ufe.ufeedclient.WireReader.*;
+
+/**
+ * Reusable WireMessage header peek. Reads name, long name, seq, type, service id and subservice id
+ * from the frame prefix and stops at the first field, so the cost does not depend on message size.
+ * Name comparisons do not allocate. Frame content must not change while header is in use.
+ * {@code
+ *	UFEMessageHeader header = new UFEMessageHeader();
+ *	if (header.peek(frame).nameEquals(MsgType.EXECUTIONREPORT))
+ *		...
+ * }
+ */
+public final class UFEMessageHeader {
+	private final WireReader _reader = new WireReader();
+	private int _nameOffset, _nameLength;
+	private int _longNameOffset, _longNameLength;
+	private int _seq, _type, _serviceId, _subserviceId;
+
+	/**
+	 * Peeks header of whole byte array
+	 * @param frame encoded WireMessage
+	 * @return self
+	 * @throws InvalidProtocolBufferException thrown if header is malformed
+	 */
+	public UFEMessageHeader peek(byte[] frame) throws InvalidProtocolBufferException {
+		return peek(frame, 0, frame.length);
+	}
+
+	/**
+	 * Peeks header of byte array range
+	 * @param frame array containing encoded WireMessage
+	 * @param offset message offset
+	 * @param length message length
+	 * @return self
+	 * @throws InvalidProtocolBufferException thrown if header is malformed
+	 */
+	public UFEMessageHeader peek(byte[] frame, int offset, int length) throws InvalidProtocolBufferException {
+		_reader.wrap(frame, offset, length);
+		return scan();
+	}
+
+	/**
+	 * Peeks header of ByteBuffer range between its position and limit. Buffer position is not changed.
+	 * @param frame buffer containing encoded WireMessage
+	 * @return self
+	 * @throws InvalidProtocolBufferException thrown if header is malformed
+	 */
+	public UFEMessageHeader peek(ByteBuffer frame) throws InvalidProtocolBufferException {
+		_reader.wrap(frame);
+		return scan();
+	}
+
+	/**
+	 * Name getter, allocates String
+	 * @return message name
+	 */
+	public String getName() {
+		return string(_nameOffset, _nameLength);
+	}
+
+	/**
+	 * Longname getter, allocates String
+	 * @return message long name
+	 */
+	public String getLongName() {
+		return string(_longNameOffset, _longNameLength);
+	}
+
+	/**
+	 * Compares name with given value without allocating
+	 * @param name value to compare with
+	 * @return true if message name equals to value
+	 */
+	public boolean nameEquals(CharSequence name) {
+		return contentEquals(_nameOffset, _nameLength, name);
+	}
+
+	/**
+	 * Compares long name with given value without allocating
+	 * @param longName value to compare with
+	 * @return true if message long name equals to value
+	 */
+	public boolean longNameEquals(CharSequence longName) {
+		return contentEquals(_longNameOffset, _longNameLength, longName);
+	}
+
+	/**
+	 * Seq getter
+	 * @return seq number
+	 */
+	public int getSeq() {
+		return _seq;
+	}
+
+	/**
+	 * Type value getter
+	 * @return message type number
+	 */
+	public int getTypeValue() {
+		return _type;
+	}
+
+	/**
+	 * Type getter
+	 * @return message type
+	 */
+	public WireMessage.Type getType() {
+		WireMessage.Type type = WireMessage.Type.forNumber(_type);
+		return type == null ? WireMessage.Type.UNRECOGNIZED : type;
+	}
+
+	/**
+	 * Service id getter
+	 * @return message service id
+	 */
+	public int getServiceId() {
+		return _serviceId;
+	}
+
+	/**
+	 * Subservice id getter
+	 * @return message subservice id
+	 */
+	public int getSubserviceId() {
+		return _subserviceId;
+	}
+
+	private UFEMessageHeader scan() throws InvalidProtocolBufferException {
+		_nameLength = _longNameLength = 0;
+		_seq = _type = _serviceId = _subserviceId = 0;
+		// encoders write header before fields, so header is complete at the first field
+		while (_reader.hasRemaining()) {
+			int key = _reader.readKey();
+			switch (key) {
+				case WireMessage.NAME_FIELD_NUMBER << 3 | WT_LENGTH:
+					_nameLength = _reader.readLength();
+					_nameOffset = _reader.position();
+					_reader.position(_nameOffset + _nameLength);
+					break;
+				case WireMessage.LONGNAME_FIELD_NUMBER << 3 | WT_LENGTH:
+					_longNameLength = _reader.readLength();
+					_longNameOffset = _reader.position();
+					_reader.position(_longNameOffset + _longNameLength);
+					break;
+				case WireMessage.SEQ_FIELD_NUMBER << 3 | WT_VARINT:
+					_seq = _reader.readVarint32();
+					break;
+				case WireMessage.TYPE_FIELD_NUMBER << 3 | WT_VARINT:
+					_type = _reader.readVarint32();
+					break;
+				case WireMessage.SERVICE_ID_FIELD_NUMBER << 3 | WT_VARINT:
+					_serviceId = _reader.readVarint32();
+					break;
+				case WireMessage.SUBSERVICE_ID_FIELD_NUMBER << 3 | WT_VARINT:
+					_subserviceId = _reader.readVarint32();
+					break;
+				case WireMessage.FIELDS_FIELD_NUMBER << 3 | WT_LENGTH:
+					return this;
+				default:
+					_reader.skip(key & 7);
+					break;
+			}
+		}
+		return this;
+	}
+
+	private boolean contentEquals(int offset, int length, CharSequence value) {
+		int n = value.length();
+		if (n > length)
+			return false;
+		for (int i = 0; i < n; ++i) {
+			char c = value.charAt(i);
+			if (c >= 0x80)
+				return string(offset, length).contentEquals(value);
+			if (_reader.byteAt(offset + i) != (byte) c)
+				return false;
+		}
+		return n == length;
+	}
+
+	private String string(int offset, int length) {
+		if (length == 0)
+			return "";
+		byte[] bytes = new byte[length];
+		_reader.copy(offset, bytes, 0, length);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,599 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import com.fix8mt.ufe.Ufeapi.UFEField.UFEFieldLocation;
+import com.fix8mt.ufe.Ufeapi.UFEField.UFEFieldType;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static com.fix8mt.ufe.Ufeapi.UFEField;
+import static com.fix8mt.ufe.Ufeapi.WireMessage;
+import static com.fix8mt.ufe.ufeedclient.WireReader.*;
+
+/**
+ * Zero-copy flyweight over encoded WireMessage frame. Reads header and fields straight from
+ * received byte[] or ByteBuffer, without WireMessage.parseFrom. A view is reusable: wrap()
+ * it over the next frame. Group items (mval) are read through nested views over sub-ranges
+ * of the same frame. Frame content must not change while view is in use.
+ * {@code
+ *	UFEMessageView view = new UFEMessageView();
+ *	UFEMessageView item = new UFEMessageView();
+ *	view.wrap(frame);
+ *	if (view.findField(OrderQty.tag))
+ *		qty = view.getFieldFval();
+ *	if (view.findField(NoAllocs.tag))
+ *		for (int i = 0; i < view.getFieldMvalCount(); ++i)
+ *			if (view.getFieldMval(i, item) && item.findField(AllocAccount.tag))
+ *				...
+ * }
+ */
+public final class UFEMessageView {
+	private final WireReader _reader = new WireReader();
+	private int _start, _end;
+	// header
+	private int _nameOffset, _nameLength;
+	private int _longNameOffset, _longNameLength;
+	private int _seq, _type, _serviceId, _subserviceId;
+	private int _fieldsCount;
+	// field cursor
+	private int _next;
+	private int _fieldStart = -1, _fieldEnd;
+	private int _fieldLocation, _fieldType, _fieldTag;
+	private long _fieldIval;
+	private double _fieldFval;
+	private boolean _fieldBval;
+	private int _svalOffset, _svalLength;
+	private int _mvalCount;
+	private int _mvalIndex, _mvalPos;
+	// group item view of accept()
+	private UFEMessageView _item;
+
+	/**
+	 * Wraps whole byte array
+	 * @param frame encoded WireMessage
+	 * @return self
+	 * @throws InvalidProtocolBufferException thrown if frame is malformed
+	 */
+	public UFEMessageView wrap(byte[] frame) throws InvalidProtocolBufferException {
+		return wrap(frame, 0, frame.length);
+	}
+
+	/**
+	 * Wraps byte array range
+	 * @param frame array containing encoded WireMessage
+	 * @param offset message offset
+	 * @param length message length
+	 * @return self
+	 * @throws InvalidProtocolBufferException thrown if frame is malformed
+	 */
+	public UFEMessageView wrap(byte[] frame, int offset, int length) throws InvalidProtocolBufferException {
+		_reader.wrap(frame, offset, length);
+		return scan();
+	}
+
+	/**
+	 * Wraps ByteBuffer range between its position and limit. Buffer position is not changed.
+	 * @param frame buffer containing encoded WireMessage
+	 * @return self
+	 * @throws InvalidProtocolBufferException thrown if frame is malformed
+	 */
+	public UFEMessageView wrap(ByteBuffer frame) throws InvalidProtocolBufferException {
+		_reader.wrap(frame);
+		return scan();
+	}
+
+	/**
+	 * Releases wrapped frame
+	 * @return self
+	 */
+	public UFEMessageView reset() {
+		_reader.reset();
+		_start = _end = 0;
+		_nameLength = _longNameLength = 0;
+		_seq = _type = _serviceId = _subserviceId = 0;
+		_fieldsCount = 0;
+		_next = 0;
+		_fieldStart = -1;
+		return this;
+	}
+
+	/**
+	 * Wrapped message offset in the backing frame
+	 * @return message offset
+	 */
+	public int getOffset() {
+		return _start;
+	}
+
+	/**
+	 * Wrapped message length
+	 * @return message length
+	 */
+	public int getLength() {
+		return _end - _start;
+	}
+
+	/**
+	 * Name getter, allocates String
+	 * @return message name
+	 */
+	public String getName() {
+		return string(_nameOffset, _nameLength);
+	}
+
+	/**
+	 * Longname getter, allocates String
+	 * @return message long name
+	 */
+	public String getLongName() {
+		return string(_longNameOffset, _longNameLength);
+	}
+
+	/**
+	 * Seq getter
+	 * @return seq number
+	 */
+	public int getSeq() {
+		return _seq;
+	}
+
+	/**
+	 * Type value getter
+	 * @return message type number
+	 */
+	public int getTypeValue() {
+		return _type;
+	}
+
+	/**
+	 * Type getter
+	 * @return message type
+	 */
+	public WireMessage.Type getType() {
+		WireMessage.Type type = WireMessage.Type.forNumber(_type);
+		return type == null ? WireMessage.Type.UNRECOGNIZED : type;
+	}
+
+	/**
+	 * Service id getter
+	 * @return message service id
+	 */
+	public int getServiceId() {
+		return _serviceId;
+	}
+
+	/**
+	 * Subservice id getter
+	 * @return message subservice id
+	 */
+	public int getSubserviceId() {
+		return _subserviceId;
+	}
+
+	/**
+	 * Number of fields in message
+	 * @return fields count
+	 */
+	public int getFieldsCount() {
+		return _fieldsCount;
+	}
+
+	/**
+	 * Moves field cursor before the first field
+	 * @return self
+	 */
+	public UFEMessageView rewind() {
+		_next = _start;
+		_fieldStart = -1;
+		return this;
+	}
+
+	/**
+	 * Moves field cursor to the next field
+	 * @return true if positioned on a field, false when no more fields
+	 * @throws InvalidProtocolBufferException thrown if field is malformed
+	 */
+	public boolean nextField() throws InvalidProtocolBufferException {
+		_reader.wrap(_reader, _next, _end);
+		while (_reader.hasRemaining()) {
+			int key = _reader.readKey();
+			if (key >>> 3 == WireMessage.FIELDS_FIELD_NUMBER && (key & 7) == WT_LENGTH) {
+				int length = _reader.readLength();
+				int start = _reader.position();
+				_next = start + length;
+				parseField(start, _next);
+				return true;
+			}
+			_reader.skip(key & 7);
+		}
+		_next = _end;
+		_fieldStart = -1;
+		return false;
+	}
+
+	/**
+	 * Positions field cursor on the last field with given tag, the one UFEMessage.findField() returns
+	 * @param tag tag to find
+	 * @return true if found, otherwise false and cursor is past the last field
+	 * @throws InvalidProtocolBufferException thrown if field is malformed
+	 */
+	public boolean findField(int tag) throws InvalidProtocolBufferException {
+		// only field tags are read while scanning, the found field is parsed
+		int found = -1, foundEnd = 0;
+		_reader.wrap(_reader, _start, _end);
+		while (_reader.hasRemaining()) {
+			int key = _reader.readKey();
+			if (key >>> 3 == WireMessage.FIELDS_FIELD_NUMBER && (key & 7) == WT_LENGTH) {
+				int length = _reader.readLength();
+				int start = _reader.position();
+				_reader.position(start + length);
+				if (_reader.fieldTag(start, start + length) == tag) {
+					found = start;
+					foundEnd = start + length;
+				}
+				continue;
+			}
+			_reader.skip(key & 7);
+		}
+		if (found >= 0) {
+			_next = foundEnd;
+			parseField(found, foundEnd);
+			return true;
+		}
+		_next = _end;
+		_fieldStart = -1;
+		return false;
+	}
+
+	/**
+	 * Checks whether cursor is positioned on a field
+	 * @return true if positioned on a field
+	 */
+	public boolean hasField() {
+		return _fieldStart >= 0;
+	}
+
+	/**
+	 * Current field tag. Field accessors are valid while hasField() is true.
+	 * @return field tag
+	 */
+	public int getFieldTag() {
+		return _fieldTag;
+	}
+
+	/**
+	 * Current field type value
+	 * @return field type number
+	 */
+	public int getFieldTypeValue() {
+		return _fieldType;
+	}
+
+	/**
+	 * Current field type
+	 * @return field type
+	 */
+	public UFEFieldType getFieldType() {
+		UFEFieldType type = UFEFieldType.forNumber(_fieldType);
+		return type == null ? UFEFieldType.UNRECOGNIZED : type;
+	}
+
+	/**
+	 * Current field location value
+	 * @return field location number
+	 */
+	public int getFieldLocationValue() {
+		return _fieldLocation;
+	}
+
+	/**
+	 * Current field location
+	 * @return field location
+	 */
+	public UFEFieldLocation getFieldLocation() {
+		UFEFieldLocation location = UFEFieldLocation.forNumber(_fieldLocation);
+		return location == null ? UFEFieldLocation.UNRECOGNIZED : location;
+	}
+
+	/**
+	 * Current field ival - ft_int, ft_time, ft_status value, ft_double precision or ft_msg item count
+	 * @return field ival
+	 */
+	public long getFieldIval() {
+		return _fieldIval;
+	}
+
+	/**
+	 * Current field fval - ft_double value
+	 * @return field fval
+	 */
+	public double getFieldFval() {
+		return _fieldFval;
+	}
+
+	/**
+	 * Current field bval - ft_bool value
+	 * @return field bval
+	 */
+	public boolean getFieldBval() {
+		return _fieldBval;
+	}
+
+	/**
+	 * Current field ft_char value
+	 * @return first sval byte as char or '\0' if sval is empty
+	 */
+	public char getFieldChar() {
+		return _svalLength == 0 ? '\0' : (char) (_reader.byteAt(_svalOffset) & 0xFF);
+	}
+
+	/**
+	 * Current field sval length
+	 * @return sval length in bytes
+	 */
+	public int getFieldSvalLength() {
+		return _svalLength;
+	}
+
+	/**
+	 * Current field sval offset in the backing frame
+	 * @return sval offset
+	 */
+	public int getFieldSvalOffset() {
+		return _svalOffset;
+	}
+
+	/**
+	 * Returns byte of current field sval
+	 * @param index byte index in sval
+	 * @return sval byte
+	 */
+	public byte getFieldSvalByte(int index) {
+		if (index < 0 || index >= _svalLength)
+			throw new IndexOutOfBoundsException(String.format("index=%d sval length=%d", index, _svalLength));
+		return _reader.byteAt(_svalOffset + index);
+	}
+
+	/**
+	 * Copies current field sval
+	 * @param dst destination array
+	 * @param offset destination offset
+	 * @return number of bytes copied
+	 */
+	public int getFieldSval(byte[] dst, int offset) {
+		_reader.copy(_svalOffset, dst, offset, _svalLength);
+		return _svalLength;
+	}
+
+	/**
+	 * Copies current field sval to buffer position
+	 * @param dst destination buffer
+	 * @return number of bytes copied
+	 */
+	public int getFieldSval(ByteBuffer dst) {
+		_reader.copy(_svalOffset, dst, _svalLength);
+		return _svalLength;
+	}
+
+	/**
+	 * Current field sval, allocates ByteString
+	 * @return field sval
+	 */
+	public ByteString getFieldSval() {
+		byte[] bytes = new byte[_svalLength];
+		getFieldSval(bytes, 0);
+		return ByteString.copyFrom(bytes);
+	}
+
+	/**
+	 * Current double or int field value as decimal, double field precision is used as scale
+	 * @param dst decimal to set
+	 * @return dst or null if field is not double or int
+	 */
+	public UFEDecimal getFieldDecimal(UFEDecimal dst) {
+		return UFEMessage.decimal(_fieldType, _fieldIval, _fieldFval, dst);
+	}
+
+	/**
+	 * Current field sval as canonical String of intern cache, decoded only if cache does not
+	 * accept field tag or has not seen the value yet
+	 * @param cache intern cache
+	 * @return field sval string
+	 */
+	public String getFieldString(StringInternCache cache) {
+		return cache.accepts(_fieldTag) ? _reader.intern(_svalOffset, _svalLength, cache) : getFieldString();
+	}
+
+	/**
+	 * Wraps ASCII view over current field sval bytes in the frame, does not copy them
+	 * @param dst view to wrap
+	 * @return dst
+	 */
+	public AsciiSequence getFieldAscii(AsciiSequence dst) {
+		return _reader.ascii(_svalOffset, _svalLength, dst);
+	}
+
+	/**
+	 * Current field sval decoded as UTF-8, allocates String
+	 * @return field sval string
+	 */
+	public String getFieldString() {
+		return string(_svalOffset, _svalLength);
+	}
+
+	/**
+	 * Number of group items (mval) of current field
+	 * @return group item count
+	 */
+	public int getFieldMvalCount() {
+		return _mvalCount;
+	}
+
+	/**
+	 * Wraps item view over group item (mval) of current field. Sequential access is O(1).
+	 * @param index group item index
+	 * @param item view to wrap over the group item
+	 * @return true if item exists, otherwise false
+	 * @throws InvalidProtocolBufferException thrown if group item is malformed
+	 */
+	public boolean getFieldMval(int index, UFEMessageView item) throws InvalidProtocolBufferException {
+		if (_fieldStart < 0 || index < 0 || index >= _mvalCount)
+			return false;
+		if (index < _mvalIndex) {
+			_mvalIndex = 0;
+			_mvalPos = _fieldStart;
+		}
+		_reader.wrap(_reader, _mvalPos, _fieldEnd);
+		while (_reader.hasRemaining()) {
+			int key = _reader.readKey();
+			if (key >>> 3 == UFEField.MVAL_FIELD_NUMBER && (key & 7) == WT_LENGTH) {
+				int length = _reader.readLength();
+				int start = _reader.position();
+				if (_mvalIndex++ == index) {
+					_mvalPos = start + length;
+					item._reader.wrap(_reader, start, start + length);
+					item.scan();
+					return true;
+				}
+				_reader.position(start + length);
+			} else {
+				_reader.skip(key & 7);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Walks wrapped message streaming its header, fields and group items to visitor,
+	 * depth first and in frame order. Moves field cursor.
+	 * @param visitor visitor to call
+	 * @throws InvalidProtocolBufferException thrown if frame is malformed
+	 */
+	public void accept(UFEMessageVisitor visitor) throws InvalidProtocolBufferException {
+		accept(visitor, 0);
+	}
+
+	private void accept(UFEMessageVisitor visitor, int depth) throws InvalidProtocolBufferException {
+		visitor.onMessageStart(depth, this);
+		rewind();
+		while (nextField()) {
+			if (_fieldType != UFEFieldType.ft_msg_VALUE) {
+				visitor.onField(depth, this);
+				continue;
+			}
+			visitor.onGroupStart(depth, this);
+			if (_item == null)
+				_item = new UFEMessageView();
+			for (int i = 0; i < _mvalCount; ++i) {
+				getFieldMval(i, _item);
+				_item.accept(visitor, depth + 1);
+			}
+			_item.reset();
+			visitor.onGroupEnd(depth, this);
+		}
+		visitor.onMessageEnd(depth, this);
+	}
+
+	private UFEMessageView scan() throws InvalidProtocolBufferException {
+		_start = _next = _reader.position();
+		_end = _reader.limit();
+		_nameLength = _longNameLength = 0;
+		_seq = _type = _serviceId = _subserviceId = 0;
+		_fieldsCount = 0;
+		_fieldStart = -1;
+		while (_reader.hasRemaining()) {
+			int key = _reader.readKey();
+			switch (key) {
+				case WireMessage.NAME_FIELD_NUMBER << 3 | WT_LENGTH:
+					_nameLength = _reader.readLength();
+					_nameOffset = _reader.position();
+					_reader.position(_nameOffset + _nameLength);
+					break;
+				case WireMessage.LONGNAME_FIELD_NUMBER << 3 | WT_LENGTH:
+					_longNameLength = _reader.readLength();
+					_longNameOffset = _reader.position();
+					_reader.position(_longNameOffset + _longNameLength);
+					break;
+				case WireMessage.SEQ_FIELD_NUMBER << 3 | WT_VARINT:
+					_seq = _reader.readVarint32();
+					break;
+				case WireMessage.TYPE_FIELD_NUMBER << 3 | WT_VARINT:
+					_type = _reader.readVarint32();
+					break;
+				case WireMessage.SERVICE_ID_FIELD_NUMBER << 3 | WT_VARINT:
+					_serviceId = _reader.readVarint32();
+					break;
+				case WireMessage.SUBSERVICE_ID_FIELD_NUMBER << 3 | WT_VARINT:
+					_subserviceId = _reader.readVarint32();
+					break;
+				case WireMessage.FIELDS_FIELD_NUMBER << 3 | WT_LENGTH:
+					int length = _reader.readLength();
+					_reader.position(_reader.position() + length);
+					++_fieldsCount;
+					break;
+				default:
+					_reader.skip(key & 7);
+					break;
+			}
+		}
+		return this;
+	}
+
+	private void parseField(int start, int end) throws InvalidProtocolBufferException {
+		_fieldStart = _mvalPos = start;
+		_fieldEnd = end;
+		_fieldLocation = _fieldType = _fieldTag = 0;
+		_fieldIval = 0;
+		_fieldFval = 0;
+		_fieldBval = false;
+		_svalOffset = _svalLength = 0;
+		_mvalCount = _mvalIndex = 0;
+		_reader.wrap(_reader, start, end);
+		while (_reader.hasRemaining()) {
+			int key = _reader.readKey();
+			switch (key) {
+				case UFEField.LOCATION_FIELD_NUMBER << 3 | WT_VARINT:
+					_fieldLocation = _reader.readVarint32();
+					break;
+				case UFEField.TYPE_FIELD_NUMBER << 3 | WT_VARINT:
+					_fieldType = _reader.readVarint32();
+					break;
+				case UFEField.TAG_FIELD_NUMBER << 3 | WT_VARINT:
+					_fieldTag = _reader.readVarint32();
+					break;
+				case UFEField.IVAL_FIELD_NUMBER << 3 | WT_VARINT:
+					_fieldIval = _reader.readVarint64();
+					break;
+				case UFEField.FVAL_FIELD_NUMBER << 3 | WT_FIXED64:
+					_fieldFval = Double.longBitsToDouble(_reader.readFixed64());
+					break;
+				case UFEField.BVAL_FIELD_NUMBER << 3 | WT_VARINT:
+					_fieldBval = _reader.readVarint64() != 0;
+					break;
+				case UFEField.SVAL_FIELD_NUMBER << 3 | WT_LENGTH:
+					_svalLength = _reader.readLength();
+					_svalOffset = _reader.position();
+					_reader.position(_svalOffset + _svalLength);
+					break;
+				case UFEField.MVAL_FIELD_NUMBER << 3 | WT_LENGTH:
+					int length = _reader.readLength();
+					_reader.position(_reader.position() + length);
+					++_mvalCount;
+					break;
+				default:
+					_reader.skip(key & 7);
+					break;
+			}
+		}
+	}
+
+	private String string(int offset, int length) {
+		if (length == 0)
+			return "";
+		byte[] bytes = new byte[length];
+		_reader.copy(offset, bytes, 0, length);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,61 @@
+package com.fix8mt.ufe.ufeedclient;
+
+/**
+ * Streaming (SAX-style) message visitor. UFEMessageView.accept() calls it while walking encoded
+ * frame, so large responses (dictionary, session cache, config and service lists) can be consumed
+ * without building WireMessage and UFEMessage trees. All callbacks get the view of the message being
+ * walked; it is valid during the callback only and its field cursor shall not be moved.
+ * {@code
+ *	uc.request(uc.createMessage()
+ *		.setLongName("service_list")
+ *		.setType(st_system)
+ *		.setServiceId(UFE_CMD_SERVICE_LIST)
+ *		.addField(UFE_CMD, UFE_CMD_SERVICE_LIST, fl_system), new UFEMessageVisitor() {
+ *			public void onField(int depth, UFEMessageView message) {
+ *				if (depth == 1 && message.getFieldTag() == UFE_SERVICE_NAME)
+ *					services.add(message.getFieldString());
+ *			}
+ *		});
+ * }
+ */
+public interface UFEMessageVisitor {
+	/**
+	 * Called when message or group item starts, message header getters are valid
+	 * @param depth 0 for top message, N for item of N-th nested group
+	 * @param message message view
+	 */
+	default void onMessageStart(int depth, UFEMessageView message) {
+	}
+
+	/**
+	 * Called for every non-group field, message view is positioned on the field
+	 * @param depth depth of message the field belongs to
+	 * @param message message view
+	 */
+	default void onField(int depth, UFEMessageView message) {
+	}
+
+	/**
+	 * Called when group field starts, before its items. Message view is positioned on the group field.
+	 * @param depth depth of message the group belongs to
+	 * @param message message view
+	 */
+	default void onGroupStart(int depth, UFEMessageView message) {
+	}
+
+	/**
+	 * Called when group field ends, after its items. Message view is positioned on the group field.
+	 * @param depth depth of message the group belongs to
+	 * @param message message view
+	 */
+	default void onGroupEnd(int depth, UFEMessageView message) {
+	}
+
+	/**
+	 * Called when message or group item ends
+	 * @param depth 0 for top message, N for item of N-th nested group
+	 * @param message message view
+	 */
+	default void onMessageEnd(int depth, UFEMessageView message) {
+	}
+}
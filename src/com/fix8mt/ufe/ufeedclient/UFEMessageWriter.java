@@ -0,0 +1,1174 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import com.fix8mt.ufe.Ufeapi.UFEField.UFEFieldLocation;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.UUID;
+
+import static com.fix8mt.ufe.Ufeapi.UFEField;
+import static com.fix8mt.ufe.Ufeapi.UFEField.UFEFieldType.*;
+import static com.fix8mt.ufe.Ufeapi.WireMessage;
+import static com.fix8mt.ufe.ufeedclient.WireReader.*;
+
+/**
+ * Allocation-free UFE message encoder. Serializes header and fields straight into a reusable
+ * heap or direct ByteBuffer, producing exactly the bytes WireMessage.toByteArray() would produce
+ * for the same content, without building WireMessage/UFEField objects.
+ * Header setters shall be called before the first field of a message (or group item).
+ * When composing is done, finish() flips the buffer ready to send; reset() rewinds it for the next message.
+ * {@code
+ *	UFEMessageWriter nos = new UFEMessageWriter(4096)
+ *		.setLongName("NewOrderSingle")
+ *		.setType(st_fixmsg)
+ *		.setServiceId(1)
+ *		.setName(MsgType.NEWORDERSINGLE)
+ *		.addField(ClOrdID.tag, "123", fl_body)
+ *		.addField(OrdType.tag, OrdType.LIMIT, fl_body)
+ *		.beginGroup(NoAllocs.tag, fl_body)
+ *			.beginItem()
+ *				.setLongName("NoAlloc")
+ *				.addField(AllocAccount.tag, "ABC", fl_body)
+ *			.endItem()
+ *		.endGroup();
+ *	uc.request(nos);
+ * }
+ */
+public final class UFEMessageWriter {
+	static final int MAX_DEPTH = 32;
+
+	private static final int FIELDS_KEY = WireMessage.FIELDS_FIELD_NUMBER << 3 | WT_LENGTH;
+	private static final int MVAL_KEY = UFEField.MVAL_FIELD_NUMBER << 3 | WT_LENGTH;
+
+	private ByteBuffer _buffer;
+	private int _start;
+	private int _limit;
+	private boolean _finished;
+	private byte[] _scratch = new byte[0];
+	// top message copied with copyFrom(), its header setters patch encoded header
+	private boolean _copied;
+	// end of encoded message while a record is patched in its middle, -1 if record is appended
+	private int _patchEnd = -1;
+	private UFEMessageView _view;
+
+	// open length delimited records, even depth - group field, odd depth - group item
+	private int _depth;
+	private final int[] _lengthPos = new int[MAX_DEPTH];
+	private final int[] _ivalPos = new int[MAX_DEPTH];
+	private final int[] _ivalSize = new int[MAX_DEPTH];
+	private final int[] _itemCount = new int[MAX_DEPTH];
+
+	// message headers, level 0 - top message, level N - item of N-th nested group
+	private final CharSequence[] _names = new CharSequence[MAX_DEPTH / 2 + 1];
+	private final CharSequence[] _longNames = new CharSequence[MAX_DEPTH / 2 + 1];
+	private final int[] _seqs = new int[MAX_DEPTH / 2 + 1];
+	private final int[] _types = new int[MAX_DEPTH / 2 + 1];
+	private final int[] _serviceIds = new int[MAX_DEPTH / 2 + 1];
+	private final int[] _subserviceIds = new int[MAX_DEPTH / 2 + 1];
+	private final boolean[] _headerWritten = new boolean[MAX_DEPTH / 2 + 1];
+
+	/**
+	 * Constructs writer over its own direct buffer
+	 * @param capacity buffer capacity, the largest message size to encode
+	 */
+	public UFEMessageWriter(int capacity) {
+		this(ByteBuffer.allocateDirect(capacity));
+	}
+
+	/**
+	 * Constructs writer over caller owned buffer, writing from its position up to its limit
+	 * @param buffer buffer to write to
+	 */
+	public UFEMessageWriter(ByteBuffer buffer) {
+		wrap(buffer);
+	}
+
+	/**
+	 * Switches writer to caller owned buffer, writing from its position up to its limit
+	 * @param buffer buffer to write to
+	 * @return self
+	 */
+	public UFEMessageWriter wrap(ByteBuffer buffer) {
+		_buffer = buffer;
+		_start = buffer.position();
+		_limit = buffer.limit();
+		return reset();
+	}
+
+	/**
+	 * Rewinds writer to start composing new message in the same buffer
+	 * @return self
+	 */
+	public UFEMessageWriter reset() {
+		_buffer.limit(_limit);
+		_buffer.position(_start);
+		_finished = false;
+		_copied = false;
+		_depth = 0;
+		resetHeader(0);
+		return this;
+	}
+
+	/**
+	 * Resets writer and copies encoded message to it for patching. Header setters, setField(),
+	 * renameField() and removeField() then edit the copy in place, moving the rest of the message
+	 * only if the edited record changes its length; addField() appends fields. Note that
+	 * UFEedClient.request() appends session token, so copy again for every message to send.
+	 * {@code
+	 *	UFEMessageWriter cxl = pool.local()
+	 *		.copyFrom(order, 0, order.length)
+	 *		.setName(MsgType.ORDERCANCELREQUEST)
+	 *		.setLongName("OrderCancelRequest")
+	 *		.renameField(ClOrdID.tag, OrigClOrdID.tag)
+	 *		.setField(ClOrdID.tag, nextClOrdId(), fl_body)
+	 *		.removeField(Price.tag);
+	 *	uc.request(cxl);
+	 * }
+	 * @param frame array containing encoded message
+	 * @param offset message offset
+	 * @param length message length
+	 * @return self
+	 * @throws InvalidProtocolBufferException thrown if message is malformed
+	 */
+	public UFEMessageWriter copyFrom(byte[] frame, int offset, int length) throws InvalidProtocolBufferException {
+		if (_view == null)
+			_view = new UFEMessageView();
+		_view.wrap(frame, offset, length);
+		while (_view.nextField())
+			; // top level records must be well formed to be patched
+		reset();
+		_buffer.put(frame, offset, length);
+		_serviceIds[0] = _view.getServiceId();
+		_headerWritten[0] = true;
+		_copied = true;
+		_view.reset();
+		return this;
+	}
+
+	/**
+	 * Resets writer and encodes message to it for patching, see copyFrom(byte[], int, int)
+	 * @param msg message to copy
+	 * @return self
+	 */
+	public UFEMessageWriter copyFrom(UFEMessage msg) {
+		reset();
+		putMessage(msg.getWireMessage());
+		_copied = true;
+		return this;
+	}
+
+	/**
+	 * Returns underlying buffer
+	 * @return underlying buffer
+	 */
+	public ByteBuffer getBuffer() {
+		return _buffer;
+	}
+
+	/**
+	 * Number of bytes encoded so far
+	 * @return encoded length
+	 */
+	public int getEncodedLength() {
+		return (_finished ? _buffer.limit() : _buffer.position()) - _start;
+	}
+
+	/**
+	 * Checks whether all groups and group items are closed
+	 * @return true if writer is at top message level
+	 */
+	public boolean isTopLevel() {
+		return _depth == 0;
+	}
+
+	/**
+	 * Sets message name
+	 * @param name message name
+	 * @return self
+	 */
+	public UFEMessageWriter setName(CharSequence name) {
+		if (isCopiedHeader())
+			patchHeader(WireMessage.NAME_FIELD_NUMBER, name);
+		else
+			_names[headerLevel()] = name;
+		return this;
+	}
+
+	/**
+	 * Sets message long name
+	 * @param longName message long name
+	 * @return self
+	 */
+	public UFEMessageWriter setLongName(CharSequence longName) {
+		if (isCopiedHeader())
+			patchHeader(WireMessage.LONGNAME_FIELD_NUMBER, longName);
+		else
+			_longNames[headerLevel()] = longName;
+		return this;
+	}
+
+	/**
+	 * Sets seq number
+	 * @param seqNum seq number
+	 * @return self
+	 */
+	public UFEMessageWriter setSeq(int seqNum) {
+		if (isCopiedHeader())
+			patchHeader(WireMessage.SEQ_FIELD_NUMBER, seqNum & 0xFFFFFFFFL);
+		else
+			_seqs[headerLevel()] = seqNum;
+		return this;
+	}
+
+	/**
+	 * Sets message type
+	 * @param type message type
+	 * @return self
+	 */
+	public UFEMessageWriter setType(WireMessage.Type type) {
+		if (isCopiedHeader())
+			patchHeader(WireMessage.TYPE_FIELD_NUMBER, type.getNumber());
+		else
+			_types[headerLevel()] = type.getNumber();
+		return this;
+	}
+
+	/**
+	 * Sets service id
+	 * @param serviceId service id
+	 * @return self
+	 */
+	public UFEMessageWriter setServiceId(int serviceId) {
+		if (isCopiedHeader()) {
+			patchHeader(WireMessage.SERVICE_ID_FIELD_NUMBER, serviceId);
+			_serviceIds[0] = serviceId;
+		} else
+			_serviceIds[headerLevel()] = serviceId;
+		return this;
+	}
+
+	/**
+	 * Sets subservice id
+	 * @param subserviceId subservice id
+	 * @return self
+	 */
+	public UFEMessageWriter setSubserviceId(int subserviceId) {
+		if (isCopiedHeader())
+			patchHeader(WireMessage.SUBSERVICE_ID_FIELD_NUMBER, subserviceId);
+		else
+			_subserviceIds[headerLevel()] = subserviceId;
+		return this;
+	}
+
+	/**
+	 * Top message service id getter
+	 * @return top message service id
+	 */
+	public int getServiceId() {
+		return _serviceIds[0];
+	}
+
+	/**
+	 * Adds long field to message
+	 * @param tag field tag
+	 * @param val field value
+	 * @param loc field location
+	 * @return self
+	 */
+	public UFEMessageWriter addField(int tag, long val, UFEFieldLocation loc) {
+		putField(loc.getNumber(), ft_int_VALUE, tag, val, 0D, false, 0);
+		return this;
+	}
+
+	/**
+	 * Adds ByteString field to message
+	 * @param tag field tag
+	 * @param val field value
+	 * @param loc field location
+	 * @return self
+	 */
+	public UFEMessageWriter addField(int tag, ByteString val, UFEFieldLocation loc) {
+		putField(loc.getNumber(), ft_string_VALUE, tag, 0L, 0D, false, val.size());
+		putBytes(val);
+		return this;
+	}
+
+	/**
+	 * Adds byte array range field to message
+	 * @param tag field tag
+	 * @param val array containing field value
+	 * @param offset value offset
+	 * @param length value length
+	 * @param loc field location
+	 * @return self
+	 */
+	public UFEMessageWriter addField(int tag, byte[] val, int offset, int length, UFEFieldLocation loc) {
+		putField(loc.getNumber(), ft_string_VALUE, tag, 0L, 0D, false, length);
+		_buffer.put(val, offset, length);
+		return this;
+	}
+
+	/**
+	 * Adds String field to message, UTF-8 encoded
+	 * @param tag field tag
+	 * @param val field value
+	 * @param loc field location
+	 * @return self
+	 */
+	public UFEMessageWriter addField(int tag, CharSequence val, UFEFieldLocation loc) {
+		putField(loc.getNumber(), ft_string_VALUE, tag, 0L, 0D, false, utf8Length(val));
+		putUtf8(val);
+		return this;
+	}
+
+	/**
+	 * Adds char field to message
+	 * @param tag field tag
+	 * @param val field value
+	 * @param loc field location
+	 * @return self
+	 */
+	public UFEMessageWriter addField(int tag, char val, UFEFieldLocation loc) {
+		putField(loc.getNumber(), ft_string_VALUE, tag, 0L, 0D, false, 1);
+		_buffer.put((byte) val);
+		return this;
+	}
+
+	/**
+	 * Adds double field to message
+	 * @param tag field tag
+	 * @param val field value
+	 * @param loc field location
+	 * @param precision double field precision
+	 * @return self
+	 */
+	public UFEMessageWriter addField(int tag, double val, UFEFieldLocation loc, int precision) {
+		putField(loc.getNumber(), ft_double_VALUE, tag, precision, val, false, 0);
+		return this;
+	}
+
+	/**
+	 * Adds decimal field to message as double field with decimal scale as precision
+	 * @param tag field tag
+	 * @param val field value
+	 * @param loc field location
+	 * @return self
+	 */
+	public UFEMessageWriter addField(int tag, UFEDecimal val, UFEFieldLocation loc) {
+		return addField(tag, val.toDouble(), loc, val.getScale());
+	}
+
+	/**
+	 * Adds bool field to message
+	 * @param tag field tag
+	 * @param val field value
+	 * @param loc field location
+	 * @return self
+	 */
+	public UFEMessageWriter addField(int tag, boolean val, UFEFieldLocation loc) {
+		putField(loc.getNumber(), ft_bool_VALUE, tag, 0L, 0D, val, 0);
+		return this;
+	}
+
+	/**
+	 * Adds time field to message
+	 * @param tag field tag
+	 * @param val field value
+	 * @param loc field location
+	 * @return self
+	 */
+	public UFEMessageWriter addField(int tag, Instant val, UFEFieldLocation loc) {
+		return addTime(tag, val.getEpochSecond() * 1000000000L + val.getNano(), loc);
+	}
+
+	/**
+	 * Adds time field to message
+	 * @param tag field tag
+	 * @param epochNanos field value, nanoseconds since epoch
+	 * @param loc field location
+	 * @return self
+	 */
+	public UFEMessageWriter addTime(int tag, long epochNanos, UFEFieldLocation loc) {
+		putField(loc.getNumber(), ft_time_VALUE, tag, epochNanos, 0D, false, 0);
+		return this;
+	}
+
+	/**
+	 * Adds UUID field to message
+	 * @param tag field tag
+	 * @param val field value
+	 * @param loc field location
+	 * @return self
+	 */
+	public UFEMessageWriter addField(int tag, UUID val, UFEFieldLocation loc) {
+		return addUuid(tag, val.getMostSignificantBits(), val.getLeastSignificantBits(), loc);
+	}
+
+	/**
+	 * Adds UUID field to message
+	 * @param tag field tag
+	 * @param msb most significant bits of UUID value
+	 * @param lsb least significant bits of UUID value
+	 * @param loc field location
+	 * @return self
+	 */
+	public UFEMessageWriter addUuid(int tag, long msb, long lsb, UFEFieldLocation loc) {
+		putField(loc.getNumber(), ft_uuid_VALUE, tag, 0L, 0D, false, 16);
+		putLongBigEndian(msb);
+		putLongBigEndian(lsb);
+		return this;
+	}
+
+	/**
+	 * Adds status field to message
+	 * @param tag field tag
+	 * @param val field value
+	 * @param loc field location
+	 * @return self
+	 */
+	public UFEMessageWriter addField(int tag, UFEMessage.Status val, UFEFieldLocation loc) {
+		putField(loc.getNumber(), ft_status_VALUE, tag, val.status(), 0D, false, 0);
+		return this;
+	}
+
+	/**
+	 * Adds prebuilt field (including its groups) to message
+	 * @param field field to add
+	 * @return self
+	 */
+	public UFEMessageWriter addField(UFEField field) {
+		prepareField();
+		putFieldRecord(field);
+		return this;
+	}
+
+	/**
+	 * Sets long field of top message, replacing the last field with the same tag in place
+	 * or adding it if there is none. Can be called on a finished message to derive the next one.
+	 * @param tag field tag
+	 * @param val field value
+	 * @param loc field location
+	 * @return self
+	 */
+	public UFEMessageWriter setField(int tag, long val, UFEFieldLocation loc) {
+		beginPatch(loc.getNumber(), ft_int_VALUE, tag, val, 0D, false, 0);
+		return endPatch();
+	}
+
+	/**
+	 * Sets ByteString field of top message, see setField(int, long, UFEFieldLocation)
+	 * @param tag field tag
+	 * @param val field value
+	 * @param loc field location
+	 * @return self
+	 */
+	public UFEMessageWriter setField(int tag, ByteString val, UFEFieldLocation loc) {
+		beginPatch(loc.getNumber(), ft_string_VALUE, tag, 0L, 0D, false, val.size());
+		putBytes(val);
+		return endPatch();
+	}
+
+	/**
+	 * Sets String field of top message, UTF-8 encoded, see setField(int, long, UFEFieldLocation)
+	 * @param tag field tag
+	 * @param val field value
+	 * @param loc field location
+	 * @return self
+	 */
+	public UFEMessageWriter setField(int tag, CharSequence val, UFEFieldLocation loc) {
+		beginPatch(loc.getNumber(), ft_string_VALUE, tag, 0L, 0D, false, utf8Length(val));
+		putUtf8(val);
+		return endPatch();
+	}
+
+	/**
+	 * Sets char field of top message, see setField(int, long, UFEFieldLocation)
+	 * @param tag field tag
+	 * @param val field value
+	 * @param loc field location
+	 * @return self
+	 */
+	public UFEMessageWriter setField(int tag, char val, UFEFieldLocation loc) {
+		beginPatch(loc.getNumber(), ft_string_VALUE, tag, 0L, 0D, false, 1);
+		_buffer.put((byte) val);
+		return endPatch();
+	}
+
+	/**
+	 * Sets double field of top message, see setField(int, long, UFEFieldLocation)
+	 * @param tag field tag
+	 * @param val field value
+	 * @param loc field location
+	 * @param precision double field precision
+	 * @return self
+	 */
+	public UFEMessageWriter setField(int tag, double val, UFEFieldLocation loc, int precision) {
+		beginPatch(loc.getNumber(), ft_double_VALUE, tag, precision, val, false, 0);
+		return endPatch();
+	}
+
+	/**
+	 * Sets decimal field of top message as double field with decimal scale as precision,
+	 * see setField(int, long, UFEFieldLocation)
+	 * @param tag field tag
+	 * @param val field value
+	 * @param loc field location
+	 * @return self
+	 */
+	public UFEMessageWriter setField(int tag, UFEDecimal val, UFEFieldLocation loc) {
+		return setField(tag, val.toDouble(), loc, val.getScale());
+	}
+
+	/**
+	 * Sets bool field of top message, see setField(int, long, UFEFieldLocation)
+	 * @param tag field tag
+	 * @param val field value
+	 * @param loc field location
+	 * @return self
+	 */
+	public UFEMessageWriter setField(int tag, boolean val, UFEFieldLocation loc) {
+		beginPatch(loc.getNumber(), ft_bool_VALUE, tag, 0L, 0D, val, 0);
+		return endPatch();
+	}
+
+	/**
+	 * Sets time field of top message, see setField(int, long, UFEFieldLocation)
+	 * @param tag field tag
+	 * @param val field value
+	 * @param loc field location
+	 * @return self
+	 */
+	public UFEMessageWriter setField(int tag, Instant val, UFEFieldLocation loc) {
+		return setTime(tag, val.getEpochSecond() * 1000000000L + val.getNano(), loc);
+	}
+
+	/**
+	 * Sets time field of top message, see setField(int, long, UFEFieldLocation)
+	 * @param tag field tag
+	 * @param epochNanos field value, nanoseconds since epoch
+	 * @param loc field location
+	 * @return self
+	 */
+	public UFEMessageWriter setTime(int tag, long epochNanos, UFEFieldLocation loc) {
+		beginPatch(loc.getNumber(), ft_time_VALUE, tag, epochNanos, 0D, false, 0);
+		return endPatch();
+	}
+
+	/**
+	 * Changes tag of the last top message field with given tag, keeping its value and position
+	 * @param tag tag of field to rename
+	 * @param newTag new field tag
+	 * @return self
+	 */
+	public UFEMessageWriter renameField(int tag, int newTag) {
+		if (newTag == 0)
+			throw new IllegalArgumentException("field tag shall not be 0");
+		preparePatch();
+		int at = findRecord(tag);
+		if (at < 0)
+			return this;
+		int tagPos = recordTagPosition(at);
+		int tagSize = skipVarint(tagPos) - tagPos;
+		int newTagSize = varintSize(newTag & 0xFFFFFFFFL);
+		splice(tagPos, tagSize, newTagSize);
+		putVarint(tagPos, newTag & 0xFFFFFFFFL);
+		int lengthPos = at + 1;
+		int length = (int) getVarint(lengthPos) - tagSize + newTagSize;
+		splice(lengthPos, skipVarint(lengthPos) - lengthPos, varintSize(length));
+		putVarint(lengthPos, length);
+		return this;
+	}
+
+	/**
+	 * Removes all top message fields with given tag
+	 * @param tag tag of fields to remove
+	 * @return self
+	 */
+	public UFEMessageWriter removeField(int tag) {
+		preparePatch();
+		for (int at = findRecord(tag); at >= 0; at = findRecord(tag))
+			splice(at, skipRecord(at) - at, 0);
+		return this;
+	}
+
+	/**
+	 * Starts group. Add items with beginItem()/endItem() and complete it with endGroup().
+	 * @param tag group tag
+	 * @param loc group location
+	 * @return self
+	 */
+	public UFEMessageWriter beginGroup(int tag, UFEFieldLocation loc) {
+		return beginGroup(tag, loc, 0);
+	}
+
+	/**
+	 * Starts group with expected item count. Item count is written up front, so endGroup() does not
+	 * move group items when the count is right.
+	 * @param tag group tag
+	 * @param loc group location
+	 * @param itemCount expected number of items
+	 * @return self
+	 */
+	public UFEMessageWriter beginGroup(int tag, UFEFieldLocation loc, int itemCount) {
+		prepareField();
+		if (_depth + 2 > MAX_DEPTH)
+			throw new IllegalStateException(String.format("group nesting is deeper than %d", MAX_DEPTH / 2));
+		_buffer.put((byte) FIELDS_KEY);
+		_lengthPos[_depth] = _buffer.position();
+		_buffer.put((byte) 0);
+		putFieldPrefix(loc.getNumber(), ft_msg_VALUE, tag);
+		_ivalPos[_depth] = _buffer.position();
+		_ivalSize[_depth] = 0;
+		if (itemCount > 0) {
+			_buffer.put((byte) (UFEField.IVAL_FIELD_NUMBER << 3 | WT_VARINT));
+			putVarint(itemCount);
+			_ivalSize[_depth] = 1 + varintSize(itemCount);
+		}
+		_itemCount[_depth] = 0;
+		++_depth;
+		return this;
+	}
+
+	/**
+	 * Starts group item. Item header setters and fields are applied to the item until endItem().
+	 * @return self
+	 */
+	public UFEMessageWriter beginItem() {
+		if (!inGroup())
+			throw new IllegalStateException("beginItem() called outside of group");
+		_buffer.put((byte) MVAL_KEY);
+		_lengthPos[_depth] = _buffer.position();
+		_buffer.put((byte) 0);
+		++_depth;
+		resetHeader(_depth / 2);
+		return this;
+	}
+
+	/**
+	 * Completes group item
+	 * @return self
+	 */
+	public UFEMessageWriter endItem() {
+		if (_depth == 0 || inGroup())
+			throw new IllegalStateException("endItem() called outside of group item");
+		putHeader(_depth / 2);
+		closeRecord(--_depth);
+		++_itemCount[_depth - 1];
+		return this;
+	}
+
+	/**
+	 * Completes group, writing its item count
+	 * @return self
+	 */
+	public UFEMessageWriter endGroup() {
+		if (!inGroup())
+			throw new IllegalStateException("endGroup() called outside of group");
+		int group = --_depth;
+		int count = _itemCount[group];
+		int ivalSize = count == 0 ? 0 : 1 + varintSize(count);
+		if (ivalSize != _ivalSize[group]) {
+			int from = _ivalPos[group] + _ivalSize[group];
+			int length = _buffer.position() - from;
+			move(from, _ivalPos[group] + ivalSize, length);
+			_buffer.position(_ivalPos[group] + ivalSize + length);
+		}
+		if (ivalSize != 0) {
+			int pos = _ivalPos[group];
+			_buffer.put(pos, (byte) (UFEField.IVAL_FIELD_NUMBER << 3 | WT_VARINT));
+			putVarint(pos + 1, count);
+		}
+		closeRecord(group);
+		return this;
+	}
+
+	/**
+	 * Completes message and flips buffer: position is set to message start, limit to message end
+	 * @return buffer with encoded message
+	 */
+	public ByteBuffer finish() {
+		if (!_finished) {
+			if (_depth != 0)
+				throw new IllegalStateException("message has unterminated group or group item");
+			putHeader(0);
+			_buffer.limit(_buffer.position());
+			_buffer.position(_start);
+			_finished = true;
+		}
+		return _buffer;
+	}
+
+	/**
+	 * Copies encoded message to new array
+	 * @return encoded message bytes
+	 */
+	public byte[] toByteArray() {
+		ByteBuffer buffer = finish();
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Copies pre-encoded message header and fields to the start of a fresh message
+	 * @param prefix encoded header and fields
+	 * @param serviceId service id encoded in the prefix
+	 */
+	void putPrefix(byte[] prefix, int serviceId) {
+		if (_finished || _depth != 0 || _buffer.position() != _start || _headerWritten[0])
+			throw new IllegalStateException("template prefix must be written to a reset writer");
+		resetHeader(0);
+		_serviceIds[0] = serviceId;
+		_headerWritten[0] = true;
+		_buffer.put(prefix);
+	}
+
+	/**
+	 * Copies pre-encoded field records to message
+	 * @param records encoded WireMessage.fields records
+	 */
+	void putEncoded(byte[] records) {
+		prepareField();
+		_buffer.put(records);
+	}
+
+	void putMessage(WireMessage wm) {
+		int level = _depth / 2;
+		_names[level] = wm.getName();
+		_longNames[level] = wm.getLongname();
+		_seqs[level] = wm.getSeq();
+		_types[level] = wm.getTypeValue();
+		_serviceIds[level] = wm.getServiceId();
+		_subserviceIds[level] = wm.getSubserviceId();
+		_headerWritten[level] = false;
+		putHeader(level);
+		for (int i = 0; i < wm.getFieldsCount(); ++i)
+			putFieldRecord(wm.getFields(i));
+	}
+
+	private boolean isCopiedHeader() {
+		return _copied && _depth == 0;
+	}
+
+	/**
+	 * Reopens finished message for patching
+	 */
+	private void preparePatch() {
+		if (_depth != 0)
+			throw new IllegalStateException("field patched with open group or group item");
+		if (_finished) {
+			int end = _buffer.limit();
+			_buffer.limit(_limit);
+			_buffer.position(end);
+			_finished = false;
+		}
+	}
+
+	/**
+	 * Makes room for field record replacing existing one or appends it, positioning buffer at record start.
+	 * Caller writes svalLength bytes of sval right after and completes with endPatch().
+	 */
+	private void beginPatch(int loc, int type, int tag, long ival, double fval, boolean bval, int svalLength) {
+		preparePatch();
+		int at = findRecord(tag);
+		if (at < 0) {
+			_patchEnd = -1;
+			putField(loc, type, tag, ival, fval, bval, svalLength);
+			return;
+		}
+		int size = recordSize(loc, type, tag, ival, fval, bval, svalLength);
+		splice(at, skipRecord(at) - at, 1 + varintSize(size) + size);
+		_patchEnd = _buffer.position();
+		_buffer.position(at);
+		putRecord(loc, type, tag, ival, fval, bval, svalLength);
+	}
+
+	private UFEMessageWriter endPatch() {
+		if (_patchEnd >= 0) {
+			_buffer.position(_patchEnd);
+			_patchEnd = -1;
+		}
+		return this;
+	}
+
+	private void patchHeader(int fieldNumber, CharSequence value) {
+		int length = value == null ? 0 : utf8Length(value);
+		int at = spliceHeader(fieldNumber, length == 0 ? 0 : 1 + varintSize(length) + length);
+		if (length != 0) {
+			_buffer.position(at);
+			putString(fieldNumber, value);
+		}
+		endPatch();
+	}
+
+	private void patchHeader(int fieldNumber, long value) {
+		int at = spliceHeader(fieldNumber, value == 0 ? 0 : 1 + varintSize(value));
+		if (value != 0) {
+			_buffer.position(at);
+			_buffer.put((byte) (fieldNumber << 3 | WT_VARINT));
+			putVarint(value);
+		}
+		endPatch();
+	}
+
+	/**
+	 * Resizes header record of given field number, header records precede field records in field number order
+	 * @return header record position
+	 */
+	private int spliceHeader(int fieldNumber, int size) {
+		preparePatch();
+		int end = _buffer.position(), at = _start;
+		while (at < end && (int) getVarint(at) >>> 3 < fieldNumber)
+			at = skipRecord(at);
+		int oldSize = at < end && (int) getVarint(at) >>> 3 == fieldNumber ? skipRecord(at) - at : 0;
+		splice(at, oldSize, size);
+		_patchEnd = _buffer.position();
+		return at;
+	}
+
+	/**
+	 * Finds the last top message field record with given tag, the one UFEMessage.findField() returns
+	 * @return record position or -1
+	 */
+	private int findRecord(int tag) {
+		int end = _buffer.position(), at = _start, found = -1;
+		while (at < end) {
+			int next = skipRecord(at);
+			if ((int) getVarint(at) == FIELDS_KEY) {
+				int tagPos = recordTagPosition(at);
+				if (tagPos >= 0 && (int) getVarint(tagPos) == tag)
+					found = at;
+			}
+			at = next;
+		}
+		return found;
+	}
+
+	/**
+	 * Finds tag value position inside field record
+	 * @return tag varint position or -1 if field has no tag
+	 */
+	private int recordTagPosition(int at) {
+		int pos = skipVarint(at + 1);
+		int end = pos + (int) getVarint(at + 1);
+		while (pos < end) {
+			if ((int) getVarint(pos) == (UFEField.TAG_FIELD_NUMBER << 3 | WT_VARINT))
+				return skipVarint(pos);
+			pos = skipRecord(pos);
+		}
+		return -1;
+	}
+
+	/**
+	 * Resizes encoded range at given position, moving the rest of the message
+	 */
+	private void splice(int at, int oldSize, int newSize) {
+		int end = _buffer.position();
+		if (end - oldSize + newSize > _limit)
+			throw new BufferOverflowException();
+		move(at + oldSize, at + newSize, end - at - oldSize);
+		_buffer.position(end - oldSize + newSize);
+	}
+
+	private long getVarint(int index) {
+		long value = 0;
+		for (int shift = 0;; shift += 7) {
+			byte b = _buffer.get(index++);
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0)
+				return value;
+		}
+	}
+
+	private int skipVarint(int index) {
+		while (_buffer.get(index++) < 0)
+			;
+		return index;
+	}
+
+	/**
+	 * Position right after wire record (key and value) at given position
+	 */
+	private int skipRecord(int at) {
+		int key = (int) getVarint(at);
+		int pos = skipVarint(at);
+		switch (key & 7) {
+			case WT_VARINT:
+				return skipVarint(pos);
+			case WT_FIXED64:
+				return pos + 8;
+			case WT_LENGTH:
+				return skipVarint(pos) + (int) getVarint(pos);
+			default:
+				return pos + 4;
+		}
+	}
+
+	private void putFieldRecord(UFEField field) {
+		if (field.getMvalCount() == 0) {
+			ByteString sval = field.getSval();
+			putRecord(field.getLocationValue(), field.getTypeValue(), field.getTag(), field.getIval(), field.getFval(), field.getBval(), sval.size());
+			putBytes(sval);
+			return;
+		}
+		if (_depth + 2 > MAX_DEPTH)
+			throw new IllegalStateException(String.format("group nesting is deeper than %d", MAX_DEPTH / 2));
+		_buffer.put((byte) FIELDS_KEY);
+		_lengthPos[_depth] = _buffer.position();
+		_buffer.put((byte) 0);
+		putFieldPrefix(field.getLocationValue(), field.getTypeValue(), field.getTag());
+		putScalars(field.getIval(), field.getFval(), field.getBval(), field.getSval().size());
+		putBytes(field.getSval());
+		++_depth;
+		for (int i = 0; i < field.getMvalCount(); ++i) {
+			_buffer.put((byte) MVAL_KEY);
+			_lengthPos[_depth] = _buffer.position();
+			_buffer.put((byte) 0);
+			++_depth;
+			putMessage(field.getMval(i));
+			closeRecord(--_depth);
+		}
+		closeRecord(--_depth);
+	}
+
+	private boolean inGroup() {
+		return (_depth & 1) == 1;
+	}
+
+	private int headerLevel() {
+		if (_finished)
+			throw new IllegalStateException("message is finished, call reset() to compose the next one");
+		if (inGroup())
+			throw new IllegalStateException("header or field set outside of group item");
+		int level = _depth / 2;
+		if (_headerWritten[level])
+			throw new IllegalStateException("header must be set before the first field");
+		return level;
+	}
+
+	private void resetHeader(int level) {
+		_names[level] = null;
+		_longNames[level] = null;
+		_seqs[level] = 0;
+		_types[level] = 0;
+		_serviceIds[level] = 0;
+		_subserviceIds[level] = 0;
+		_headerWritten[level] = false;
+	}
+
+	private void prepareField() {
+		if (_finished)
+			throw new IllegalStateException("message is finished, call reset() to compose the next one");
+		if (inGroup())
+			throw new IllegalStateException("field added to group outside of group item");
+		putHeader(_depth / 2);
+	}
+
+	private void putHeader(int level) {
+		if (_headerWritten[level])
+			return;
+		_headerWritten[level] = true;
+		putString(WireMessage.NAME_FIELD_NUMBER, _names[level]);
+		putString(WireMessage.LONGNAME_FIELD_NUMBER, _longNames[level]);
+		if (_seqs[level] != 0) {
+			_buffer.put((byte) (WireMessage.SEQ_FIELD_NUMBER << 3 | WT_VARINT));
+			putVarint(_seqs[level] & 0xFFFFFFFFL);
+		}
+		putInt32(WireMessage.TYPE_FIELD_NUMBER, _types[level]);
+		putInt32(WireMessage.SERVICE_ID_FIELD_NUMBER, _serviceIds[level]);
+		putInt32(WireMessage.SUBSERVICE_ID_FIELD_NUMBER, _subserviceIds[level]);
+	}
+
+	private void putField(int loc, int type, int tag, long ival, double fval, boolean bval, int svalLength) {
+		prepareField();
+		putRecord(loc, type, tag, ival, fval, bval, svalLength);
+	}
+
+	/**
+	 * Writes UFEField record up to sval content, caller writes svalLength bytes of sval right after
+	 */
+	private void putRecord(int loc, int type, int tag, long ival, double fval, boolean bval, int svalLength) {
+		_buffer.put((byte) FIELDS_KEY);
+		putVarint(recordSize(loc, type, tag, ival, fval, bval, svalLength));
+		putFieldPrefix(loc, type, tag);
+		putScalars(ival, fval, bval, svalLength);
+	}
+
+	private void putFieldPrefix(int loc, int type, int tag) {
+		putInt32(UFEField.LOCATION_FIELD_NUMBER, loc);
+		putInt32(UFEField.TYPE_FIELD_NUMBER, type);
+		if (tag != 0) {
+			_buffer.put((byte) (UFEField.TAG_FIELD_NUMBER << 3 | WT_VARINT));
+			putVarint(tag & 0xFFFFFFFFL);
+		}
+	}
+
+	private void putScalars(long ival, double fval, boolean bval, int svalLength) {
+		if (ival != 0L) {
+			_buffer.put((byte) (UFEField.IVAL_FIELD_NUMBER << 3 | WT_VARINT));
+			putVarint(ival);
+		}
+		if (fval != 0D) {
+			_buffer.put((byte) (UFEField.FVAL_FIELD_NUMBER << 3 | WT_FIXED64));
+			long bits = Double.doubleToRawLongBits(fval);
+			for (int i = 0; i < 8; ++i, bits >>>= 8)
+				_buffer.put((byte) bits);
+		}
+		if (bval) {
+			_buffer.put((byte) (UFEField.BVAL_FIELD_NUMBER << 3 | WT_VARINT));
+			_buffer.put((byte) 1);
+		}
+		if (svalLength != 0) {
+			_buffer.put((byte) (UFEField.SVAL_FIELD_NUMBER << 3 | WT_LENGTH));
+			putVarint(svalLength);
+		}
+	}
+
+	private static int recordSize(int loc, int type, int tag, long ival, double fval, boolean bval, int svalLength) {
+		int size = 0;
+		if (loc != 0)
+			size += 1 + varintSize(loc);
+		if (type != 0)
+			size += 1 + varintSize(type);
+		if (tag != 0)
+			size += 1 + varintSize(tag & 0xFFFFFFFFL);
+		if (ival != 0L)
+			size += 1 + varintSize(ival);
+		if (fval != 0D)
+			size += 9;
+		if (bval)
+			size += 2;
+		if (svalLength != 0)
+			size += 1 + varintSize(svalLength) + svalLength;
+		return size;
+	}
+
+	private void putInt32(int fieldNumber, int value) {
+		if (value != 0) {
+			_buffer.put((byte) (fieldNumber << 3 | WT_VARINT));
+			putVarint(value);
+		}
+	}
+
+	private void putString(int fieldNumber, CharSequence value) {
+		if (value != null && value.length() != 0) {
+			_buffer.put((byte) (fieldNumber << 3 | WT_LENGTH));
+			putVarint(utf8Length(value));
+			putUtf8(value);
+		}
+	}
+
+	private void putBytes(ByteString value) {
+		if (!value.isEmpty())
+			value.copyTo(_buffer);
+	}
+
+	private void putLongBigEndian(long value) {
+		for (int shift = 56; shift >= 0; shift -= 8)
+			_buffer.put((byte) (value >>> shift));
+	}
+
+	private void putVarint(long value) {
+		while ((value & ~0x7FL) != 0) {
+			_buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		_buffer.put((byte) value);
+	}
+
+	private void putVarint(int index, long value) {
+		while ((value & ~0x7FL) != 0) {
+			_buffer.put(index++, (byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		_buffer.put(index, (byte) value);
+	}
+
+	/**
+	 * Completes length delimited record opened with 1 byte length placeholder, moving its content if length needs more bytes
+	 */
+	private void closeRecord(int depth) {
+		int lengthPos = _lengthPos[depth];
+		int length = _buffer.position() - lengthPos - 1;
+		int size = varintSize(length);
+		if (size != 1) {
+			move(lengthPos + 1, lengthPos + size, length);
+			_buffer.position(lengthPos + size + length);
+		}
+		putVarint(lengthPos, length);
+	}
+
+	private void move(int from, int to, int length) {
+		if (from == to || length == 0)
+			return;
+		if (_buffer.hasArray()) {
+			int offset = _buffer.arrayOffset();
+			System.arraycopy(_buffer.array(), offset + from, _buffer.array(), offset + to, length);
+			return;
+		}
+		if (_scratch.length < length)
+			_scratch = new byte[Math.max(length, _scratch.length * 2)];
+		int pos = _buffer.position();
+		_buffer.position(from);
+		_buffer.get(_scratch, 0, length);
+		_buffer.position(to);
+		_buffer.put(_scratch, 0, length);
+		_buffer.position(pos);
+	}
+
+	private void putUtf8(CharSequence value) {
+		for (int i = 0, n = value.length(); i < n; ++i) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				_buffer.put((byte) c);
+			} else if (c < 0x800) {
+				_buffer.put((byte) (0xC0 | c >>> 6));
+				_buffer.put((byte) (0x80 | c & 0x3F));
+			} else if (Character.isSurrogate(c)) {
+				if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+					int cp = Character.toCodePoint(c, value.charAt(++i));
+					_buffer.put((byte) (0xF0 | cp >>> 18));
+					_buffer.put((byte) (0x80 | cp >>> 12 & 0x3F));
+					_buffer.put((byte) (0x80 | cp >>> 6 & 0x3F));
+					_buffer.put((byte) (0x80 | cp & 0x3F));
+				} else {
+					_buffer.put((byte) '?'); // unpaired surrogate, same replacement as String.getBytes()
+				}
+			} else {
+				_buffer.put((byte) (0xE0 | c >>> 12));
+				_buffer.put((byte) (0x80 | c >>> 6 & 0x3F));
+				_buffer.put((byte) (0x80 | c & 0x3F));
+			}
+		}
+	}
+
+	static int utf8Length(CharSequence value) {
+		int n = value.length(), length = n;
+		for (int i = 0; i < n; ++i) {
+			char c = value.charAt(i);
+			if (c < 0x80)
+				continue;
+			if (c < 0x800)
+				length += 1;
+			else if (!Character.isSurrogate(c))
+				length += 2;
+			else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+				length += 2;
+				++i;
+			}
+		}
+		return length;
+	}
+
+	static int varintSize(long value) {
+		int size = 1;
+		while ((value & ~0x7FL) != 0) {
+			++size;
+			value >>>= 7;
+		}
+		return size;
+	}
+}
@@ -0,0 +1,85 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Pool of reusable UFEMessageWriters with preallocated direct buffers.
+ * Writers can be borrowed explicitly with acquire()/release() from any thread, or
+ * bound to the calling thread with local(). Neither path allocates once the pool is warm.
+ * {@code
+ *	UFEMessageWriterPool pool = new UFEMessageWriterPool(16, 4096);
+ *	UFEMessageWriter nos = pool.acquire();
+ *	try {
+ *		uc.request(nos.setLongName("NewOrderSingle")...);
+ *	} finally {
+ *		pool.release(nos);
+ *	}
+ * }
+ */
+public final class UFEMessageWriterPool {
+	private final int _writerCapacity;
+	private final UFEMessageWriter[] _free;
+	private int _freeCount;
+	private final ThreadLocal<UFEMessageWriter> _local;
+
+	/**
+	 * Constructs pool
+	 * @param size max number of idle writers kept in the pool, all of them preallocated
+	 * @param writerCapacity writer buffer capacity, the largest message size to encode
+	 */
+	public UFEMessageWriterPool(int size, int writerCapacity) {
+		_writerCapacity = writerCapacity;
+		_free = new UFEMessageWriter[size];
+		for (_freeCount = 0; _freeCount < size; ++_freeCount)
+			_free[_freeCount] = newWriter();
+		_local = ThreadLocal.withInitial(this::newWriter);
+	}
+
+	/**
+	 * Borrows writer from the pool, allocating new one if pool is empty
+	 * @return reset writer
+	 */
+	public UFEMessageWriter acquire() {
+		UFEMessageWriter writer = null;
+		synchronized (_free) {
+			if (_freeCount > 0) {
+				writer = _free[--_freeCount];
+				_free[_freeCount] = null;
+			}
+		}
+		return writer == null ? newWriter() : writer.reset();
+	}
+
+	/**
+	 * Returns writer to the pool. Writer is dropped if pool is full.
+	 * @param writer writer to return
+	 */
+	public void release(UFEMessageWriter writer) {
+		synchronized (_free) {
+			if (_freeCount < _free.length)
+				_free[_freeCount++] = writer;
+		}
+	}
+
+	/**
+	 * Returns writer bound to calling thread, reset for composing new message
+	 * @return calling thread writer
+	 */
+	public UFEMessageWriter local() {
+		return _local.get().reset();
+	}
+
+	/**
+	 * Number of idle writers in the pool
+	 * @return idle writers count
+	 */
+	public int getIdleCount() {
+		synchronized (_free) {
+			return _freeCount;
+		}
+	}
+
+	private UFEMessageWriter newWriter() {
+		return new UFEMessageWriter(ByteBuffer.allocateDirect(_writerCapacity));
+	}
+}
@@ -6,8 +6,20 @@ import org.zeromq.ZContext;
 import org.zeromq.ZMQ;
 import org.zeromq.ZMQException;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import static com.fix8mt.ufe.Ufeapi.UFEField;
 import static com.fix8mt.ufe.Ufeapi.UFEField.UFEFieldLocation.fl_body;
@@ -22,18 +34,52 @@ import static com.fix8mt.ufe.ufeedclient.Consts.*;
  * }
  */
 public class UFEedClient implements AutoCloseable {
+	private static final int SEND_RESPOND = 0, SEND_REQUEST = 1, SEND_REQUEST_ASYNC = 2;
+	private static final int MAX_PUBLISH_BATCH = 256;
+
 	private UFEedConfiguration _cs;
 	private ZContext _context;
-	private ZMQ.Socket _reqSocket;
+	// sockets are used by worker thread only while it runs, the reserved REQ socket by calling thread otherwise
+	private final SocketRequester _requester;
+	private final Object _reqSocketLock = new Object();
+	private RequesterPool _requesterPool;
 	private ZMQ.Socket _repSocket;
-	private ByteString _sessionId = ByteString.EMPTY;
-	private boolean _started = false;
+	private ZMQ.Socket _dealerSocket;
+	private volatile ByteString _sessionId = ByteString.EMPTY;
+	private volatile UFEField _sessionTokenField;
+	private volatile byte[] _sessionTokenRecord;
+	private volatile boolean _started = false;
 	private int _responderSeq = 0;
 	private Thread _workerThread = null;
-	private boolean _stopRequested = false;
+	private volatile Thread _ioThread = null;
+	private Thread _publisherThread = null;
+	private volatile boolean _publisherRunning = false;
+	private volatile boolean _publisherParked = false;
+	private volatile boolean _stopRequested = false;
 	private Listener _listener;
-	private final Object _reqSocketLock = new Object();
-	private final Object _repSocketLock = new Object();
+	private volatile int[] _subscriptionTagFilter;
+	private volatile StringInternCache _stringInternCache;
+	private volatile StringEncodeCache _stringEncodeCache;
+	private volatile SubscriptionRoute[] _subscriptionRoutes = new SubscriptionRoute[0];
+	// subscription frames handed over to consumer threads, null to dispatch on worker thread
+	private FrameRing _subscriptionRing;
+	private Thread[] _consumerThreads = new Thread[0];
+	private final Object _routesLock = new Object();
+	// sends of other threads, drained by worker thread; pipe wakes worker up from poll. Created by start(),
+	// seen by other threads once they see _ioThread set
+	private MpscRing<Command> _commands;
+	private volatile WakeupPipe _wakeup;
+	// worker thread only: asynchronous requests by request token in send order
+	private final LinkedHashMap<ByteString, PendingRequest> _pendingRequests = new LinkedHashMap<>();
+	// created by start(), seen by other threads once they see _ioThread set
+	private Semaphore _inFlightRequests;
+	private int _maxInFlightRequests;
+	private final AtomicLong _requestTokenSeq = new AtomicLong();
+	// specialized codec of each thread encoding or decoding messages, used when configured
+	private final ThreadLocal<UFECodec> _codecs = ThreadLocal.withInitial(UFECodec::new);
+	// encoded messages to publish, drained by publisher thread; created by start(), seen by other threads
+	// once they see _publisherRunning set
+	private MpscRing<byte[]> _publishQueue;
 
 	/**
 	 * Constructs UFEedClient
@@ -43,7 +89,7 @@ public class UFEedClient implements AutoCloseable {
 		_cs = configuration;
 		_context = new ZContext();
 		_context.setIoThreads(configuration.getMaxIoThreads());
-		_reqSocket = _context.createSocket(ZMQ.REQ);
+		_requester = new SocketRequester(_context.createSocket(ZMQ.REQ));
 		_listener = listener;
 	}
 
@@ -61,9 +107,9 @@ public class UFEedClient implements AutoCloseable {
 				.setType(st_system)
 				.setServiceId(UFE_CMD_LOGOUT)
 				.addField(UFE_CMD, UFE_CMD_LOGOUT, fl_body));
-			_sessionId = ByteString.EMPTY;
+			setSessionId(ByteString.EMPTY);
 		}
-		_reqSocket.close();
+		_requester._socket.close();
 	}
 
 	/**
@@ -83,7 +129,24 @@ public class UFEedClient implements AutoCloseable {
 		if (_started)
 			return;
 		_started = true;
-		_reqSocket.connect(_cs.getRequester());
+		_requester._socket.connect(_cs.getRequester());
+		_maxInFlightRequests = _cs.getMaxInFlightRequests();
+		_inFlightRequests = new Semaphore(_maxInFlightRequests);
+		_commands = new MpscRing<>(_cs.getCommandQueueCapacity());
+		if (_cs.getSubscriptionConsumers() > 0) {
+			_subscriptionRing = new FrameRing(_cs.getSubscriptionRingSize(), _cs.getSubscriptionWaitStrategy());
+			_consumerThreads = new Thread[_cs.getSubscriptionConsumers()];
+			for (int i = 0; i < _consumerThreads.length; ++i) {
+				_consumerThreads[i] = new Thread(this::consumer);
+				_consumerThreads[i].start();
+			}
+		}
+		if (!_cs.getPublisher().isEmpty()) {
+			_publishQueue = new MpscRing<>(_cs.getPublishQueueCapacity());
+			_publisherRunning = true;
+			_publisherThread = new Thread(this::publisher);
+			_publisherThread.start();
+		}
 		if (wait) {
 			worker();
 		} else {
@@ -100,8 +163,17 @@ public class UFEedClient implements AutoCloseable {
 		if (!_started)
 			return;
 		_stopRequested = true;
+		wakeup();
 		if (_workerThread != null)
 			_workerThread.join();
+		// worker closes subscription ring on exit, consumers finish the frames left in it
+		for (Thread consumer : _consumerThreads)
+			consumer.join();
+		_publisherRunning = false;
+		if (_publisherThread != null) {
+			LockSupport.unpark(_publisherThread);
+			_publisherThread.join();
+		}
 	}
 
 	/**
@@ -109,7 +181,7 @@ public class UFEedClient implements AutoCloseable {
 	 * @return message builder
 	 */
 	public UFEMessage.Builder createMessage() {
-		return UFEMessage.newBuilder(null);
+		return UFEMessage.newBuilder(null).setEncodeCache(_stringEncodeCache);
 
 	}
 
@@ -119,54 +191,274 @@ public class UFEedClient implements AutoCloseable {
 	 * @return message builder
 	 */
 	public UFEMessage.Builder createMessage(WireMessage wm) {
-		return UFEMessage.newBuilder(wm);
+		return UFEMessage.newBuilder(wm).setEncodeCache(_stringEncodeCache);
+
+	}
+
+	/**
+	 * Restricts decoding of subscription messages to fields with given tags. Other fields,
+	 * including whole groups, are skipped without being parsed.
+	 * @param tags tags of fields to decode, no tags to decode all fields
+	 */
+	public void setSubscriptionTagFilter(int... tags) {
+		_subscriptionTagFilter = tags.length == 0 ? null : tags.clone();
+	}
+
+	/**
+	 * Sets cache that received messages resolve their string field values through
+	 * @param cache string field values cache, null to decode values on every access
+	 */
+	public void setStringInternCache(StringInternCache cache) {
+		_stringInternCache = cache;
+	}
+
+	/**
+	 * String field values cache getter, its statistics report hit rate and memory footprint
+	 * @return string field values cache or null
+	 */
+	public StringInternCache getStringInternCache() {
+		return _stringInternCache;
+	}
+
+	/**
+	 * Sets cache that builders created by createMessage() encode String field values through
+	 * @param cache encoded values cache, null to encode values on every addField() call
+	 */
+	public void setStringEncodeCache(StringEncodeCache cache) {
+		_stringEncodeCache = cache;
+	}
+
+	/**
+	 * Encoded values cache getter, its statistics report hit rate and memory footprint
+	 * @return encoded values cache or null
+	 */
+	public StringEncodeCache getStringEncodeCache() {
+		return _stringEncodeCache;
+	}
 
+	/**
+	 * Adds subscription message route. Routes are checked in the order they were added against
+	 * message header only, before message is decoded; the first matching route handles the message.
+	 * Messages matching no route are passed to Listener.subscriptionMessageReceived().
+	 * @param predicate message header predicate
+	 * @param handler handler of matching messages, null to drop them without decoding
+	 * @return self
+	 */
+	public UFEedClient addSubscriptionRoute(HeaderPredicate predicate, MessageHandler handler) {
+		synchronized (_routesLock) {
+			SubscriptionRoute[] routes = Arrays.copyOf(_subscriptionRoutes, _subscriptionRoutes.length + 1);
+			routes[routes.length - 1] = new SubscriptionRoute(predicate, handler);
+			_subscriptionRoutes = routes;
+		}
+		return this;
 	}
 
 	/**
-	 * Synchronously sends request to UFE and waits for UFE response
+	 * Removes all subscription message routes
+	 * @return self
+	 */
+	public UFEedClient clearSubscriptionRoutes() {
+		synchronized (_routesLock) {
+			_subscriptionRoutes = new SubscriptionRoute[0];
+		}
+		return this;
+	}
+
+	/**
+	 * Synchronously sends request to UFE and waits for UFE response. Can be called from any thread:
+	 * while started, the request is handed over to worker thread, which owns all sockets.
 	 * @param request request to send
 	 * @return received response
-	 * @throws UFEedException thrown if no session token found
+	 * @throws UFEedException thrown if no session token found, client stopped or the wait was interrupted
 	 * @throws InvalidProtocolBufferException thrown if protobuf parsing failed
 	 */
 	public UFEMessage request(UFEMessage.Builder request) throws UFEedException, InvalidProtocolBufferException {
 		WireMessage wm;
+		UFEField sessionToken = _sessionTokenField;
 		// have we already logged in?
-		if (!_sessionId.isEmpty()) {
-			request.addField(UFE_SESSION_TOKEN, _sessionId, fl_system);
+		if (sessionToken != null) {
+			request.getWireMessageBuilder().addFields(sessionToken);
 			wm = sendRequestRecvResponse(request);
 		}
 		// well ok, is this a login attempt?
 		else if (request.getServiceId() == UFE_CMD_LOGIN) {
 			wm = sendRequestRecvResponse(request);
-			if (wm != null) {
-				wm.getFieldsList().stream()
-					.filter(ufeField -> ufeField.getTag() == UFE_SESSION_TOKEN).findFirst()
-					.ifPresent(sessionField -> _sessionId = sessionField.getSval());
-			}
+			updateSessionId(wm);
 		}
 		// neither?
 		else
 			throw new UFEedException("No session token found - you must log on before making a request");
+		return responseReceived(wm);
+	}
 
-		// send REP WireMessage to handler function
-		UFEMessage response = createMessage(wm).build();
-		_listener.responseMessageReceived(response);
-		return response;
+	/**
+	 * Synchronously sends request to UFE and streams UFE response to visitor as it is decoded,
+	 * without building WireMessage/UFEMessage of the response. Listener.responseMessageReceived() is not called.
+	 * Intended for large system responses such as dictionary, session cache, config or service lists.
+	 * @param request request to send
+	 * @param visitor visitor to stream response to
+	 * @throws UFEedException thrown if no session token found, client stopped or the wait was interrupted
+	 * @throws InvalidProtocolBufferException thrown if protobuf parsing failed
+	 */
+	public void request(UFEMessage.Builder request, UFEMessageVisitor visitor) throws UFEedException, InvalidProtocolBufferException {
+		UFEField sessionToken = _sessionTokenField;
+		if (sessionToken == null)
+			throw new UFEedException("No session token found - you must log on before making a request");
+		request.getWireMessageBuilder().addFields(sessionToken);
+		new UFEMessageView().wrap(sendRequestRecvResponseBytes(request)).accept(visitor);
+	}
 
+	/**
+	 * Asynchronously sends request to UFE. Requests are pipelined over a DEALER socket, so up to
+	 * UFEedConfiguration.getMaxInFlightRequests() requests can wait for their responses at once.
+	 * Responses are matched to requests by UFE_REQUEST_TOKEN, which is added to the request unless it
+	 * already has one; responses without the token complete the oldest request. Futures complete
+	 * on the worker thread, after Listener.responseMessageReceived() is called.
+	 * Requires started client; blocks while max in flight requests are outstanding, except on worker
+	 * thread (listener callbacks, future completions), which would never see them complete and throws instead.
+	 * Request is left unchanged when it is rejected.
+	 * @param request request to send
+	 * @return future of received response, completed exceptionally with TimeoutException if
+	 * no response is received within UFEedConfiguration.getRequestTimeoutMs(), or with UFEedException if
+	 * client stops or request token is already in flight
+	 * @throws UFEedException thrown if no session token found, client is not started or, on worker thread,
+	 * max in flight requests are outstanding
+	 * @throws InterruptedException thrown if interrupted while waiting for in flight requests
+	 */
+	public CompletableFuture<UFEMessage> requestAsync(UFEMessage.Builder request) throws UFEedException, InterruptedException {
+		UFEField sessionToken = _sessionTokenField;
+		if (sessionToken == null)
+			throw new UFEedException("No session token found - you must log on before making a request");
+		Thread ioThread = _ioThread;
+		if (ioThread == null)
+			throw new UFEedException("UFEedClient is not started - you must start it before making asynchronous requests");
+		boolean onIoThread = Thread.currentThread() == ioThread;
+		if (!onIoThread)
+			_inFlightRequests.acquire();
+		else if (!_inFlightRequests.tryAcquire())
+			throw new UFEedException(String.format("%d requests are in flight - worker thread cannot wait for their responses",
+				_maxInFlightRequests));
+		ByteString token = requestToken(request);
+		if (token == null) {
+			token = ByteString.copyFromUtf8(Long.toString(_requestTokenSeq.incrementAndGet()));
+			request.addField(UFE_REQUEST_TOKEN, token, fl_system);
+		}
+		request.getWireMessageBuilder().addFields(sessionToken);
+		byte[] msgBytes = encode(request.build().getWireMessage());
+
+		long timeoutMs = _cs.getRequestTimeoutMs();
+		PendingRequest pending = new PendingRequest(token, timeoutMs > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs) : 0);
+		if (onIoThread) {
+			sendAsyncRequest(pending, msgBytes);
+		} else if (!submit(new Command(SEND_REQUEST_ASYNC, msgBytes, pending))) {
+			// worker stopped while waiting for a permit
+			_inFlightRequests.release();
+			throw new UFEedException("UFEedClient is not started - you must start it before making asynchronous requests");
+		}
+		return pending._future;
 	}
 
 	/**
-	 * Send message to responder channel
+	 * Synchronously sends request encoded by writer to UFE and waits for UFE response.
+	 * Session token is appended to the request and writer is finished, call writer.reset() to reuse it.
+	 * @param request request to send
+	 * @return received response
+	 * @throws UFEedException thrown if no session token found, client stopped or the wait was interrupted
+	 * @throws InvalidProtocolBufferException thrown if protobuf parsing failed
+	 */
+	public UFEMessage request(UFEMessageWriter request) throws UFEedException, InvalidProtocolBufferException {
+		if (!request.isTopLevel())
+			throw new UFEedException("Request has unterminated group or group item");
+		WireMessage wm;
+		byte[] sessionToken = _sessionTokenRecord;
+		if (sessionToken != null) {
+			request.putEncoded(sessionToken);
+			wm = sendRequestRecvResponse(request.finish());
+		} else if (request.getServiceId() == UFE_CMD_LOGIN) {
+			wm = sendRequestRecvResponse(request.finish());
+			updateSessionId(wm);
+		} else
+			throw new UFEedException("No session token found - you must log on before making a request");
+		return responseReceived(wm);
+	}
+
+	/**
+	 * Publishes message to publisher channel without waiting for it to be sent. Message is encoded
+	 * by the calling thread and queued; publisher thread sends queued messages in batches.
+	 * Session token is appended to the message once logged in.
+	 * @param msg message to publish
+	 * @throws UFEedException thrown if publisher is not started
+	 * @throws InterruptedException thrown if interrupted while waiting for room in publish queue
+	 */
+	public void publish(UFEMessage.Builder msg) throws UFEedException, InterruptedException {
+		checkPublisher();
+		UFEField sessionToken = _sessionTokenField;
+		if (sessionToken != null)
+			msg.getWireMessageBuilder().addFields(sessionToken);
+		enqueuePublish(encode(msg.build().getWireMessage()));
+	}
+
+	/**
+	 * Publishes message encoded by writer to publisher channel without waiting for it to be sent.
+	 * Session token is appended to the message once logged in and writer is finished, call writer.reset() to reuse it.
+	 * @param msg message to publish
+	 * @throws UFEedException thrown if publisher is not started or message has unterminated group
+	 * @throws InterruptedException thrown if interrupted while waiting for room in publish queue
+	 */
+	public void publish(UFEMessageWriter msg) throws UFEedException, InterruptedException {
+		checkPublisher();
+		if (!msg.isTopLevel())
+			throw new UFEedException("Message has unterminated group or group item");
+		byte[] sessionToken = _sessionTokenRecord;
+		if (sessionToken != null)
+			msg.putEncoded(sessionToken);
+		enqueuePublish(toByteArray(msg.finish()));
+	}
+
+	/**
+	 * Send message to responder channel. Sent at once from responderMessageReceived callback thread,
+	 * handed over to it from other threads.
 	 * IMPORTANT: Must be called from responderMessageReceived callback thread as much as possible
 	 * @param msg message to send
+	 * @throws IllegalStateException thrown if called from other thread while client is not started
 	 */
 	public void respond(UFEMessage msg) {
-		synchronized (_repSocketLock) {
-			_repSocket.sendMore(_cs.getResponderTopic());
-			_repSocket.send(msg.getWireMessage().toByteArray(), 0);
-		}
+		respond(ByteBuffer.wrap(encode(msg.getWireMessage())));
+	}
+
+	/**
+	 * Send message encoded by writer to responder channel. Writer is finished, call writer.reset() to reuse it.
+	 * IMPORTANT: Must be called from responderMessageReceived callback thread as much as possible
+	 * @param msg message to send
+	 * @throws IllegalStateException thrown if called from other thread while client is not started
+	 */
+	public void respond(UFEMessageWriter msg) {
+		respond(msg.finish());
+	}
+
+	/**
+	 * Subscription route predicate over message header
+	 */
+	@FunctionalInterface
+	public interface HeaderPredicate {
+		/**
+		 * Checks message header
+		 * @param header header of received message, valid during the call only
+		 * @return true if route handles the message
+		 */
+		boolean test(UFEMessageHeader header);
+	}
+
+	/**
+	 * Subscription route handler
+	 */
+	@FunctionalInterface
+	public interface MessageHandler {
+		/**
+		 * Called when routed message received
+		 * @param message received message
+		 */
+		void messageReceived(UFEMessage message);
 	}
 
 	/**
@@ -174,7 +466,7 @@ public class UFEedClient implements AutoCloseable {
 	 */
 	public interface Listener {
 		/**
-		 * Called when subscription message received
+		 * Called when subscription message received, on worker thread or on one of subscription consumer threads
 		 * @param message received subscription message
 		 */
 		void subscriptionMessageReceived(UFEMessage message);
@@ -215,19 +507,339 @@ public class UFEedClient implements AutoCloseable {
 		boolean errorHappened(String error, Exception exception);
 	}
 
-	private WireMessage sendRequestRecvResponse(UFEMessage.Builder msg) throws InvalidProtocolBufferException {
-		byte[] msgBytes;
-		synchronized (_reqSocketLock) {
-			_reqSocket.sendMore(_cs.getRequesterTopic());
-			_reqSocket.send(msg.build().getWireMessage().toByteArray(), 0);
-			_reqSocket.recvStr(0, Charset.defaultCharset());
-			msgBytes = _reqSocket.recv(0);
+	private void updateSessionId(WireMessage wm) {
+		if (wm != null) {
+			wm.getFieldsList().stream()
+				.filter(ufeField -> ufeField.getTag() == UFE_SESSION_TOKEN).findFirst()
+				.ifPresent(sessionField -> setSessionId(sessionField.getSval()));
+		}
+	}
+
+	private void setSessionId(ByteString sessionId) {
+		// session token is appended to every request, so encode it once per login
+		if (sessionId.isEmpty()) {
+			_sessionTokenField = null;
+			_sessionTokenRecord = null;
+		} else {
+			_sessionTokenField = UFEField.newBuilder()
+				.setLocation(fl_system)
+				.setType(UFEField.UFEFieldType.ft_string)
+				.setTag(UFE_SESSION_TOKEN)
+				.setSval(sessionId)
+				.build();
+			_sessionTokenRecord = new UFEMessageWriter(ByteBuffer.allocate(sessionId.size() + 32))
+				.addField(UFE_SESSION_TOKEN, sessionId, fl_system)
+				.toByteArray();
+		}
+		_sessionId = sessionId;
+	}
+
+	private UFEMessage responseReceived(WireMessage wm) {
+		// send REP WireMessage to handler function
+		UFEMessage response = UFEMessage.wrap(wm, _stringInternCache);
+		_listener.responseMessageReceived(response);
+		return response;
+	}
+
+	private void checkPublisher() throws UFEedException {
+		if (!_publisherRunning)
+			throw new UFEedException("Publisher is not started - set publisher endpoint and start UFEedClient");
+	}
+
+	/**
+	 * Queues encoded message for publisher thread, spins while the queue is full
+	 */
+	private void enqueuePublish(byte[] msgBytes) throws UFEedException, InterruptedException {
+		while (!_publishQueue.offer(msgBytes)) {
+			if (Thread.interrupted())
+				throw new InterruptedException();
+			checkPublisher();
+			Thread.yield();
+		}
+		if (_publisherParked)
+			LockSupport.unpark(_publisherThread);
+	}
+
+	/**
+	 * Publisher thread: sends queued messages in batches of up to MAX_PUBLISH_BATCH, checking for interrupt
+	 * between batches, and parks once the queue is drained until woken up by publish().
+	 * Queued messages are sent before the thread stops.
+	 */
+	private void publisher() {
+		long parkNanos = TimeUnit.MILLISECONDS.toNanos(_cs.getPollIntervalMs());
+		try (ZMQ.Socket pubSocket = _context.createSocket(ZMQ.PUB)) {
+			pubSocket.bind(_cs.getPublisher());
+			while (_publisherRunning || !_publishQueue.isEmpty()) {
+				try {
+					byte[] msgBytes;
+					int sent = 0;
+					while (sent < MAX_PUBLISH_BATCH && (msgBytes = _publishQueue.poll()) != null) {
+						pubSocket.sendMore(_cs.getPublisherTopic());
+						pubSocket.send(msgBytes, 0);
+						++sent;
+					}
+					if (sent < MAX_PUBLISH_BATCH) {
+						// parked flag is raised before the final check, so publish() either sees it or its message is seen here
+						_publisherParked = true;
+						if (_publishQueue.isEmpty() && _publisherRunning)
+							LockSupport.parkNanos(this, parkNanos);
+						_publisherParked = false;
+					}
+					if (Thread.currentThread().isInterrupted())
+						break;
+				} catch (ZMQException e) {
+					if (!_listener.zeroMQErrorHappened(e.getErrorCode()))
+						break;
+				} catch (Exception ex) {
+					if (!_listener.errorHappened(ex.getMessage(), ex))
+						break;
+				}
+			}
+		} catch (ZMQException e) {
+			_listener.zeroMQErrorHappened(e.getErrorCode());
+		} finally {
+			_publisherRunning = false;
+		}
+	}
+
+	private static ByteString requestToken(UFEMessage.Builder request) {
+		WireMessage.Builder wmb = request.getWireMessageBuilder();
+		for (int i = 0; i < wmb.getFieldsCount(); ++i) {
+			UFEField field = wmb.getFields(i);
+			if (field.getTag() == UFE_REQUEST_TOKEN && !field.getSval().isEmpty())
+				return field.getSval();
+		}
+		return null;
+	}
+
+	/**
+	 * Registers asynchronous request and sends it over DEALER socket, worker thread only
+	 */
+	private void sendAsyncRequest(PendingRequest pending, byte[] msgBytes) {
+		if (_pendingRequests.putIfAbsent(pending._token, pending) != null) {
+			failRequest(pending, new UFEedException(String.format("Request token %s is already in flight", pending._token.toStringUtf8())));
+			return;
+		}
+		try {
+			// DEALER talks to REP with explicit empty delimiter frame
+			_dealerSocket.send(new byte[0], ZMQ.SNDMORE);
+			_dealerSocket.sendMore(_cs.getRequesterTopic());
+			_dealerSocket.send(msgBytes, 0);
+		} catch (ZMQException e) {
+			_pendingRequests.remove(pending._token);
+			failRequest(pending, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Completes asynchronous request the response belongs to
+	 */
+	private void asyncResponseReceived(WireMessage wm) {
+		UFEMessage response = responseReceived(wm);
+		UFEField token = response.findField(UFE_REQUEST_TOKEN);
+		PendingRequest pending = null;
+		if (token != null)
+			pending = _pendingRequests.remove(token.getSval());
+		if (pending == null && (token == null || token.getSval().isEmpty())) {
+			// REP replies in order, so untagged response belongs to the oldest request
+			Iterator<PendingRequest> oldest = _pendingRequests.values().iterator();
+			if (oldest.hasNext()) {
+				pending = oldest.next();
+				oldest.remove();
+			}
+		}
+		if (pending != null && pending._future.complete(response))
+			_inFlightRequests.release();
+	}
+
+	/**
+	 * Fails asynchronous requests past their deadline, deadlines grow in send order
+	 */
+	private void expireRequests() {
+		if (_cs.getRequestTimeoutMs() <= 0)
+			return;
+		long now = System.nanoTime();
+		Iterator<PendingRequest> it = _pendingRequests.values().iterator();
+		while (it.hasNext()) {
+			PendingRequest pending = it.next();
+			if (pending._deadline == 0 || pending._deadline - now > 0)
+				break;
+			it.remove();
+			failRequest(pending, new TimeoutException(String.format("no response within %d ms", _cs.getRequestTimeoutMs())));
+		}
+	}
+
+	private void failRequest(PendingRequest pending, Exception cause) {
+		// whoever completes the future returns its permit, so it is never returned twice
+		if (pending._future.completeExceptionally(cause))
+			_inFlightRequests.release();
+	}
+
+	private void failCommand(Command command, Exception cause) {
+		if (command._reply != null)
+			command._reply.completeExceptionally(cause);
+		if (command._pending != null)
+			failRequest(command._pending, cause);
+	}
+
+	/**
+	 * Fails everything submitted to worker thread and not answered yet, worker thread only
+	 */
+	private void failCommands(Exception cause) {
+		Command command;
+		while ((command = _commands.poll()) != null)
+			failCommand(command, cause);
+		if (_requesterPool != null)
+			_requesterPool.fail(cause);
+		for (PendingRequest pending : _pendingRequests.values())
+			failRequest(pending, cause);
+		_pendingRequests.clear();
+	}
+
+	/**
+	 * Hands send over to worker thread, spins while command queue is full
+	 * @return false if worker thread is not running
+	 */
+	private boolean submit(Command command) {
+		if (_ioThread == null)
+			return false;
+		while (!_commands.offer(command)) {
+			if (_ioThread == null)
+				return false;
+			Thread.yield();
+		}
+		wakeup();
+		// worker may have stopped after its final drain of the queue
+		if (_ioThread == null)
+			failCommand(command, new UFEedException("UFEedClient stopped"));
+		return true;
+	}
+
+	private void wakeup() {
+		WakeupPipe wakeup = _wakeup;
+		if (wakeup != null)
+			wakeup.signal();
+	}
+
+	/**
+	 * Executes sends submitted by other threads, worker thread only
+	 */
+	private void runCommands() {
+		Command command;
+		while ((command = _commands.poll()) != null) {
+			switch (command._type) {
+				case SEND_RESPOND:
+					_repSocket.sendMore(_cs.getResponderTopic());
+					_repSocket.send(command._msg, 0);
+					break;
+				case SEND_REQUEST:
+					_requesterPool.enqueue(command._msg, command._reply);
+					break;
+				default:
+					sendAsyncRequest(command._pending, command._msg);
+					break;
+			}
+		}
+		_requesterPool.dispatch();
+	}
+
+	private void respond(ByteBuffer msg) {
+		if (Thread.currentThread() == _ioThread) {
+			_repSocket.sendMore(_cs.getResponderTopic());
+			send(_repSocket, msg, 0);
+		} else if (!submit(new Command(SEND_RESPOND, toByteArray(msg), null))) {
+			throw new IllegalStateException("UFEedClient is not started - you must start it before responding");
+		}
+	}
+
+	private byte[] encode(WireMessage wm) {
+		return _cs.isSpecializedCodec() ? _codecs.get().encode(wm) : wm.toByteArray();
+	}
+
+	private WireMessage decode(byte[] frame) throws InvalidProtocolBufferException {
+		return _cs.isSpecializedCodec() ? _codecs.get().decode(frame) : WireMessage.parseFrom(frame);
+	}
+
+	private static byte[] toByteArray(ByteBuffer buffer) {
+		if (buffer.hasArray() && buffer.arrayOffset() + buffer.position() == 0 && buffer.remaining() == buffer.array().length)
+			return buffer.array();
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return bytes;
+	}
+
+	private static void send(ZMQ.Socket socket, ByteBuffer buffer, int flags) {
+		// jzmq sends ByteBuffer zero-copy only when it is direct
+		if (buffer.isDirect())
+			socket.sendByteBuffer(buffer, flags);
+		else
+			socket.send(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), flags);
+	}
+
+	private WireMessage sendRequestRecvResponse(ByteBuffer msg) throws UFEedException, InvalidProtocolBufferException {
+		return decode(sendRequestRecvResponseBytes(msg));
+	}
+
+	private WireMessage sendRequestRecvResponse(UFEMessage.Builder msg) throws UFEedException, InvalidProtocolBufferException {
+		return decode(sendRequestRecvResponseBytes(msg));
+	}
+
+	private byte[] sendRequestRecvResponseBytes(UFEMessage.Builder msg) throws UFEedException {
+		return sendRequestRecvResponseBytes(ByteBuffer.wrap(encode(msg.build().getWireMessage())));
+	}
+
+	/**
+	 * Sends request over REQ socket and waits for response. While worker thread runs, other threads
+	 * hand the request over to it and wait, and it sends requests of different threads over different
+	 * shared sockets of the pool. A request of worker thread itself is sent at once over the reserved socket,
+	 * see RequesterPool.request(). Otherwise the calling thread uses the reserved socket itself, one thread
+	 * at a time.
+	 */
+	private byte[] sendRequestRecvResponseBytes(ByteBuffer msg) throws UFEedException {
+		for (;;) {
+			Thread ioThread = _ioThread;
+			if (ioThread == Thread.currentThread())
+				return _requesterPool.request(msg);
+			if (ioThread != null) {
+				Command command = new Command(SEND_REQUEST, toByteArray(msg), null);
+				if (submit(command))
+					return await(command._reply);
+			}
+			synchronized (_reqSocketLock) {
+				// worker takes the reserved socket over under the lock, otherwise retry through worker
+				if (_ioThread == null) {
+					if (_requester.isReplyPending())
+						_requester.response();	// response to request abandoned when worker stopped
+					_requester.request(msg);
+					return _requester.response();
+				}
+			}
+		}
+	}
+
+	private static byte[] await(CompletableFuture<byte[]> response) throws UFEedException {
+		try {
+			return response.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof UFEedException)
+				throw (UFEedException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new UFEedException(cause.toString());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UFEedException("Interrupted while waiting for response");
 		}
-		return WireMessage.parseFrom(msgBytes);
 	}
 
 	private void worker() {
 		_repSocket = null;
+		_dealerSocket = null;
+		SocketRequester[] requesters = new SocketRequester[Math.max(1, _cs.getRequesterPoolSize())];
+		SubscriptionDispatcher dispatcher = new SubscriptionDispatcher();
+		WakeupPipe wakeupPipe = null;
 		try (ZMQ.Socket subSocket = _context.createSocket(ZMQ.SUB)) {
 			subSocket.connect(_cs.getSubscriber());
 			subSocket.subscribe(_cs.getSubscriberTopic().getBytes());
@@ -236,30 +848,67 @@ public class UFEedClient implements AutoCloseable {
 			if (!_cs.getResponder().isEmpty())
 				_repSocket.bind(_cs.getResponder());
 
-			ZMQ.Poller poller = new ZMQ.Poller(2);
+			_dealerSocket = _context.createSocket(ZMQ.DEALER);
+			_dealerSocket.connect(_cs.getRequester());
+
+			// REQ socket connected by start() is reserved for requests of worker thread itself, so they never
+			// wait behind responses to other requests; shared sockets live as long as worker
+			for (int i = 0; i < requesters.length; ++i) {
+				requesters[i] = new SocketRequester(_context.createSocket(ZMQ.REQ));
+				requesters[i]._socket.connect(_cs.getRequester());
+			}
+			_requesterPool = new RequesterPool(_requester, requesters);
+
+			wakeupPipe = new WakeupPipe();
+
+			ZMQ.Poller poller = new ZMQ.Poller(4 + requesters.length);
 			poller.register(subSocket, ZMQ.Poller.POLLIN);
 			poller.register(_repSocket, ZMQ.Poller.POLLIN);
+			poller.register(_dealerSocket, ZMQ.Poller.POLLIN);
+			poller.register(wakeupPipe.source(), ZMQ.Poller.POLLIN);
+			for (SocketRequester requester : requesters)
+				poller.register(requester._socket, ZMQ.Poller.POLLIN);
+			_wakeup = wakeupPipe;
+			synchronized (_reqSocketLock) {
+				// waits for a request made on the reserved socket before start to get its response
+				_ioThread = Thread.currentThread();
+			}
 			while (!_stopRequested && !Thread.currentThread().isInterrupted()) {
 				try {
 					if (poller.poll(_cs.getPollIntervalMs()) < 0)
 						break; // interrupted
+					if (poller.pollin(3))
+						wakeupPipe.clear();
+					runCommands();
 					if (poller.pollin(0)) {
 						// subscriber message
 						subSocket.recvStr(0, Charset.defaultCharset());
-						UFEMessage um = createMessage(WireMessage.parseFrom(subSocket.recv(0))).build();
-						_listener.subscriptionMessageReceived(um);
+						byte[] msgBytes = subSocket.recv(0);
+						if (_subscriptionRing != null)
+							_subscriptionRing.publish(msgBytes);
+						else
+							dispatcher.dispatch(msgBytes);
 					}
 					if (poller.pollin(1)) {
 						// responder message
-						byte[] msgBytes;
-						synchronized (_repSocketLock) {
-							_repSocket.recvStr(0, Charset.defaultCharset());
-							msgBytes = _repSocket.recv(0);
-						}
-						UFEMessage um = createMessage(WireMessage.parseFrom(msgBytes)).build();
+						_repSocket.recvStr(0, Charset.defaultCharset());
+						byte[] msgBytes = _repSocket.recv(0);
+						UFEMessage um = UFEMessage.wrap(decode(msgBytes), _stringInternCache);
 						_listener.responderMessageReceived(um);
 						processRespondMessage(um);
 					}
+					if (poller.pollin(2)) {
+						// asynchronous request response
+						_dealerSocket.recv(0); // empty delimiter
+						_dealerSocket.recvStr(0, Charset.defaultCharset());
+						asyncResponseReceived(decode(_dealerSocket.recv(0)));
+					}
+					for (int i = 0; i < requesters.length; ++i) {
+						if (poller.pollin(4 + i))
+							_requesterPool.receive(i);	// synchronous request response
+					}
+					_requesterPool.dispatch();
+					expireRequests();
 				} catch (ZMQException e) {
 					if (e.getErrorCode() == ZMQ.Error.EAGAIN.getCode())
 						continue;
@@ -268,9 +917,49 @@ public class UFEedClient implements AutoCloseable {
 					_stopRequested = !_listener.errorHappened(ex.getMessage(), ex);
 				}
 			}
+		} catch (IOException e) {
+			_listener.errorHappened(e.getMessage(), e);
 		} finally {
-			if (_repSocket != null) {
+			// submitters check _ioThread after queueing, so the ones this drain misses fail their own sends
+			_ioThread = null;
+			if (_subscriptionRing != null)
+				_subscriptionRing.close();
+			failCommands(new UFEedException("UFEedClient stopped"));
+			if (_repSocket != null)
 				_repSocket.close();
+			if (_dealerSocket != null)
+				_dealerSocket.close();
+			for (SocketRequester requester : requesters) {
+				if (requester != null)
+					requester._socket.close();
+			}
+			if (wakeupPipe != null) {
+				try {
+					wakeupPipe.close();
+				} catch (IOException e) {
+					// nothing to do, pipe is discarded
+				}
+			}
+		}
+	}
+
+	/**
+	 * Subscription consumer thread: decodes and dispatches frames handed over by worker thread
+	 */
+	private void consumer() {
+		SubscriptionDispatcher dispatcher = new SubscriptionDispatcher();
+		for (;;) {
+			try {
+				byte[] msgBytes = _subscriptionRing.take();
+				if (msgBytes == null)
+					break; // worker stopped and ring is drained
+				dispatcher.dispatch(msgBytes);
+			} catch (InterruptedException e) {
+				break;
+			} catch (Exception ex) {
+				// keep draining, worker waits for free slots
+				if (!_listener.errorHappened(ex.getMessage(), ex))
+					_stopRequested = true;
 			}
 		}
 	}
@@ -346,4 +1035,105 @@ public class UFEedClient implements AutoCloseable {
 		respond(rumm);
 		return rumm;
 	}
+
+	private static final class PendingRequest {
+		private final CompletableFuture<UFEMessage> _future = new CompletableFuture<>();
+		private final ByteString _token;
+		private final long _deadline;	// System.nanoTime() deadline, 0 for no timeout
+
+		PendingRequest(ByteString token, long deadline) {
+			_token = token;
+			_deadline = deadline;
+		}
+	}
+
+	/**
+	 * REQ socket of requester pool
+	 */
+	private final class SocketRequester extends RequesterPool.Requester {
+		private final ZMQ.Socket _socket;
+
+		SocketRequester(ZMQ.Socket socket) {
+			_socket = socket;
+		}
+
+		@Override
+		protected void send(ByteBuffer msg) {
+			_socket.sendMore(_cs.getRequesterTopic());
+			UFEedClient.send(_socket, msg, 0);
+		}
+
+		@Override
+		protected byte[] recv() {
+			_socket.recvStr(0, Charset.defaultCharset());
+			return _socket.recv(0);
+		}
+	}
+
+	/**
+	 * Send submitted to worker thread by other thread
+	 */
+	private static final class Command {
+		private final int _type;
+		private final byte[] _msg;
+		private final CompletableFuture<byte[]> _reply;	// SEND_REQUEST response
+		private final PendingRequest _pending;			// SEND_REQUEST_ASYNC request
+
+		Command(int type, byte[] msg, PendingRequest pending) {
+			_type = type;
+			_msg = msg;
+			_reply = type == SEND_REQUEST ? new CompletableFuture<>() : null;
+			_pending = pending;
+		}
+	}
+
+	/**
+	 * Routes, decodes and dispatches subscription frames. Holds header and decoder state,
+	 * so every thread dispatching subscription messages has its own.
+	 */
+	private final class SubscriptionDispatcher {
+		private final UFEMessageHeader _header = new UFEMessageHeader();
+		private int[] _tags;
+		private UFEMessageDecoder _decoder;
+
+		void dispatch(byte[] msgBytes) throws InvalidProtocolBufferException {
+			SubscriptionRoute route = route(msgBytes);
+			if (route == null)
+				_listener.subscriptionMessageReceived(decode(msgBytes));
+			else if (route._handler != null)
+				route._handler.messageReceived(decode(msgBytes));
+		}
+
+		private SubscriptionRoute route(byte[] msgBytes) throws InvalidProtocolBufferException {
+			SubscriptionRoute[] routes = _subscriptionRoutes;
+			if (routes.length == 0)
+				return null;
+			_header.peek(msgBytes);
+			for (SubscriptionRoute route : routes) {
+				if (route._predicate.test(_header))
+					return route;
+			}
+			return null;
+		}
+
+		private UFEMessage decode(byte[] msgBytes) throws InvalidProtocolBufferException {
+			int[] tags = _subscriptionTagFilter;
+			if (tags != _tags) {
+				_tags = tags;
+				_decoder = tags == null ? null : new UFEMessageDecoder(tags);
+			}
+			WireMessage wm = _decoder == null ? UFEedClient.this.decode(msgBytes) : _decoder.decodeWireMessage(msgBytes);
+			return UFEMessage.wrap(wm, _stringInternCache);
+		}
+	}
+
+	private static final class SubscriptionRoute {
+		private final HeaderPredicate _predicate;
+		private final MessageHandler _handler;
+
+		SubscriptionRoute(HeaderPredicate predicate, MessageHandler handler) {
+			_predicate = predicate;
+			_handler = handler;
+		}
+	}
 }
@@ -15,6 +15,20 @@ import static com.fix8mt.ufe.ufeedclient.Consts.*;
  * }
  */
 public class UFEedConfiguration {
+	/**
+	 * How subscription consumer threads wait for frames handed over by worker thread
+	 */
+	public enum WaitStrategy {
+		/** spins on the CPU, lowest latency, burns a core per waiting thread */
+		BUSY_SPIN,
+		/** spins yielding to other threads */
+		YIELD,
+		/** parks for a few microseconds between checks */
+		PARK,
+		/** blocks on a condition signalled by worker thread, lowest CPU use */
+		BLOCK
+	}
+
 	private String _subscriber = SUBSCRIBER_DEFAULT;
 	private String _requester = REQUESTER_DEFAULT;
 	private String _publisher = PUBLISHER_DEFAULT;
@@ -25,6 +39,15 @@ public class UFEedConfiguration {
 	private String _responderTopic = RESPONDER_TOPIC_DEFAULT;
 	private int _maxIoThreads = 1;
 	private int _pollIntervalMs = 10;
+	private int _maxInFlightRequests = 64;
+	private long _requestTimeoutMs = 0;
+	private int _publishQueueCapacity = 8192;
+	private int _commandQueueCapacity = 1024;
+	private int _requesterPoolSize = 1;
+	private int _subscriptionConsumers = 0;
+	private int _subscriptionRingSize = 4096;
+	private WaitStrategy _subscriptionWaitStrategy = WaitStrategy.PARK;
+	private boolean _specializedCodec = false;
 
 	/**
 	 * Subscriber endpoint, defaults to "tcp://127.0.0.1:55745"
@@ -202,4 +225,174 @@ public class UFEedConfiguration {
 		_pollIntervalMs = pollIntervalMs;
 		return this;
 	}
+
+	/**
+	 * Gets max number of asynchronous requests in flight
+	 * @return max in flight requests
+	 */
+	public int getMaxInFlightRequests() {
+		return _maxInFlightRequests;
+	}
+
+	/**
+	 * Sets max number of asynchronous requests in flight, requestAsync() blocks when reached. Defaults to 64.
+	 * @param maxInFlightRequests max in flight requests
+	 * @return self
+	 */
+	public UFEedConfiguration setMaxInFlightRequests(int maxInFlightRequests) {
+		_maxInFlightRequests = maxInFlightRequests;
+		return this;
+	}
+
+	/**
+	 * Gets asynchronous request timeout in milliseconds
+	 * @return request timeout in milliseconds, 0 for no timeout
+	 */
+	public long getRequestTimeoutMs() {
+		return _requestTimeoutMs;
+	}
+
+	/**
+	 * Sets asynchronous request timeout in milliseconds, futures of requests not answered in time
+	 * complete with TimeoutException. Defaults to 0, no timeout.
+	 * @param requestTimeoutMs request timeout in milliseconds
+	 * @return self
+	 */
+	public UFEedConfiguration setRequestTimeoutMs(long requestTimeoutMs) {
+		_requestTimeoutMs = requestTimeoutMs;
+		return this;
+	}
+
+	/**
+	 * Gets publish queue capacity
+	 * @return max number of messages queued for publishing
+	 */
+	public int getPublishQueueCapacity() {
+		return _publishQueueCapacity;
+	}
+
+	/**
+	 * Sets publish queue capacity, publish() blocks when the queue is full. Defaults to 8192.
+	 * @param publishQueueCapacity max number of messages queued for publishing
+	 * @return self
+	 */
+	public UFEedConfiguration setPublishQueueCapacity(int publishQueueCapacity) {
+		_publishQueueCapacity = publishQueueCapacity;
+		return this;
+	}
+
+	/**
+	 * Gets command queue capacity
+	 * @return max number of sends queued for worker thread
+	 */
+	public int getCommandQueueCapacity() {
+		return _commandQueueCapacity;
+	}
+
+	/**
+	 * Sets command queue capacity, rounded up to a power of two. Requests and responds made from
+	 * threads other than the worker are queued for it and wait while the queue is full. Defaults to 1024.
+	 * @param commandQueueCapacity max number of sends queued for worker thread
+	 * @return self
+	 */
+	public UFEedConfiguration setCommandQueueCapacity(int commandQueueCapacity) {
+		_commandQueueCapacity = commandQueueCapacity;
+		return this;
+	}
+
+	/**
+	 * Gets requester pool size
+	 * @return number of REQ sockets synchronous requests are spread over
+	 */
+	public int getRequesterPoolSize() {
+		return _requesterPoolSize;
+	}
+
+	/**
+	 * Sets requester pool size. Worker thread keeps that many REQ sockets connected to requester endpoint,
+	 * so as many synchronous requests of different threads wait for their responses at once, plus one
+	 * reserved for requests made on worker thread itself. Defaults to 1.
+	 * @param requesterPoolSize number of REQ sockets synchronous requests are spread over
+	 * @return self
+	 */
+	public UFEedConfiguration setRequesterPoolSize(int requesterPoolSize) {
+		_requesterPoolSize = requesterPoolSize;
+		return this;
+	}
+
+	/**
+	 * Gets subscription consumers count
+	 * @return number of threads subscription messages are decoded and dispatched on, 0 for worker thread
+	 */
+	public int getSubscriptionConsumers() {
+		return _subscriptionConsumers;
+	}
+
+	/**
+	 * Sets subscription consumers count. When positive, worker thread hands received subscription frames
+	 * over to that many consumer threads through a ring, so a slow listener does not stall the socket.
+	 * With more than one consumer messages are dispatched concurrently and not in order. Defaults to 0.
+	 * @param subscriptionConsumers number of threads subscription messages are decoded and dispatched on, 0 for worker thread
+	 * @return self
+	 */
+	public UFEedConfiguration setSubscriptionConsumers(int subscriptionConsumers) {
+		_subscriptionConsumers = subscriptionConsumers;
+		return this;
+	}
+
+	/**
+	 * Gets subscription ring size
+	 * @return max number of subscription frames waiting for consumer threads
+	 */
+	public int getSubscriptionRingSize() {
+		return _subscriptionRingSize;
+	}
+
+	/**
+	 * Sets subscription ring size, rounded up to a power of two. Worker thread waits while the ring is full. Defaults to 4096.
+	 * @param subscriptionRingSize max number of subscription frames waiting for consumer threads
+	 * @return self
+	 */
+	public UFEedConfiguration setSubscriptionRingSize(int subscriptionRingSize) {
+		_subscriptionRingSize = subscriptionRingSize;
+		return this;
+	}
+
+	/**
+	 * Gets subscription wait strategy
+	 * @return how consumer threads wait for subscription frames
+	 */
+	public WaitStrategy getSubscriptionWaitStrategy() {
+		return _subscriptionWaitStrategy;
+	}
+
+	/**
+	 * Sets subscription wait strategy. Defaults to PARK.
+	 * @param subscriptionWaitStrategy how consumer threads wait for subscription frames
+	 * @return self
+	 */
+	public UFEedConfiguration setSubscriptionWaitStrategy(WaitStrategy subscriptionWaitStrategy) {
+		_subscriptionWaitStrategy = subscriptionWaitStrategy;
+		return this;
+	}
+
+	/**
+	 * Gets specialized codec use
+	 * @return true if messages are encoded and decoded with UFECodec, false for generated code
+	 */
+	public boolean isSpecializedCodec() {
+		return _specializedCodec;
+	}
+
+	/**
+	 * Sets specialized codec use. When true, client encodes sent and decodes received messages with a
+	 * UFECodec per thread instead of generated code; frames the codec does not accept, such as ones with
+	 * deprecated group wire types, fail to decode. Defaults to false.
+	 * @param specializedCodec true to use UFECodec, false for generated code only
+	 * @return self
+	 */
+	public UFEedConfiguration setSpecializedCodec(boolean specializedCodec) {
+		_specializedCodec = specializedCodec;
+		return this;
+	}
 }
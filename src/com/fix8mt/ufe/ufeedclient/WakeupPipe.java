@@ -0,0 +1,76 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectableChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Wakes a thread up from polling a selectable channel. Threads handing work over signal() after queueing it;
+ * only the first signal after the polling thread cleared the pipe writes a byte, later ones see the flag
+ * raised and skip the syscall. The polling thread registers source() in its poller and calls clear() when
+ * it is readable, before taking the queued work.
+ * signal() may be called from any thread, clear() and close() from the polling thread only.
+ */
+final class WakeupPipe implements Closeable {
+	private static final byte[] WAKEUP = new byte[1];
+
+	private final Pipe _pipe;
+	private final AtomicBoolean _pending = new AtomicBoolean();
+	private final ByteBuffer _buffer = ByteBuffer.allocate(64);
+
+	/**
+	 * Opens non-blocking pipe
+	 * @throws IOException thrown if pipe cannot be opened
+	 */
+	WakeupPipe() throws IOException {
+		_pipe = Pipe.open();
+		_pipe.source().configureBlocking(false);
+		_pipe.sink().configureBlocking(false);
+	}
+
+	/**
+	 * Channel to poll, readable while a wakeup is pending
+	 * @return pipe source
+	 */
+	SelectableChannel source() {
+		return _pipe.source();
+	}
+
+	/**
+	 * Wakes polling thread up unless a wakeup is pending already, any thread
+	 */
+	void signal() {
+		if (_pending.compareAndSet(false, true)) {
+			try {
+				_pipe.sink().write(ByteBuffer.wrap(WAKEUP));
+			} catch (IOException e) {
+				// polling thread stopped and closed the pipe
+			}
+		}
+	}
+
+	/**
+	 * Consumes pending wakeup, polling thread only. Work queued before a signal() that skipped the write is
+	 * visible once this returns, a signal() after it writes again and wakes the next poll.
+	 * @throws IOException thrown if pipe cannot be read
+	 */
+	void clear() throws IOException {
+		// drain before lowering the flag: lowered first, a signal in between would raise it again and write a
+		// byte drained here, leaving the flag up with nothing to wake the next poll
+		while (_pipe.source().read(_buffer) > 0)
+			_buffer.clear();
+		_pending.set(false);
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			_pipe.sink().close();
+		} finally {
+			_pipe.source().close();
+		}
+	}
+}
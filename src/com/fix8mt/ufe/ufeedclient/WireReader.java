@@ -0,0 +1,332 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Protobuf wire format reader over byte array or ByteBuffer.
+ * Positions are absolute indexes in the backing array or buffer. Reader does not allocate
+ * except for thrown exceptions and can be rewrapped over any number of frames.
+ */
+final class WireReader {
+	static final int WT_VARINT = 0;
+	static final int WT_FIXED64 = 1;
+	static final int WT_LENGTH = 2;
+	static final int WT_FIXED32 = 5;
+
+	private static final int TAG_KEY = 3 << 3 | WT_VARINT;	// UFEField.tag
+
+	private byte[] _array;
+	private ByteBuffer _buffer;
+	private int _pos;
+	private int _limit;
+
+	/**
+	 * Wraps byte array range
+	 * @param array array to read from
+	 * @param offset range offset
+	 * @param length range length
+	 * @return self
+	 */
+	WireReader wrap(byte[] array, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > array.length)
+			throw new IndexOutOfBoundsException(String.format("offset=%d length=%d array length=%d", offset, length, array.length));
+		_array = array;
+		_buffer = null;
+		_pos = offset;
+		_limit = offset + length;
+		return this;
+	}
+
+	/**
+	 * Wraps ByteBuffer range between its position and limit
+	 * @param buffer buffer to read from
+	 * @return self
+	 */
+	WireReader wrap(ByteBuffer buffer) {
+		if (buffer.hasArray()) {
+			_array = buffer.array();
+			_buffer = null;
+			_pos = buffer.arrayOffset() + buffer.position();
+			_limit = buffer.arrayOffset() + buffer.limit();
+		} else {
+			_array = null;
+			_buffer = buffer;
+			_pos = buffer.position();
+			_limit = buffer.limit();
+		}
+		return this;
+	}
+
+	/**
+	 * Wraps a range of other reader backing
+	 * @param other reader to share backing with
+	 * @param start range start position
+	 * @param end range end position
+	 * @return self
+	 */
+	WireReader wrap(WireReader other, int start, int end) {
+		_array = other._array;
+		_buffer = other._buffer;
+		_pos = start;
+		_limit = end;
+		return this;
+	}
+
+	/**
+	 * Releases backing array or buffer
+	 * @return self
+	 */
+	WireReader reset() {
+		_array = null;
+		_buffer = null;
+		_pos = _limit = 0;
+		return this;
+	}
+
+	int position() {
+		return _pos;
+	}
+
+	void position(int pos) {
+		_pos = pos;
+	}
+
+	int limit() {
+		return _limit;
+	}
+
+	void limit(int limit) {
+		_limit = limit;
+	}
+
+	boolean hasRemaining() {
+		return _pos < _limit;
+	}
+
+	byte byteAt(int index) {
+		return _array != null ? _array[index] : _buffer.get(index);
+	}
+
+	/**
+	 * Reads tag of encoded UFEField without parsing other members, position is not changed
+	 * @param start record content start
+	 * @param end record content end
+	 * @return field tag or 0 if field has no tag
+	 * @throws InvalidProtocolBufferException thrown if record is malformed
+	 */
+	int fieldTag(int start, int end) throws InvalidProtocolBufferException {
+		int pos = _pos, limit = _limit;
+		try {
+			_pos = start;
+			_limit = end;
+			while (_pos < _limit) {
+				int key = readKey();
+				if (key == TAG_KEY)
+					return readVarint32();
+				skip(key & 7);
+			}
+			return 0;
+		} finally {
+			_pos = pos;
+			_limit = limit;
+		}
+	}
+
+	/**
+	 * Copies bytes from backing
+	 * @param index absolute start index
+	 * @param dst destination array
+	 * @param dstOffset destination offset
+	 * @param length number of bytes to copy
+	 */
+	void copy(int index, byte[] dst, int dstOffset, int length) {
+		if (_array != null) {
+			System.arraycopy(_array, index, dst, dstOffset, length);
+		} else {
+			for (int i = 0; i < length; ++i)
+				dst[dstOffset + i] = _buffer.get(index + i);
+		}
+	}
+
+	/**
+	 * Copies bytes from backing to buffer position
+	 * @param index absolute start index
+	 * @param dst destination buffer
+	 * @param length number of bytes to copy
+	 */
+	void copy(int index, ByteBuffer dst, int length) {
+		if (_array != null) {
+			dst.put(_array, index, length);
+		} else {
+			for (int i = 0; i < length; ++i)
+				dst.put(_buffer.get(index + i));
+		}
+	}
+
+	/**
+	 * Copies bytes from backing to new ByteString
+	 * @param index absolute start index
+	 * @param length number of bytes to copy
+	 * @return copied bytes
+	 */
+	ByteString bytes(int index, int length) {
+		if (length == 0)
+			return ByteString.EMPTY;
+		if (_array != null)
+			return ByteString.copyFrom(_array, index, length);
+		return ByteString.copyFrom(slice(index, length));
+	}
+
+	/**
+	 * Decodes UTF-8 string from backing range
+	 * @param index absolute start index
+	 * @param length range length
+	 * @return decoded string
+	 * @throws InvalidProtocolBufferException thrown if range is not valid UTF-8
+	 */
+	String string(int index, int length) throws InvalidProtocolBufferException {
+		if (_array != null) {
+			int i = index;
+			while (i < index + length && _array[i] >= 0)
+				++i;
+			if (i == index + length)
+				return new String(_array, index, length, StandardCharsets.US_ASCII);
+		}
+		ByteString bytes = bytes(index, length);
+		if (!bytes.isValidUtf8())
+			throw new InvalidProtocolBufferException("Protocol message had invalid UTF-8.");
+		return bytes.toStringUtf8();
+	}
+
+	/**
+	 * Wraps sequence over backing range
+	 * @param index absolute start index
+	 * @param length range length
+	 * @param dst sequence to wrap
+	 * @return dst
+	 */
+	AsciiSequence ascii(int index, int length, AsciiSequence dst) {
+		return _array != null ? dst.wrap(_array, index, length) : dst.wrap(_buffer, index, length);
+	}
+
+	/**
+	 * Resolves canonical String of backing range
+	 * @param index absolute start index
+	 * @param length range length
+	 * @param cache intern cache
+	 * @return canonical String
+	 */
+	String intern(int index, int length, StringInternCache cache) {
+		return _array != null ? cache.intern(_array, index, length) : cache.intern(_buffer, index, length);
+	}
+
+	/**
+	 * Parses protobuf message from backing range
+	 * @param parser message parser
+	 * @param index absolute start index
+	 * @param length message length
+	 * @param <T> message type
+	 * @return parsed message
+	 * @throws InvalidProtocolBufferException thrown if message is malformed
+	 */
+	<T> T parse(Parser<T> parser, int index, int length) throws InvalidProtocolBufferException {
+		if (_array != null)
+			return parser.parseFrom(_array, index, length);
+		return parser.parseFrom(slice(index, length));
+	}
+
+	/**
+	 * Reads field key
+	 * @return field key, field number is key >>> 3, wire type is key &amp; 7
+	 * @throws InvalidProtocolBufferException thrown if key is malformed
+	 */
+	int readKey() throws InvalidProtocolBufferException {
+		return (int) readVarint64();
+	}
+
+	long readVarint64() throws InvalidProtocolBufferException {
+		long result = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			if (_pos >= _limit)
+				throw truncated();
+			byte b = byteAt(_pos++);
+			result |= (long) (b & 0x7F) << shift;
+			if (b >= 0)
+				return result;
+		}
+		throw new InvalidProtocolBufferException("malformed varint");
+	}
+
+	int readVarint32() throws InvalidProtocolBufferException {
+		return (int) readVarint64();
+	}
+
+	long readFixed64() throws InvalidProtocolBufferException {
+		if (_limit - _pos < 8)
+			throw truncated();
+		long result = 0;
+		for (int i = 7; i >= 0; --i)
+			result = (result << 8) | (byteAt(_pos + i) & 0xFFL);
+		_pos += 8;
+		return result;
+	}
+
+	/**
+	 * Reads length prefix of length delimited field, checking it fits the range
+	 * @return length
+	 * @throws InvalidProtocolBufferException thrown if length is malformed or out of range
+	 */
+	int readLength() throws InvalidProtocolBufferException {
+		int length = readVarint32();
+		if (length < 0 || length > _limit - _pos)
+			throw truncated();
+		return length;
+	}
+
+	/**
+	 * Skips field value of given wire type
+	 * @param wireType wire type of the value
+	 * @throws InvalidProtocolBufferException thrown if value is malformed
+	 */
+	void skip(int wireType) throws InvalidProtocolBufferException {
+		switch (wireType) {
+			case WT_VARINT:
+				readVarint64();
+				break;
+			case WT_FIXED64:
+				skipBytes(8);
+				break;
+			case WT_LENGTH:
+				int length = readLength();
+				_pos += length;
+				break;
+			case WT_FIXED32:
+				skipBytes(4);
+				break;
+			default:
+				throw new InvalidProtocolBufferException(String.format("unsupported wire type %d", wireType));
+		}
+	}
+
+	private ByteBuffer slice(int index, int length) {
+		ByteBuffer slice = _buffer.duplicate();
+		slice.limit(index + length);
+		slice.position(index);
+		return slice;
+	}
+
+	private void skipBytes(int count) throws InvalidProtocolBufferException {
+		if (_limit - _pos < count)
+			throw truncated();
+		_pos += count;
+	}
+
+	private static InvalidProtocolBufferException truncated() {
+		return new InvalidProtocolBufferException("frame is truncated or has invalid length");
+	}
+}
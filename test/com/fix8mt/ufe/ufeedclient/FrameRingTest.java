@@ -0,0 +1,53 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameRingTest {
+
+	@Test
+	@DisplayName("Frame ring hands every frame to exactly one consumer with each wait strategy")
+	public void testFrameRing() throws InterruptedException {
+		for (UFEedConfiguration.WaitStrategy strategy : UFEedConfiguration.WaitStrategy.values()) {
+			final int consumers = 3, count = 20000;
+			FrameRing ring = new FrameRing(100, strategy);
+			assertEquals(128, ring.capacity());
+			int[][] taken = new int[consumers][count];
+			int[] takenCounts = new int[consumers];
+			Thread[] threads = new Thread[consumers];
+			for (int c = 0; c < consumers; ++c) {
+				final int consumer = c;
+				threads[c] = new Thread(() -> {
+					try {
+						byte[] frame;
+						while ((frame = ring.take()) != null)
+							taken[consumer][takenCounts[consumer]++] = ByteBuffer.wrap(frame).getInt();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+				threads[c].start();
+			}
+			for (int i = 0; i < count; ++i)
+				ring.publish(ByteBuffer.allocate(4).putInt(i).array());
+			ring.close();
+			boolean[] seen = new boolean[count];
+			for (int c = 0; c < consumers; ++c) {
+				threads[c].join();
+				// each consumer takes frames in publish order
+				for (int i = 0; i < takenCounts[c]; ++i) {
+					assertTrue(i == 0 || taken[c][i - 1] < taken[c][i], strategy.name());
+					assertFalse(seen[taken[c][i]], strategy.name());
+					seen[taken[c][i]] = true;
+				}
+			}
+			for (int i = 0; i < count; ++i)
+				assertTrue(seen[i], strategy.name());
+			assertNull(ring.take());
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpscRingTest {
+
+	@Test
+	@DisplayName("MPSC ring hands over every element of concurrent producers in order")
+	public void testMpscRing() throws InterruptedException {
+		MpscRing<Integer> ring = new MpscRing<>(5);
+		assertEquals(8, ring.capacity());
+		assertTrue(ring.isEmpty());
+		assertNull(ring.poll());
+		for (int i = 0; i < 8; ++i)
+			assertTrue(ring.offer(i));
+		assertFalse(ring.offer(8));
+		assertEquals(0, ring.poll().intValue());
+		assertTrue(ring.offer(8));
+		for (int i = 1; i <= 8; ++i)
+			assertEquals(i, ring.poll().intValue());
+		assertTrue(ring.isEmpty());
+		assertThrows(IllegalArgumentException.class, () -> new MpscRing<>(0));
+
+		// producers spin on full ring, consumer sees each producer's elements in offer order
+		final int producers = 4, count = 100000;
+		MpscRing<long[]> shared = new MpscRing<>(64);
+		Thread[] threads = new Thread[producers];
+		for (int p = 0; p < producers; ++p) {
+			final int producer = p;
+			threads[p] = new Thread(() -> {
+				for (int i = 0; i < count; ++i) {
+					long[] element = { producer, i };
+					while (!shared.offer(element))
+						Thread.yield();
+				}
+			});
+			threads[p].start();
+		}
+		int[] next = new int[producers];
+		for (int received = 0; received < producers * count;) {
+			long[] element = shared.poll();
+			if (element == null) {
+				Thread.yield();
+				continue;
+			}
+			assertEquals(next[(int) element[0]]++, element[1]);
+			++received;
+		}
+		for (Thread thread : threads)
+			thread.join();
+		assertTrue(shared.isEmpty());
+		for (int p = 0; p < producers; ++p)
+			assertEquals(count, next[p]);
+	}
+}
@@ -0,0 +1,156 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequesterPoolTest {
+
+	/**
+	 * REQ socket stand-in answering every request with "re:" and the request
+	 */
+	private static final class EchoRequester extends RequesterPool.Requester {
+		private final ArrayDeque<String> _unanswered = new ArrayDeque<>();
+		private final List<String> _sent = new ArrayList<>();
+		private boolean _failSend;
+
+		@Override
+		protected void send(ByteBuffer msg) {
+			if (_failSend)
+				throw new IllegalStateException("send failed");
+			String request = StandardCharsets.US_ASCII.decode(msg).toString();
+			_sent.add(request);
+			_unanswered.add(request);
+		}
+
+		@Override
+		protected byte[] recv() {
+			assertFalse(_unanswered.isEmpty(), "no request to answer");
+			return ("re:" + _unanswered.poll()).getBytes(StandardCharsets.US_ASCII);
+		}
+	}
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static String string(CompletableFuture<byte[]> reply) throws ExecutionException, InterruptedException {
+		return new String(reply.get(), StandardCharsets.US_ASCII);
+	}
+
+	@Test
+	@DisplayName("Requester pool queues requests of other threads until a socket is idle")
+	public void testDispatch() throws ExecutionException, InterruptedException {
+		EchoRequester reserved = new EchoRequester(), r0 = new EchoRequester(), r1 = new EchoRequester();
+		RequesterPool pool = new RequesterPool(reserved, new RequesterPool.Requester[] { r0, r1 });
+		assertEquals(2, pool.size());
+		assertSame(r1, pool.get(1));
+		assertThrows(IllegalArgumentException.class, () -> new RequesterPool(reserved, new RequesterPool.Requester[0]));
+
+		CompletableFuture<byte[]> a = new CompletableFuture<>(), b = new CompletableFuture<>(), c = new CompletableFuture<>();
+		pool.enqueue(bytes("a"), a);
+		pool.enqueue(bytes("b"), b);
+		pool.enqueue(bytes("c"), c);
+		pool.dispatch();
+		assertEquals(1, r0._sent.size());
+		assertEquals(1, r1._sent.size());
+		assertTrue(r0.isReplyPending() && r1.isReplyPending());
+		assertFalse(c.isDone());
+
+		// responses complete their own requests, the freed socket takes the next queued one
+		pool.receive(1);
+		assertEquals("re:b", string(b));
+		assertFalse(r1.isReplyPending());
+		pool.dispatch();
+		assertEquals("c", r1._sent.get(1));
+		pool.receive(0);
+		pool.receive(1);
+		assertEquals("re:a", string(a));
+		assertEquals("re:c", string(c));
+
+		// readable socket waiting for no response is not read
+		pool.receive(0);
+		assertFalse(r0.isReplyPending());
+		assertTrue(reserved._sent.isEmpty());
+	}
+
+	@Test
+	@DisplayName("Request of the owning thread goes over the reserved socket while shared ones are busy")
+	public void testOwnRequest() throws ExecutionException, InterruptedException {
+		EchoRequester reserved = new EchoRequester(), r0 = new EchoRequester(), r1 = new EchoRequester();
+		// response to a request abandoned on the reserved socket is dropped by the next request
+		reserved.request(ByteBuffer.wrap(bytes("old")));
+		RequesterPool pool = new RequesterPool(reserved, new RequesterPool.Requester[] { r0, r1 });
+		CompletableFuture<byte[]> a = new CompletableFuture<>(), b = new CompletableFuture<>(), c = new CompletableFuture<>();
+		pool.enqueue(bytes("a"), a);
+		pool.enqueue(bytes("b"), b);
+		pool.enqueue(bytes("c"), c);
+		pool.dispatch();
+		assertTrue(r0.isReplyPending() && r1.isReplyPending());
+
+		// all shared sockets busy: request neither waits for their responses nor takes their place
+		assertEquals("re:x", new String(pool.request(ByteBuffer.wrap(bytes("x"))), StandardCharsets.US_ASCII));
+		assertEquals("x", reserved._sent.get(1));
+		assertFalse(reserved.isReplyPending());
+		assertEquals(1, r0._sent.size());
+		assertEquals(1, r1._sent.size());
+		assertFalse(a.isDone() || b.isDone() || c.isDone());
+		assertEquals("re:y", new String(pool.request(ByteBuffer.wrap(bytes("y"))), StandardCharsets.US_ASCII));
+
+		pool.receive(0);
+		pool.dispatch();
+		pool.receive(1);
+		pool.receive(0);
+		assertEquals("re:a", string(a));
+		assertEquals("re:b", string(b));
+		assertEquals("re:c", string(c));
+		assertEquals(3, reserved._sent.size());
+	}
+
+	@Test
+	@DisplayName("Requester pool fails queued and unanswered requests and drops abandoned responses")
+	public void testFail() throws ExecutionException, InterruptedException {
+		EchoRequester reserved = new EchoRequester(), r0 = new EchoRequester();
+		// response to a request abandoned before the pool was made is dropped
+		r0.request(ByteBuffer.wrap(bytes("old")));
+		RequesterPool pool = new RequesterPool(reserved, new RequesterPool.Requester[] { r0 });
+		CompletableFuture<byte[]> a = new CompletableFuture<>(), b = new CompletableFuture<>();
+		pool.enqueue(bytes("a"), a);
+		pool.dispatch();
+		assertEquals(1, r0._sent.size());
+		assertFalse(a.isDone());
+		pool.receive(0);
+		assertFalse(a.isDone());
+		pool.dispatch();
+		pool.enqueue(bytes("b"), b);
+		pool.fail(new UFEedException("stopped"));
+		assertTrue(a.isCompletedExceptionally());
+		assertTrue(b.isCompletedExceptionally());
+		// socket still expects the response, it is dropped when read
+		assertTrue(r0.isReplyPending());
+		pool.receive(0);
+		assertFalse(r0.isReplyPending());
+
+		CompletableFuture<byte[]> c = new CompletableFuture<>();
+		pool.enqueue(bytes("c"), c);
+		r0._failSend = true;
+		assertThrows(IllegalStateException.class, pool::dispatch);
+		assertTrue(c.isCompletedExceptionally());
+		assertFalse(r0.isReplyPending());
+		r0._failSend = false;
+		CompletableFuture<byte[]> d = new CompletableFuture<>();
+		pool.enqueue(bytes("d"), d);
+		pool.dispatch();
+		pool.receive(0);
+		assertEquals("re:d", string(d));
+	}
+}
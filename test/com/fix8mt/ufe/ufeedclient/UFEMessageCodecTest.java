@@ -0,0 +1,716 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnknownFieldSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static com.fix8mt.ufe.Ufeapi.UFEField.UFEFieldLocation.fl_body;
+import static com.fix8mt.ufe.Ufeapi.UFEField.UFEFieldLocation.fl_system;
+import static com.fix8mt.ufe.Ufeapi.UFEField;
+import static com.fix8mt.ufe.Ufeapi.UFEField.UFEFieldType.*;
+import static com.fix8mt.ufe.Ufeapi.WireMessage;
+import static com.fix8mt.ufe.Ufeapi.WireMessage.Type.st_fixmsg;
+import static com.fix8mt.ufe.ufeedclient.Consts.*;
+import com.fix8mt.ufe.FIX50SP2.ufe_java_fields_fix50sp2.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class UFEMessageCodecTest {
+
+	@Test
+	@DisplayName("Flyweight view reads header, fields and groups from encoded frame")
+	public void testView() throws InvalidProtocolBufferException {
+		UUID token = UUID.randomUUID();
+		UFEMessage.Builder nos = UFEMessageTest.newOrderSingle()
+			.addField(UFE_SESSION_TOKEN, token, fl_system);
+		nos.getWireMessageBuilder().setSubserviceId(-2);
+		byte[] frame = nos.build().getWireMessage().toByteArray();
+
+		ByteBuffer direct = ByteBuffer.allocateDirect(frame.length + 3);
+		direct.position(3);
+		direct.put(frame);
+		direct.position(3);
+		UFEMessageView[] views = { new UFEMessageView().wrap(frame), new UFEMessageView().wrap(direct) };
+		for (UFEMessageView view : views) {
+			assertEquals("NewOrderSingle", view.getLongName());
+			assertEquals(MsgType.NEWORDERSINGLE, view.getName());
+			assertEquals(st_fixmsg, view.getType());
+			assertEquals(1, view.getServiceId());
+			assertEquals(-2, view.getSubserviceId());
+			assertEquals(8, view.getFieldsCount());
+
+			assertTrue(view.findField(ClOrdID.tag));
+			assertEquals(ft_string, view.getFieldType());
+			assertEquals(fl_body, view.getFieldLocation());
+			assertEquals("123", view.getFieldString());
+			assertTrue(view.findField(OrdType.tag));
+			assertEquals(OrdType.LIMIT, view.getFieldChar());
+			assertTrue(view.findField(Price.tag));
+			assertEquals(123.456, view.getFieldFval());
+			assertEquals(4, view.getFieldIval());
+			assertTrue(view.findField(UFE_SESSION_TOKEN));
+			assertEquals(fl_system, view.getFieldLocation());
+			ByteBuffer uuid = ByteBuffer.allocate(16);
+			view.getFieldSval(uuid);
+			assertEquals(token, new UUID(uuid.getLong(0), uuid.getLong(8)));
+			assertFalse(view.findField(Symbol.tag));
+			assertFalse(view.hasField());
+
+			assertTrue(view.findField(NoAllocs.tag));
+			assertEquals(ft_msg, view.getFieldType());
+			assertEquals(2, view.getFieldMvalCount());
+			UFEMessageView item = new UFEMessageView();
+			assertTrue(view.getFieldMval(1, item));
+			assertEquals(2, item.getSeq());
+			assertTrue(item.findField(AllocAccount.tag));
+			assertEquals("CDE", item.getFieldString());
+			assertTrue(view.getFieldMval(0, item));
+			assertTrue(item.findField(AllocQty.tag));
+			assertEquals(2, item.getFieldIval());
+			assertFalse(view.getFieldMval(2, item));
+
+			int count = 0;
+			for (view.rewind(); view.nextField(); ++count)
+				assertNotEquals(0, view.getFieldTag());
+			assertEquals(view.getFieldsCount(), count);
+		}
+		assertThrows(InvalidProtocolBufferException.class, () -> new UFEMessageView().wrap(frame, 0, frame.length - 1));
+	}
+
+	@Test
+	@DisplayName("Repeated tag resolves to the last field in view, message, writer and builder")
+	public void testRepeatedTag() throws InvalidProtocolBufferException {
+		UFEMessage.Builder nos = UFEMessageTest.newOrderSingle()
+			.addField(ClOrdID.tag, "456", fl_body)
+			.addField(Side.tag, (char) 0xE9, fl_body);
+		UFEMessage msg = nos.build();
+		byte[] frame = msg.getWireMessage().toByteArray();
+		assertEquals("456", msg.findFieldValue(ClOrdID.tag));
+		assertEquals((char) 0xE9, msg.getChar(Side.tag, '\0'));
+
+		UFEMessageView view = new UFEMessageView().wrap(frame);
+		assertTrue(view.findField(ClOrdID.tag));
+		assertEquals("456", view.getFieldString());
+		assertTrue(view.findField(Side.tag));
+		assertEquals(msg.getChar(Side.tag, '\0'), view.getFieldChar());
+
+		// both setters replace the last field and leave the earlier one alone
+		nos.setField(ClOrdID.tag, "789", fl_body);
+		byte[] expected = nos.build().getWireMessage().toByteArray();
+		UFEMessageWriter writer = new UFEMessageWriter(1024).copyFrom(frame, 0, frame.length).setField(ClOrdID.tag, "789", fl_body);
+		assertArrayEquals(expected, writer.toByteArray());
+		WireMessage edited = WireMessage.parseFrom(expected);
+		assertEquals(msg.getWireMessage().getFieldsCount(), edited.getFieldsCount());
+		assertEquals("123", edited.getFields(0).getSval().toStringUtf8());
+		assertEquals("789", UFEMessage.wrap(edited).findFieldValue(ClOrdID.tag));
+	}
+
+	static UFEMessageWriter newOrderSingle(UFEMessageWriter writer) {
+		return writer
+			.setLongName("NewOrderSingle")
+			.setType(st_fixmsg)
+			.setServiceId(1)
+			.setName(MsgType.NEWORDERSINGLE)
+			.addField(ClOrdID.tag, "123", fl_body)
+			.addField(TransactTime.tag, Instant.ofEpochSecond(1560000000L, 123456789), fl_body)
+			.addField(OrdType.tag, OrdType.LIMIT, fl_body)
+			.addField(Price.tag, 123.456, fl_body, 4)
+			.addField(OrderQty.tag, 456.789, fl_body, 2)
+			.addField(Side.tag, Side.BUY, fl_body)
+			.beginGroup(NoAllocs.tag, fl_body)
+				.beginItem()
+					.setLongName("NoAlloc")
+					.setType(st_fixmsg)
+					.setSeq(1)
+					.addField(AllocAccount.tag, "ABC", fl_body)
+					.addField(AllocQty.tag, 2, fl_body)
+				.endItem()
+				.beginItem()
+					.setLongName("NoAlloc")
+					.setType(st_fixmsg)
+					.setSeq(2)
+					.addField(AllocAccount.tag, "CDE", fl_body)
+					.addField(AllocQty.tag, 4, fl_body)
+				.endItem()
+			.endGroup();
+	}
+
+	@Test
+	@DisplayName("Writer produces the same bytes as WireMessage.toByteArray()")
+	public void testWriter() {
+		byte[] expected = UFEMessageTest.newOrderSingle().build().getWireMessage().toByteArray();
+		UFEMessageWriter direct = new UFEMessageWriter(4096);
+		assertArrayEquals(expected, newOrderSingle(direct).toByteArray());
+		assertArrayEquals(expected, newOrderSingle(direct.reset()).toByteArray());
+		UFEMessageWriter heap = new UFEMessageWriter(ByteBuffer.allocate(4096));
+		assertArrayEquals(expected, newOrderSingle(heap).toByteArray());
+
+		// pre-sized item count, right or wrong, encodes the same
+		for (int itemCount : new int[]{2, 1, 200}) {
+			direct.reset()
+				.setLongName("NewOrderSingle")
+				.setType(st_fixmsg)
+				.setServiceId(1)
+				.setName(MsgType.NEWORDERSINGLE)
+				.addField(ClOrdID.tag, "123", fl_body)
+				.addField(TransactTime.tag, Instant.ofEpochSecond(1560000000L, 123456789), fl_body)
+				.addField(OrdType.tag, OrdType.LIMIT, fl_body)
+				.addField(Price.tag, 123.456, fl_body, 4)
+				.addField(OrderQty.tag, 456.789, fl_body, 2)
+				.addField(Side.tag, Side.BUY, fl_body)
+				.beginGroup(NoAllocs.tag, fl_body, itemCount);
+			for (int i = 0; i < 2; ++i)
+				direct.beginItem()
+					.setLongName("NoAlloc")
+					.setType(st_fixmsg)
+					.setSeq(i + 1)
+					.addField(AllocAccount.tag, i == 0 ? "ABC" : "CDE", fl_body)
+					.addField(AllocQty.tag, 2 + 2 * i, fl_body)
+					.endItem();
+			assertArrayEquals(expected, direct.endGroup().toByteArray());
+		}
+
+		// long records, nested groups, unicode, negative ids, system fields
+		UUID token = UUID.randomUUID();
+		String text = "\u00e9\u20ac\ud83d\ude00 " + new String(new char[300]).replace('\0', 'x');
+		UFEMessage.Builder.GroupBuilderRef grp = new UFEMessage.Builder.GroupBuilderRef();
+		UFEMessage.Builder builder = UFEMessage.newBuilder(null)
+			.setLongName("text")
+			.setServiceId(-5)
+			.addField(Text.tag, text, fl_body)
+			.addGroup(NoPartyIDs.tag, grp, (b, group) -> {
+				for (int i = 0; i < 20; ++i) {
+					UFEMessage.Builder.GroupBuilderRef g1 = new UFEMessage.Builder.GroupBuilderRef();
+					b.addGroupItem(group)
+						.setSeq(i)
+						.addField(PartyID.tag, "party" + i, fl_body)
+						.addField(PartyRole.tag, -i, fl_body)
+						.addGroup(NoPartySubIDs.tag, g1, (b1, group1) -> b1.addGroupItem(group1)
+							.addField(PartySubID.tag, text, fl_body), fl_body);
+				}
+			}, fl_body)
+			.addGroup(NoLegs.tag, new UFEMessage.Builder.GroupBuilderRef(), null, fl_body)
+			.addField(UFE_SESSION_TOKEN, token, fl_system)
+			.addField(UFE_RESPONSE_CODE, new UFEMessage.Status(UFE_OK), fl_system)
+			.addField(ExecInst.tag, false, fl_body)
+			.addField(LastPx.tag, -0.0, fl_body, 2);
+		UFEMessageWriter writer = new UFEMessageWriter(ByteBuffer.allocateDirect(16384))
+			.setLongName("text")
+			.setServiceId(-5)
+			.addField(Text.tag, text, fl_body)
+			.beginGroup(NoPartyIDs.tag, fl_body);
+		for (int i = 0; i < 20; ++i) {
+			writer.beginItem()
+				.setSeq(i)
+				.addField(PartyID.tag, "party" + i, fl_body)
+				.addField(PartyRole.tag, -i, fl_body)
+				.beginGroup(NoPartySubIDs.tag, fl_body)
+					.beginItem().addField(PartySubID.tag, text, fl_body).endItem()
+				.endGroup()
+			.endItem();
+		}
+		writer.endGroup()
+			.beginGroup(NoLegs.tag, fl_body).endGroup()
+			.addField(UFE_SESSION_TOKEN, token, fl_system)
+			.addField(UFE_RESPONSE_CODE, new UFEMessage.Status(UFE_OK), fl_system)
+			.addField(ExecInst.tag, false, fl_body)
+			.addField(LastPx.tag, -0.0, fl_body, 2);
+		WireMessage wm = builder.build().getWireMessage();
+		assertArrayEquals(wm.toByteArray(), writer.toByteArray());
+
+		// prebuilt fields
+		writer.reset().setLongName("text").setServiceId(-5);
+		for (UFEField field : wm.getFieldsList())
+			writer.addField(field);
+		assertArrayEquals(wm.toByteArray(), writer.toByteArray());
+		assertThrows(IllegalStateException.class, () -> writer.reset().addField(Text.tag, text, fl_body).setServiceId(1));
+	}
+
+	@Test
+	@DisplayName("Pooled writer encodes NewOrderSingle with a group without allocation")
+	public void testWriterPoolAllocation() {
+		java.lang.management.ThreadMXBean mx = java.lang.management.ManagementFactory.getThreadMXBean();
+		assumeTrue(mx instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threadMx = (com.sun.management.ThreadMXBean) mx;
+		assumeTrue(threadMx.isThreadAllocatedMemorySupported() && threadMx.isThreadAllocatedMemoryEnabled());
+
+		UFEMessageWriterPool pool = new UFEMessageWriterPool(2, 1024);
+		long tid = Thread.currentThread().getId();
+		int encoded = 0;
+		for (int round = 0; round < 2; ++round) {
+			long before = threadMx.getThreadAllocatedBytes(tid);
+			for (int i = 0; i < 20000; ++i) {
+				UFEMessageWriter writer = (i & 1) == 0 ? pool.acquire() : pool.local();
+				encoded += writer
+					.setLongName("NewOrderSingle")
+					.setType(st_fixmsg)
+					.setServiceId(1)
+					.setName(MsgType.NEWORDERSINGLE)
+					.addField(ClOrdID.tag, "ORD-0001", fl_body)
+					.addTime(TransactTime.tag, 1560000000123456789L + i, fl_body)
+					.addField(OrdType.tag, OrdType.LIMIT, fl_body)
+					.addField(Price.tag, 123.456 + i, fl_body, 4)
+					.addField(OrderQty.tag, 100, fl_body)
+					.addField(Side.tag, Side.BUY, fl_body)
+					.beginGroup(NoAllocs.tag, fl_body)
+						.beginItem()
+							.setLongName("NoAlloc")
+							.addField(AllocAccount.tag, "ABC", fl_body)
+							.addField(AllocQty.tag, 100, fl_body)
+						.endItem()
+					.endGroup()
+					.finish().remaining();
+				if ((i & 1) == 0)
+					pool.release(writer);
+			}
+			long allocated = threadMx.getThreadAllocatedBytes(tid) - before;
+			// first round warms up, steady state shall not allocate
+			if (round == 1)
+				assertTrue(allocated < 1024, String.format("allocated %d bytes", allocated));
+		}
+		assertTrue(encoded > 0);
+		assertEquals(2, pool.getIdleCount());
+	}
+
+	@Test
+	@DisplayName("Template prefix plus slots encodes the same bytes as builder")
+	public void testTemplate() throws UFEedException {
+		MessageTemplate template = new MessageTemplate(UFEMessage.newBuilder(null)
+			.setLongName("NewOrderSingle")
+			.setType(st_fixmsg)
+			.setServiceId(1)
+			.setName(MsgType.NEWORDERSINGLE)
+			.addField(OrdType.tag, OrdType.LIMIT, fl_body)
+			.addField(Side.tag, Side.BUY, fl_body));
+		MessageTemplate.Slot clOrdId = template.slot(ClOrdID.tag, fl_body);
+		MessageTemplate.Slot price = template.slot(Price.tag, fl_body);
+		MessageTemplate.Slot orderQty = template.slot(OrderQty.tag, fl_body);
+		MessageTemplate.Slot transactTime = template.slot(TransactTime.tag, fl_body);
+		assertThrows(UFEedException.class, () -> template.slot(Side.tag, fl_body));
+		assertEquals(1, template.getServiceId());
+
+		UFEMessageWriter writer = new UFEMessageWriter(1024);
+		for (int i = 0; i < 3; ++i) {
+			Instant now = Instant.ofEpochSecond(1560000000L + i, 123456789);
+			byte[] expected = UFEMessage.newBuilder(null)
+				.setLongName("NewOrderSingle")
+				.setType(st_fixmsg)
+				.setServiceId(1)
+				.setName(MsgType.NEWORDERSINGLE)
+				.addField(OrdType.tag, OrdType.LIMIT, fl_body)
+				.addField(Side.tag, Side.BUY, fl_body)
+				.addField(ClOrdID.tag, "ORD" + i, fl_body)
+				.addField(Price.tag, 123.456 + i, fl_body, 4)
+				.addField(OrderQty.tag, 1000.0 * i, fl_body, 2)
+				.addField(TransactTime.tag, now, fl_body)
+				.build().getWireMessage().toByteArray();
+			template.begin(writer);
+			assertEquals(1, writer.getServiceId());
+			clOrdId.set(writer, "ORD" + i);
+			price.set(writer, 123.456 + i, 4);
+			orderQty.set(writer, 1000.0 * i, 2);
+			transactTime.set(writer, now);
+			assertArrayEquals(expected, writer.toByteArray());
+		}
+		template.begin(writer);
+		assertEquals(template.getPrefixLength(), writer.getEncodedLength());
+		assertThrows(IllegalStateException.class, () -> writer.setName(MsgType.NEWORDERSINGLE));
+	}
+
+	@Test
+	@DisplayName("Tag filtered decoder materializes matching fields only")
+	public void testDecoder() throws InvalidProtocolBufferException {
+		UUID token = UUID.randomUUID();
+		UFEMessage.Builder nos = UFEMessageTest.newOrderSingle()
+			.addField(UFE_SESSION_TOKEN, token, fl_system);
+		nos.getWireMessageBuilder().setSubserviceId(-2);
+		WireMessage full = nos.build().getWireMessage();
+		byte[] frame = full.toByteArray();
+		ByteBuffer direct = ByteBuffer.allocateDirect(frame.length + 3);
+		direct.position(3);
+		direct.put(frame);
+		direct.position(3);
+
+		UFEMessageDecoder decoder = new UFEMessageDecoder(ClOrdID.tag, Price.tag, UFE_SESSION_TOKEN, Symbol.tag);
+		assertTrue(decoder.accepts(Price.tag));
+		assertFalse(decoder.accepts(NoAllocs.tag));
+		for (UFEMessage msg : new UFEMessage[] { decoder.decode(frame), decoder.decode(direct) }) {
+			WireMessage wm = msg.getWireMessage();
+			assertEquals(full.getName(), wm.getName());
+			assertEquals(full.getLongname(), wm.getLongname());
+			assertEquals(full.getType(), wm.getType());
+			assertEquals(1, wm.getServiceId());
+			assertEquals(-2, wm.getSubserviceId());
+			assertEquals(3, wm.getFieldsCount());
+			assertEquals(full.getFields(0), msg.findField(ClOrdID.tag));
+			assertEquals(123.456, (double) msg.findFieldValue(Price.tag));
+			assertEquals(token, msg.findFieldValue(UFE_SESSION_TOKEN));
+			assertNull(msg.findField(OrderQty.tag));
+			assertNull(msg.findGroup(NoAllocs.tag));
+		}
+		assertEquals(3, direct.position());
+
+		UFEMessage allocs = new UFEMessageDecoder(NoAllocs.tag).decode(frame, 0, frame.length);
+		assertEquals(1, allocs.getWireMessage().getFieldsCount());
+		assertEquals("CDE", allocs.findGroup(NoAllocs.tag).get(1).findFieldValue(AllocAccount.tag));
+		assertThrows(InvalidProtocolBufferException.class, () -> decoder.decode(frame, 0, frame.length - 1));
+	}
+
+	@Test
+	@DisplayName("Header peek reads header prefix only")
+	public void testHeaderPeek() throws InvalidProtocolBufferException {
+		UFEMessage.Builder nos = UFEMessageTest.newOrderSingle();
+		nos.getWireMessageBuilder().setSeq(7).setSubserviceId(-2);
+		byte[] frame = nos.build().getWireMessage().toByteArray();
+		UFEMessageView view = new UFEMessageView().wrap(frame);
+		assertTrue(view.nextField());
+		// cut the frame in the middle of the first field, header peek must not look past it
+		int cut = view.getFieldSvalOffset();
+		ByteBuffer direct = ByteBuffer.allocateDirect(cut);
+		direct.put(frame, 0, cut);
+		direct.flip();
+
+		UFEMessageHeader header = new UFEMessageHeader();
+		for (int i = 0; i < 2; ++i) {
+			if (i == 0)
+				header.peek(frame, 0, cut);
+			else
+				header.peek(direct);
+			assertEquals(MsgType.NEWORDERSINGLE, header.getName());
+			assertTrue(header.nameEquals(MsgType.NEWORDERSINGLE));
+			assertFalse(header.nameEquals(MsgType.EXECUTIONREPORT));
+			assertTrue(header.longNameEquals("NewOrderSingle"));
+			assertFalse(header.longNameEquals("NewOrderSingleX"));
+			assertFalse(header.longNameEquals("NewOrder"));
+			assertEquals("NewOrderSingle", header.getLongName());
+			assertEquals(7, header.getSeq());
+			assertEquals(st_fixmsg, header.getType());
+			assertEquals(1, header.getServiceId());
+			assertEquals(-2, header.getSubserviceId());
+		}
+		assertThrows(InvalidProtocolBufferException.class, () -> new UFEMessageView().wrap(frame, 0, cut));
+		header.peek(new byte[0]);
+		assertTrue(header.nameEquals(""));
+		assertEquals(0, header.getServiceId());
+	}
+
+	@Test
+	@DisplayName("Test visitor walk")
+	public void testVisitor() throws InvalidProtocolBufferException {
+		byte[] frame = UFEMessageTest.newOrderSingle().build().getWireMessage().toByteArray();
+		StringBuilder events = new StringBuilder();
+		new UFEMessageView().wrap(frame).accept(new UFEMessageVisitor() {
+			@Override
+			public void onMessageStart(int depth, UFEMessageView message) {
+				events.append('<').append(depth).append(message.getLongName());
+			}
+
+			@Override
+			public void onField(int depth, UFEMessageView message) {
+				events.append(' ').append(message.getFieldTag());
+				if (message.getFieldTag() == AllocAccount.tag)
+					events.append('=').append(message.getFieldString());
+			}
+
+			@Override
+			public void onGroupStart(int depth, UFEMessageView message) {
+				events.append(" [").append(message.getFieldTag()).append('/').append(message.getFieldMvalCount());
+			}
+
+			@Override
+			public void onGroupEnd(int depth, UFEMessageView message) {
+				events.append(" ]").append(message.getFieldTag());
+			}
+
+			@Override
+			public void onMessageEnd(int depth, UFEMessageView message) {
+				events.append(" >").append(depth);
+			}
+		});
+		assertEquals(String.format("<0NewOrderSingle %d %d %d %d %d %d [%d/2"
+				+ "<1NoAlloc %d=ABC %d >1<1NoAlloc %d=CDE %d >1 ]%d >0",
+			ClOrdID.tag, TransactTime.tag, OrdType.tag, Price.tag, OrderQty.tag, Side.tag, NoAllocs.tag,
+			AllocAccount.tag, AllocQty.tag, AllocAccount.tag, AllocQty.tag, NoAllocs.tag), events.toString());
+
+		// default callbacks only, walk must consume the whole frame
+		UFEMessageView view = new UFEMessageView().wrap(frame);
+		view.accept(new UFEMessageVisitor() {});
+		assertFalse(view.hasField());
+	}
+
+	@Test
+	@DisplayName("Group columns load selected tags of every item")
+	public void testGroupColumns() throws InvalidProtocolBufferException {
+		UFEMessage.Builder builder = UFEMessage.newBuilder(null)
+			.setLongName("MarketDataSnapshotFullRefresh")
+			.setType(st_fixmsg)
+			.addField(Symbol.tag, "XYZ", fl_body)
+			.beginGroup(NoMDEntries.tag, fl_body);
+		for (int i = 0; i < 300; ++i) {
+			builder.beginItem()
+				.addField(MDEntryType.tag, i % 2 == 0 ? MDEntryType.BID : MDEntryType.OFFER, fl_body)
+				.addField(MDEntryID.tag, "ID" + i, fl_body);
+			if (i % 7 != 0)
+				builder.addField(MDEntryPx.tag, 100 + i * 0.00125, fl_body, 5);
+			builder.addField(MDEntrySize.tag, 1000L * i, fl_body)
+				.endItem();
+		}
+		UFEMessage msg = builder.endGroup().build();
+		byte[] frame = msg.getWireMessage().toByteArray();
+
+		GroupColumns md = new GroupColumns();
+		int type = md.addChar(MDEntryType.tag);
+		int px = md.addDecimal(MDEntryPx.tag, 8);
+		int size = md.addLong(MDEntrySize.tag);
+		GroupColumns dbl = new GroupColumns();
+		int pxd = dbl.addDouble(MDEntryPx.tag);
+		assertEquals(3, md.getColumnCount());
+		UFEMessageView view = new UFEMessageView();
+		for (int pass = 0; pass < 2; ++pass) {
+			assertEquals(300, pass == 0 ? md.load(msg, NoMDEntries.tag) : md.load(view.wrap(frame), NoMDEntries.tag));
+			assertEquals(300, md.size());
+			assertEquals(300, dbl.load(msg, NoMDEntries.tag));
+			long[] pxs = md.getLongs(px);
+			char[] types = md.getChars(type);
+			for (int i = 0; i < 300; ++i) {
+				assertEquals(i % 2 == 0 ? MDEntryType.BID : MDEntryType.OFFER, types[i]);
+				assertEquals(1000L * i, md.getLong(size, i));
+				assertEquals(i % 7 != 0, md.isPresent(px, i));
+				assertEquals(i % 7 == 0 ? 0L : 10000000000L + i * 125000L, pxs[i]);
+				assertEquals(i % 7 == 0 ? 0D : 100 + i * 0.00125, dbl.getDouble(pxd, i));
+			}
+		}
+
+		// smaller group clears reused columns, missing group loads nothing
+		assertEquals(2, md.load(UFEMessageTest.newOrderSingle().build(), NoAllocs.tag));
+		assertFalse(md.isPresent(size, 1));
+		assertEquals('\0', md.getChar(type, 0));
+		assertEquals(0, md.load(msg, NoAllocs.tag));
+		assertThrows(IndexOutOfBoundsException.class, () -> md.getLong(size, 0));
+		assertThrows(IllegalArgumentException.class, () -> md.getChars(size));
+		assertThrows(IllegalArgumentException.class, () -> md.addLong(MDEntryType.tag));
+	}
+
+	@Test
+	@DisplayName("Patched writer copy encodes the same as edited builder")
+	public void testPatch() throws InvalidProtocolBufferException {
+		String longId = new String(new char[200]).replace('\0', 'z');
+		String text = new String(new char[300]).replace('\0', 't');
+		UFEMessage.Builder nos = UFEMessageTest.newOrderSingle();
+		UFEMessage order = nos.build();
+		byte[] frame = order.getWireMessage().toByteArray();
+
+		UFEMessage.Builder builder = UFEMessageTest.newOrderSingle()
+			.setName(MsgType.ORDERCANCELREPLACEREQUEST)
+			.setLongName("OrderCancelReplaceRequest")
+			.setSeq(5)
+			.setServiceId(300)
+			.replaceField(ClOrdID.tag, order.findField(ClOrdID.tag).toBuilder().setTag(OrigClOrdID.tag).build())
+			.replaceField(OrdType.tag, order.findField(OrdType.tag).toBuilder().setTag(SecondaryClOrdID.tag).build())
+			.setField(ClOrdID.tag, "124", fl_body)
+			.setField(Price.tag, 200.25, fl_body, 4)
+			.setField(TransactTime.tag, Instant.ofEpochSecond(1570000000L), fl_body)
+			.setField(Side.tag, longId, fl_body)
+			.setField(Text.tag, text, fl_body)
+			.removeField(OrderQty.tag);
+		byte[] expected = builder.build().getWireMessage().toByteArray();
+		assertEquals(OrigClOrdID.tag, builder.build().getWireMessage().getFields(0).getTag());
+		assertEquals(ClOrdID.tag, builder.build().getWireMessage().getFields(6).getTag());
+
+		UFEMessageWriter writer = new UFEMessageWriter(4096);
+		for (int i = 0; i < 2; ++i) {
+			if (i == 0)
+				writer.copyFrom(frame, 0, frame.length);
+			else
+				writer.copyFrom(order);
+			assertEquals(1, writer.getServiceId());
+			writer.setName(MsgType.ORDERCANCELREPLACEREQUEST)
+				.setLongName("OrderCancelReplaceRequest")
+				.setSeq(5)
+				.setServiceId(300)
+				.renameField(ClOrdID.tag, OrigClOrdID.tag)
+				.renameField(OrdType.tag, SecondaryClOrdID.tag)
+				.setField(ClOrdID.tag, "124", fl_body)
+				.setField(Price.tag, 200.25, fl_body, 4)
+				.setField(TransactTime.tag, Instant.ofEpochSecond(1570000000L), fl_body)
+				.setField(Side.tag, longId, fl_body)
+				.setField(Text.tag, text, fl_body)
+				.removeField(OrderQty.tag);
+			assertEquals(300, writer.getServiceId());
+			assertArrayEquals(expected, writer.toByteArray());
+		}
+
+		// finished message is reopened to derive the next one, same length values are patched in place
+		int length = writer.getEncodedLength();
+		writer.setField(ClOrdID.tag, "125", fl_body).setField(Price.tag, 201.5, fl_body, 4).setSeq(6);
+		assertEquals(length, writer.getEncodedLength());
+		UFEMessage derived = UFEMessage.wrap(WireMessage.parseFrom(writer.toByteArray()));
+		assertEquals("125", derived.findFieldValue(ClOrdID.tag));
+		assertEquals(201.5, derived.getDouble(Price.tag, 0));
+		assertEquals(6, derived.getWireMessage().getSeq());
+		writer.setName("").removeField(Text.tag).removeField(Symbol.tag).renameField(Symbol.tag, Account.tag);
+		derived = UFEMessage.wrap(WireMessage.parseFrom(writer.toByteArray()));
+		assertEquals("", derived.getWireMessage().getName());
+		assertFalse(derived.hasField(Text.tag));
+		assertEquals(nos.getWireMessageBuilder().getFieldsCount(), derived.getWireMessage().getFieldsCount());
+
+		assertThrows(IllegalStateException.class, () -> writer.reset().beginGroup(NoAllocs.tag, fl_body).setField(Price.tag, 1L, fl_body));
+		assertThrows(IllegalStateException.class, () -> writer.reset().addField(Text.tag, text, fl_body).setServiceId(1));
+		assertThrows(InvalidProtocolBufferException.class, () -> writer.copyFrom(frame, 0, frame.length - 1));
+		assertThrows(BufferOverflowException.class, () -> new UFEMessageWriter(frame.length + 10)
+			.copyFrom(frame, 0, frame.length).setField(Text.tag, text, fl_body));
+	}
+
+	@Test
+	@DisplayName("Field tag scan reads tags of encoded records without parsing them")
+	public void testFieldTagScan() throws InvalidProtocolBufferException {
+		Random random = new Random(19);
+		int[] tags = {0, 1, 24, 127, 128, 16383, 16384, 70000, 2097151, 2097152, Integer.MAX_VALUE, -1};
+		UFEField.UFEFieldLocation[] locs = UFEField.UFEFieldLocation.values();
+		for (int round = 0; round < 200; ++round) {
+			UFEMessage.Builder builder = UFEMessage.newBuilder(null).setLongName("scan");
+			int count = 1 + random.nextInt(40);
+			int[] expected = new int[count];
+			for (int i = 0; i < count; ++i) {
+				int tag = random.nextBoolean() ? tags[random.nextInt(tags.length)] : random.nextInt(100000);
+				UFEField.UFEFieldLocation loc = locs[random.nextInt(locs.length - 1)];
+				expected[i] = tag;
+				switch (random.nextInt(5)) {
+					case 0: builder.addField(tag, random.nextLong(), loc); break;
+					case 1: builder.addField(tag, "v" + random.nextInt(), loc); break;
+					case 2: builder.addField(tag, random.nextDouble(), loc, random.nextInt(8)); break;
+					case 3: builder.addField(tag, random.nextBoolean(), loc); break;
+					default: builder.getWireMessageBuilder().addFields(UFEField.newBuilder().setTag(tag).setTypeValue(random.nextInt(200)).setLocationValue(random.nextInt(200))); break;
+				}
+			}
+			byte[] frame = builder.build().getWireMessage().toByteArray();
+			ByteBuffer direct = ByteBuffer.allocateDirect(frame.length);
+			direct.put(frame).flip();
+			WireReader[] readers = {new WireReader().wrap(frame, 0, frame.length), new WireReader().wrap(direct)};
+			for (WireReader reader : readers) {
+				int i = 0;
+				while (reader.hasRemaining()) {
+					int key = reader.readKey();
+					if (key != (WireMessage.FIELDS_FIELD_NUMBER << 3 | WireReader.WT_LENGTH)) {
+						reader.skip(key & 7);
+						continue;
+					}
+					int length = reader.readLength();
+					int start = reader.position();
+					assertEquals(expected[i], reader.fieldTag(start, start + length));
+					assertEquals(start, reader.position());
+					reader.position(start + length);
+					++i;
+				}
+				assertEquals(count, i);
+			}
+
+			UFEMessageView view = new UFEMessageView().wrap(frame);
+			int probe = expected[random.nextInt(count)];
+			assertTrue(view.findField(probe));
+			assertEquals(probe, view.getFieldTag());
+		}
+	}
+
+	@Test
+	@DisplayName("Specialized codec encodes and decodes the same as generated code")
+	public void testCodecConformance() throws InvalidProtocolBufferException {
+		Random random = new Random(20);
+		UFECodec codec = new UFECodec();
+		for (int round = 0; round < 500; ++round) {
+			WireMessage wm = randomMessage(random, 0);
+			byte[] expected = wm.toByteArray();
+			assertEquals(expected.length, codec.getEncodedSize(wm));
+			assertArrayEquals(expected, codec.encode(wm));
+			byte[] dst = new byte[expected.length + 5];
+			assertEquals(expected.length, codec.encode(wm, dst, 5));
+			assertArrayEquals(expected, Arrays.copyOfRange(dst, 5, dst.length));
+
+			// -0.0 fval is not encoded, so compare with generated parser rather than wm
+			WireMessage parsed = WireMessage.parseFrom(expected);
+			WireMessage decoded = codec.decode(expected);
+			assertEquals(parsed, decoded);
+			assertArrayEquals(expected, codec.encode(decoded));
+			ByteBuffer direct = ByteBuffer.allocateDirect(expected.length);
+			direct.put(expected).flip();
+			assertEquals(parsed, codec.decode(direct));
+			assertEquals(0, direct.position());
+
+			// concatenated frames merge: last scalar wins, repeated fields append
+			byte[] other = randomMessage(random, 0).toByteArray();
+			byte[] merged = Arrays.copyOf(expected, expected.length + other.length);
+			System.arraycopy(other, 0, merged, expected.length, other.length);
+			assertEquals(WireMessage.parseFrom(merged), codec.decode(merged));
+
+			// truncated frames fail or succeed the same way
+			int cut = random.nextInt(expected.length + 1);
+			WireMessage reference;
+			try {
+				reference = WireMessage.parseFrom(Arrays.copyOf(expected, cut));
+			} catch (InvalidProtocolBufferException e) {
+				reference = null;
+			}
+			if (reference == null)
+				assertThrows(InvalidProtocolBufferException.class, () -> codec.decode(expected, 0, cut));
+			else
+				assertEquals(reference, codec.decode(expected, 0, cut));
+		}
+
+		assertThrows(InvalidProtocolBufferException.class, () -> codec.decode(new byte[] {0x0A, 2, (byte) 0xC3, 0x28}));
+		assertThrows(InvalidProtocolBufferException.class, () -> codec.decode(new byte[] {0x00, 1}));
+		assertThrows(IndexOutOfBoundsException.class, () -> codec.encode(UFEMessageTest.newOrderSingle().build().getWireMessage(), new byte[10], 0));
+
+		// unknown group field: generated parser keeps it, codec rejects it
+		byte[] group = {(byte) 0x8B, 0x01, (byte) 0x8C, 0x01};
+		assertThrows(InvalidProtocolBufferException.class, () -> codec.decode(group));
+		assertArrayEquals(group, WireMessage.parseFrom(group).toByteArray());
+	}
+
+	private static WireMessage randomMessage(Random random, int depth) {
+		String[] strings = {"", "NewOrderSingle", "ascii", "\u00e9t\u00e9", "\u65e5\u672c", "\ud83d\ude00"};
+		WireMessage.Builder wmb = WireMessage.newBuilder()
+			.setName(strings[random.nextInt(strings.length)])
+			.setLongname(strings[random.nextInt(strings.length)])
+			.setSeq(random.nextInt(3) == 0 ? 0 : random.nextInt())
+			.setTypeValue(random.nextInt(3) == 0 ? random.nextInt() : random.nextInt(6))
+			.setServiceId(random.nextInt(3) == 0 ? -1 - random.nextInt(10) : random.nextInt(1000))
+			.setSubserviceId(random.nextInt(3) == 0 ? 0 : random.nextInt());
+		double[] doubles = {0D, -0D, 1.5, -2.25, Double.NaN, Double.MAX_VALUE, Double.MIN_VALUE};
+		for (int i = 0, count = random.nextInt(depth == 0 ? 30 : 6); i < count; ++i) {
+			UFEField.Builder fb = UFEField.newBuilder()
+				.setLocationValue(random.nextInt(4) == 0 ? random.nextInt() : random.nextInt(4))
+				.setTypeValue(random.nextInt(4) == 0 ? -random.nextInt(5) : random.nextInt(10))
+				.setTag(random.nextInt(4) == 0 ? random.nextInt() : random.nextInt(20000))
+				.setIval(random.nextInt(3) == 0 ? 0L : random.nextBoolean() ? random.nextLong() : random.nextInt(300))
+				.setFval(random.nextBoolean() ? doubles[random.nextInt(doubles.length)] : random.nextDouble())
+				.setBval(random.nextBoolean());
+			if (random.nextBoolean()) {
+				byte[] sval = new byte[random.nextInt(random.nextInt(10) == 0 ? 300 : 20)];
+				random.nextBytes(sval);
+				fb.setSval(ByteString.copyFrom(sval));
+			}
+			if (depth < 3 && random.nextInt(8) == 0) {
+				for (int item = 0, items = random.nextInt(random.nextInt(10) == 0 ? 40 : 4); item < items; ++item)
+					fb.addMval(randomMessage(random, depth + 1));
+			}
+			if (random.nextInt(20) == 0)
+				fb.setUnknownFields(UnknownFieldSet.newBuilder()
+					.addField(9 + random.nextInt(100), UnknownFieldSet.Field.newBuilder().addVarint(random.nextLong()).build()).build());
+			wmb.addFields(fb);
+		}
+		if (random.nextInt(20) == 0)
+			wmb.setUnknownFields(UnknownFieldSet.newBuilder()
+				.addField(8 + random.nextInt(100), UnknownFieldSet.Field.newBuilder()
+					.addLengthDelimited(ByteString.copyFromUtf8("x")).addFixed32(random.nextInt()).build()).build());
+		return wmb.build();
+	}
+}
@@ -0,0 +1,489 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.fix8mt.ufe.Ufeapi.UFEField.UFEFieldLocation.fl_body;
+import static com.fix8mt.ufe.Ufeapi.UFEField.UFEFieldLocation.fl_system;
+import static com.fix8mt.ufe.Ufeapi.UFEField;
+import static com.fix8mt.ufe.Ufeapi.WireMessage;
+import static com.fix8mt.ufe.Ufeapi.WireMessage.Type.st_fixmsg;
+import static com.fix8mt.ufe.ufeedclient.Consts.*;
+import com.fix8mt.ufe.FIX50SP2.ufe_java_fields_fix50sp2.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UFEMessageTest {
+
+	static UFEMessage.Builder newOrderSingle() {
+		UFEMessage.Builder.GroupBuilderRef grp = new UFEMessage.Builder.GroupBuilderRef();
+		return UFEMessage.newBuilder(null)
+			.setLongName("NewOrderSingle")
+			.setType(st_fixmsg)
+			.setServiceId(1)
+			.setName(MsgType.NEWORDERSINGLE)
+			.addField(ClOrdID.tag, "123", fl_body)
+			.addField(TransactTime.tag, Instant.ofEpochSecond(1560000000L, 123456789), fl_body)
+			.addField(OrdType.tag, OrdType.LIMIT, fl_body)
+			.addField(Price.tag, 123.456, fl_body, 4)
+			.addField(OrderQty.tag, 456.789, fl_body, 2)
+			.addField(Side.tag, Side.BUY, fl_body)
+			.addGroup(NoAllocs.tag, grp, (builder, group) -> {
+				builder.addGroupItem(group)
+					.setLongName("NoAlloc")
+					.setType(st_fixmsg)
+					.setSeq(1)
+					.addField(AllocAccount.tag, "ABC", fl_body)
+					.addField(AllocQty.tag, 2, fl_body);
+				builder.addGroupItem(group)
+					.setLongName("NoAlloc")
+					.setType(st_fixmsg)
+					.setSeq(2)
+					.addField(AllocAccount.tag, "CDE", fl_body)
+					.addField(AllocQty.tag, 4, fl_body);
+			}, fl_body);
+	}
+
+	@Test
+	@DisplayName("Wrapped message lazily maps fields and groups")
+	public void testWrap() throws InvalidProtocolBufferException {
+		byte[] frame = newOrderSingle().build().getWireMessage().toByteArray();
+		WireMessage wm = WireMessage.parseFrom(frame);
+		UFEMessage msg = UFEMessage.wrap(wm);
+		assertSame(wm, msg.getWireMessage());
+		assertEquals("123", msg.findFieldValue(ClOrdID.tag));
+		assertNull(msg.findField(Symbol.tag));
+		List<UFEMessage> allocs = msg.findGroup(NoAllocs.tag);
+		assertEquals(2, allocs.size());
+		assertEquals("CDE", allocs.get(1).findFieldValue(AllocAccount.tag));
+		assertEquals(4L, allocs.get(1).findFieldValue(AllocQty.tag));
+		assertEquals(7, msg.getFields().size());
+		assertEquals(1, msg.getGroups().size());
+		assertEquals(newOrderSingle().print(), msg.print());
+	}
+
+	@Test
+	@DisplayName("Tag index finds dense FIX and sparse UFE tags")
+	public void testTagIndex() {
+		// ExecutionReport shape with UFE system tags
+		int[] tags = { 37, 11, 17, 150, 39, 55, 54, 38, 44, 151, 14, 6, 60,
+			UFE_RESPONSE_CODE, UFE_REQUEST_TOKEN, UFE_SESSION_TOKEN, 5000, 9999 };
+		TagIndex index = new TagIndex(tags);
+		for (int i = 0; i < tags.length; ++i)
+			assertEquals(i, index.get(tags[i]));
+		assertEquals(TagIndex.NOT_FOUND, index.get(0));
+		assertEquals(TagIndex.NOT_FOUND, index.get(1023));
+		assertEquals(TagIndex.NOT_FOUND, index.get(UFE_LOGIN_ID));
+		assertEquals(TagIndex.NOT_FOUND, index.get(-1));
+		// last duplicate wins
+		TagIndex repeated = new TagIndex(11, 72001, 11, 72001, 55);
+		assertEquals(2, repeated.get(11));
+		assertEquals(3, repeated.get(72001));
+		assertTrue(repeated.isRepeated(11));
+		assertTrue(repeated.isRepeated(72001));
+		assertFalse(repeated.isRepeated(55));
+		assertFalse(index.isRepeated(11));
+		assertFalse(new TagIndex().contains(11));
+	}
+
+	@Test
+	@DisplayName("Repeated tag finds the last field and the items of all groups")
+	public void testRepeatedTags() {
+		WireMessage wm = newOrderSingle().build().getWireMessage();
+		UFEField allocs = wm.getFieldsList().stream().filter(field -> field.getTag() == NoAllocs.tag).findFirst().get();
+		UFEMessage msg = UFEMessage.wrap(wm.toBuilder()
+			.addFields(UFEField.newBuilder().setTag(ClOrdID.tag).setType(UFEField.UFEFieldType.ft_string).setSval(ByteString.copyFromUtf8("456")))
+			.addFields(allocs.toBuilder().removeMval(0))
+			.build());
+		assertEquals("456", msg.findFieldValue(ClOrdID.tag));
+		assertEquals("456", msg.getFields().get(ClOrdID.tag).getSval().toStringUtf8());
+		List<UFEMessage> items = msg.findGroup(NoAllocs.tag);
+		assertEquals(3, items.size());
+		assertEquals(items, msg.getGroups().get(NoAllocs.tag));
+		assertEquals("CDE", items.get(2).findFieldValue(AllocAccount.tag));
+		assertSame(items.get(1), msg.findGroupItem(NoAllocs.tag, AllocAccount.tag, "CDE"));
+		assertSame(items.get(1), msg.findGroupItem(NoAllocs.tag, AllocQty.tag, 4L));
+		assertNull(msg.findGroupItem(NoAllocs.tag, AllocAccount.tag, 'C'));
+	}
+
+	@Test
+	@DisplayName("Cleared builder composes the next message from scratch")
+	public void testBuilderClear() {
+		UFEMessage.Builder builder = newOrderSingle();
+		UFEMessage first = builder.build();
+		UFEMessage second = builder.clear()
+			.setLongName("NewOrderSingle")
+			.addField(ClOrdID.tag, "456", fl_body)
+			.build();
+		assertEquals("123", first.findFieldValue(ClOrdID.tag));
+		assertEquals(7, first.getWireMessage().getFieldsCount());
+		assertEquals("456", second.findFieldValue(ClOrdID.tag));
+		assertEquals(1, second.getWireMessage().getFieldsCount());
+		assertEquals(0, second.getWireMessage().getServiceId());
+	}
+
+	@Test
+	@DisplayName("Flat group builder encodes the same as addGroup()")
+	public void testFlatGroupBuilder() {
+		UFEMessage.Builder builder = UFEMessage.newBuilder(null)
+			.setLongName("NewOrderSingle")
+			.setType(st_fixmsg)
+			.setServiceId(1)
+			.setName(MsgType.NEWORDERSINGLE)
+			.addField(ClOrdID.tag, "123", fl_body)
+			.addField(TransactTime.tag, Instant.ofEpochSecond(1560000000L, 123456789), fl_body)
+			.addField(OrdType.tag, OrdType.LIMIT, fl_body)
+			.addField(Price.tag, 123.456, fl_body, 4)
+			.addField(OrderQty.tag, 456.789, fl_body, 2)
+			.addField(Side.tag, Side.BUY, fl_body)
+			.beginGroup(NoAllocs.tag, fl_body)
+				.beginItem()
+					.setLongName("NoAlloc")
+					.setType(st_fixmsg)
+					.setSeq(1)
+					.addField(AllocAccount.tag, "ABC", fl_body)
+					.addField(AllocQty.tag, 2, fl_body)
+				.endItem()
+				.beginItem()
+					.setLongName("NoAlloc")
+					.setType(st_fixmsg)
+					.setSeq(2)
+					.addField(AllocAccount.tag, "CDE", fl_body)
+					.addField(AllocQty.tag, 4, fl_body)
+				.endItem()
+			.endGroup();
+		assertArrayEquals(newOrderSingle().build().getWireMessage().toByteArray(),
+			builder.build().getWireMessage().toByteArray());
+
+		// nested and empty groups, fields after group
+		UFEMessage.Builder.GroupBuilderRef grp = new UFEMessage.Builder.GroupBuilderRef();
+		UFEMessage.Builder.GroupBuilderRef parties = new UFEMessage.Builder.GroupBuilderRef();
+		byte[] expected = UFEMessage.newBuilder(null)
+			.addGroup(NoAllocs.tag, grp, (b, group) -> {
+				for (int i = 0; i < 3; ++i)
+					b.addGroupItem(group)
+						.addField(AllocAccount.tag, "A" + i, fl_body)
+						.addGroup(NoPartyIDs.tag, parties, (ib, igroup) -> {
+							for (int j = 0; j < 2; ++j)
+								ib.addGroupItem(igroup).addField(PartyID.tag, "P" + j, fl_body);
+						}, fl_body);
+			}, fl_body)
+			.addGroup(NoLegs.tag, grp, null, fl_body)
+			.addField(Symbol.tag, "XYZ", fl_body)
+			.build().getWireMessage().toByteArray();
+		builder.clear().beginGroup(NoAllocs.tag, fl_body);
+		for (int i = 0; i < 3; ++i) {
+			builder.beginItem()
+				.addField(AllocAccount.tag, "A" + i, fl_body)
+				.beginGroup(NoPartyIDs.tag, fl_body);
+			for (int j = 0; j < 2; ++j)
+				builder.beginItem().addField(PartyID.tag, "P" + j, fl_body).endItem();
+			builder.endGroup().endItem();
+		}
+		builder.endGroup()
+			.beginGroup(NoLegs.tag, fl_body)
+			.endGroup()
+			.addField(Symbol.tag, "XYZ", fl_body);
+		assertArrayEquals(expected, builder.build().getWireMessage().toByteArray());
+
+		assertThrows(IllegalStateException.class, () -> builder.clear().beginItem());
+		assertThrows(IllegalStateException.class, () -> builder.clear().endGroup());
+		assertThrows(IllegalStateException.class, () -> builder.clear().beginGroup(NoAllocs.tag, fl_body).endItem());
+		assertThrows(IllegalStateException.class, () -> builder.clear().beginGroup(NoAllocs.tag, fl_body).beginItem().endGroup());
+		assertThrows(IllegalStateException.class, () -> builder.clear().beginGroup(NoAllocs.tag, fl_body).build());
+		assertEquals(0, builder.clear().build().getWireMessage().getFieldsCount());
+
+		// message builder stays the root inside items, item builder is the item's
+		builder.clear().setLongName("root").beginGroup(NoAllocs.tag, fl_body).beginItem().setLongName("item");
+		assertEquals("root", builder.getWireMessageBuilder().getLongname());
+		assertEquals("item", builder.getItemWireMessageBuilder().getLongname());
+		assertSame(builder.getWireMessageBuilder(), builder.endItem().getItemWireMessageBuilder());
+		assertThrows(IllegalStateException.class, () -> new MessageTemplate(builder));
+	}
+
+	@Test
+	@DisplayName("Group items are found by long, char and ASCII keys")
+	public void testFindGroupItem() {
+		UFEMessage.Builder builder = UFEMessage.newBuilder(null).beginGroup(NoPartyIDs.tag, fl_body);
+		for (int i = 0; i < 100; ++i)
+			builder.beginItem()
+				.addField(PartyID.tag, "P" + i, fl_body)
+				.addField(PartyIDSource.tag, (char) ('A' + i % 26), fl_body)
+				.addField(PartyRole.tag, i * 10L, fl_body)
+				.endItem();
+		UFEMessage msg = builder.endGroup().build();
+
+		for (int i = 0; i < 100; ++i) {
+			assertSame(msg.findGroup(NoPartyIDs.tag).get(i), msg.findGroupItem(NoPartyIDs.tag, PartyID.tag, "P" + i));
+			assertSame(msg.findGroup(NoPartyIDs.tag).get(i), msg.findGroupItem(NoPartyIDs.tag, PartyRole.tag, i * 10L));
+		}
+		AsciiSequence key = new AsciiSequence().wrap(ByteString.copyFromUtf8("P42"));
+		assertEquals("P42", msg.findGroupItem(NoPartyIDs.tag, PartyID.tag, key).findFieldValue(PartyID.tag));
+		// first item wins for non unique keys
+		assertEquals("P1", msg.findGroupItem(NoPartyIDs.tag, PartyIDSource.tag, 'B').findFieldValue(PartyID.tag));
+		assertEquals("P1", msg.findGroupItem(NoPartyIDs.tag, PartyIDSource.tag, "B").findFieldValue(PartyID.tag));
+		assertNull(msg.findGroupItem(NoPartyIDs.tag, PartyID.tag, "P100"));
+		assertNull(msg.findGroupItem(NoPartyIDs.tag, PartyID.tag, "P\u00e9"));
+		assertNull(msg.findGroupItem(NoPartyIDs.tag, PartyID.tag, 42L));
+		assertNull(msg.findGroupItem(NoPartyIDs.tag, PartyRole.tag, "420"));
+
+		// char keys above ASCII are single bytes too
+		UFEMessage latin = UFEMessage.newBuilder(null).beginGroup(NoPartyIDs.tag, fl_body)
+			.beginItem().addField(PartyID.tag, "P0", fl_body).addField(PartyIDSource.tag, 'A', fl_body).endItem()
+			.beginItem().addField(PartyID.tag, "P1", fl_body).addField(PartyIDSource.tag, (char) 0xE9, fl_body).endItem()
+			.endGroup().build();
+		assertEquals("P1", latin.findGroupItem(NoPartyIDs.tag, PartyIDSource.tag, (char) 0xE9).findFieldValue(PartyID.tag));
+		assertEquals("P0", latin.findGroupItem(NoPartyIDs.tag, PartyIDSource.tag, 'A').findFieldValue(PartyID.tag));
+		assertNull(latin.findGroupItem(NoPartyIDs.tag, PartyIDSource.tag, (char) 0x1E9));
+		assertNull(msg.findGroupItem(NoPartyIDs.tag, PartyIDSource.tag, '\u00e9'));
+		assertNull(msg.findGroupItem(NoAllocs.tag, PartyID.tag, "P1"));
+		assertNull(newOrderSingle().build().findGroupItem(ClOrdID.tag, ClOrdID.tag, "123"));
+		assertEquals(4L, newOrderSingle().build().findGroupItem(NoAllocs.tag, AllocAccount.tag, "CDE").getLong(AllocQty.tag, 0));
+	}
+
+	@Test
+	@DisplayName("Primitive getters read values without boxing")
+	public void testPrimitiveGetters() throws InvalidProtocolBufferException {
+		UUID token = UUID.randomUUID();
+		byte[] frame = newOrderSingle()
+			.addField(UFE_SESSION_TOKEN, token, fl_system)
+			.addField(PossDupFlag.tag, true, fl_body)
+			.build().getWireMessage().toByteArray();
+		UFEMessage msg = UFEMessage.wrap(WireMessage.parseFrom(frame));
+		assertTrue(msg.hasField(Price.tag));
+		assertFalse(msg.hasField(Symbol.tag));
+		assertEquals(123.456, msg.getDouble(Price.tag, 0));
+		assertEquals(-1.0, msg.getDouble(Symbol.tag, -1.0));
+		assertEquals(1560000000123456789L, msg.getLong(TransactTime.tag, 0));
+		// field of other type gives default value
+		assertEquals(-1L, msg.getLong(Price.tag, -1));
+		assertEquals(-1L, msg.getLong(ClOrdID.tag, -1));
+		assertEquals(-1.0, msg.getDouble(ClOrdID.tag, -1.0));
+		assertEquals(-1.0, msg.getDouble(TransactTime.tag, -1.0));
+		assertFalse(msg.getBool(Price.tag, false));
+		assertTrue(msg.getBool(ClOrdID.tag, true));
+		assertEquals(-1L, msg.getEpochNanos(PossDupFlag.tag, -1));
+		assertEquals(OrdType.LIMIT, msg.getChar(OrdType.tag, ' '));
+		assertEquals(' ', msg.getChar(Symbol.tag, ' '));
+		assertTrue(msg.getBool(PossDupFlag.tag, false));
+		assertEquals(1560000000123456789L, msg.getEpochNanos(TransactTime.tag, 0));
+		assertEquals(token.getMostSignificantBits(), msg.getUuidMsb(UFE_SESSION_TOKEN, 0));
+		assertEquals(token.getLeastSignificantBits(), msg.getUuidLsb(UFE_SESSION_TOKEN, 0));
+		assertEquals(token, msg.findFieldValue(UFE_SESSION_TOKEN));
+		assertEquals(-1L, msg.getUuidMsb(ClOrdID.tag, -1));
+
+		byte[] bytes = new byte[8];
+		assertEquals(3, msg.getBytes(ClOrdID.tag, bytes, 2));
+		assertEquals("123", new String(bytes, 2, 3, StandardCharsets.US_ASCII));
+		ByteBuffer buffer = ByteBuffer.allocateDirect(8);
+		assertEquals(3, msg.getBytes(ClOrdID.tag, buffer));
+		assertEquals(3, buffer.position());
+		assertEquals(-1, msg.getBytes(Symbol.tag, buffer));
+
+		UFEMessage alloc = msg.findGroup(NoAllocs.tag).get(1);
+		assertEquals(4L, alloc.getLong(AllocQty.tag, 0));
+		assertEquals('C', alloc.getChar(AllocAccount.tag, ' '));
+	}
+
+	@Test
+	@DisplayName("ASCII view compares and hashes like String")
+	public void testAsciiSequence() throws InvalidProtocolBufferException {
+		byte[] frame = newOrderSingle().build().getWireMessage().toByteArray();
+		UFEMessage msg = UFEMessage.wrap(WireMessage.parseFrom(frame));
+		AsciiSequence view = new AsciiSequence();
+		assertSame(view, msg.getAscii(ClOrdID.tag, view));
+		assertNull(msg.getAscii(Symbol.tag, view));
+		assertEquals("123", view.toString());
+		assertEquals("123".hashCode(), view.hashCode());
+		assertTrue(view.contentEquals("123"));
+		assertFalse(view.contentEquals("1234"));
+		assertTrue(view.startsWith("12"));
+		assertFalse(view.startsWith("13"));
+		assertTrue(view.compareTo("124") < 0);
+		assertTrue(view.compareTo("12") > 0);
+		assertEquals(0, view.compareTo("123"));
+		assertEquals("23", view.subSequence(1, 3).toString());
+		assertEquals('2', view.charAt(1));
+
+		Map<AsciiSequence, String> orders = new HashMap<>();
+		orders.put(AsciiSequence.copyOf("123"), "first");
+		orders.put(view.copy(), "second");
+		assertEquals(1, orders.size());
+		assertEquals("second", orders.get(view));
+
+		UFEMessageView fv = new UFEMessageView().wrap(frame);
+		ByteBuffer direct = ByteBuffer.allocateDirect(frame.length);
+		direct.put(frame).flip();
+		UFEMessageView dv = new UFEMessageView().wrap(direct);
+		AsciiSequence account = new AsciiSequence();
+		for (UFEMessageView v : new UFEMessageView[] { fv, dv }) {
+			assertTrue(v.findField(ClOrdID.tag));
+			assertEquals("second", orders.get(v.getFieldAscii(view)));
+			UFEMessageView item = new UFEMessageView();
+			assertTrue(v.findField(NoAllocs.tag) && v.getFieldMval(1, item) && item.findField(AllocAccount.tag));
+			assertTrue(item.getFieldAscii(account).contentEquals("CDE"));
+			assertEquals("CDE".hashCode(), account.hashCode());
+		}
+		assertEquals(0, view.reset().length());
+		assertEquals("", view.toString());
+	}
+
+	@Test
+	@DisplayName("Decimal converts exactly to and from double field")
+	public void testDecimal() throws InvalidProtocolBufferException {
+		UFEDecimal price = UFEDecimal.parse("123.4500");
+		assertEquals(1234500L, price.getMantissa());
+		assertEquals(4, price.getScale());
+		assertEquals("123.4500", price.toString());
+		assertEquals("-0.05", new UFEDecimal(-5, 2).toString());
+		assertEquals("7", UFEDecimal.parse("+7").toString());
+		assertEquals("0.000000000000000001", UFEDecimal.parse(".000000000000000001").toString());
+		assertEquals("-9223372036854775.808", new UFEDecimal(Long.MIN_VALUE, 3).toString());
+		assertEquals(Long.MIN_VALUE, UFEDecimal.parse("-9223372036854775808").getMantissa());
+		for (String invalid : new String[] { "", "-", ".", "1.2.3", "1e5", "9223372036854775808", "0.0000000000000000001" })
+			assertThrows(NumberFormatException.class, () -> UFEDecimal.parse(invalid), invalid);
+
+		assertEquals(UFEDecimal.parse("1.5"), UFEDecimal.parse("1.50"));
+		assertEquals(UFEDecimal.parse("1.5").hashCode(), UFEDecimal.parse("1.50").hashCode());
+		assertTrue(UFEDecimal.parse("1.5").compareTo(UFEDecimal.parse("1.49")) > 0);
+		assertTrue(new UFEDecimal(Long.MAX_VALUE, 0).compareTo(new UFEDecimal(1, 18)) > 0);
+		assertTrue(new UFEDecimal(-Long.MAX_VALUE, 0).compareTo(new UFEDecimal(1, 18)) < 0);
+		assertEquals("124.5600", new UFEDecimal().set(price).add(UFEDecimal.parse("1.11")).toString());
+		assertEquals("0.0100", UFEDecimal.parse("1.11").subtract(UFEDecimal.parse("1.1000")).toString());
+		assertEquals("-3.50", UFEDecimal.parse("-0.70").multiply(5).toString());
+		assertEquals("123.45", new UFEDecimal().set(price).setScale(2).toString());
+		assertThrows(ArithmeticException.class, () -> UFEDecimal.parse("1.25").setScale(1));
+		assertEquals("1.3", UFEDecimal.parse("1.25").round(1).toString());
+		assertEquals("-1.3", UFEDecimal.parse("-1.25").round(1).toString());
+		assertEquals("1.2", UFEDecimal.parse("1.249").round(1).toString());
+
+		// exact round trip through fval/precision for every 2 digit scaled value in a price range
+		UFEDecimal back = new UFEDecimal();
+		for (long m = -100000; m <= 100000; ++m) {
+			UFEDecimal d = new UFEDecimal(m * 997, 2);
+			assertEquals(d.getMantissa(), back.set(d.toDouble(), 2).getMantissa());
+		}
+		assertEquals(0.3, UFEDecimal.parse("0.1").add(UFEDecimal.parse("0.2")).toDouble());
+		// documented bound: exact just below 2^51 at every scale, not at 2^52
+		for (int scale = 0; scale <= UFEDecimal.MAX_SCALE; ++scale) {
+			for (long m : new long[] { (1L << 51) - 1, -((1L << 51) - 1), (1L << 51) - 12345, 999999999999999L })
+				assertEquals(m, back.set(new UFEDecimal(m, scale).toDouble(), scale).getMantissa(), m + "e-" + scale);
+		}
+		assertNotEquals(4168628574666532L, back.set(new UFEDecimal(4168628574666532L, 7).toDouble(), 7).getMantissa());
+
+		UFEMessage msg = UFEMessage.wrap(WireMessage.parseFrom(newOrderSingle()
+			.addField(StopPx.tag, price, fl_body)
+			.build().getWireMessage().toByteArray()));
+		assertEquals(123.45, msg.getDouble(StopPx.tag, 0));
+		assertEquals(price, msg.getDecimal(StopPx.tag, back));
+		assertEquals("123.4500", back.toString());
+		assertEquals("456.79", msg.getDecimal(OrderQty.tag, back).toString());
+		assertEquals("4", msg.findGroup(NoAllocs.tag).get(1).getDecimal(AllocQty.tag, back).toString());
+		assertNull(msg.getDecimal(ClOrdID.tag, back));
+		assertNull(msg.getDecimal(Symbol.tag, back));
+	}
+
+	@Test
+	@DisplayName("Intern cache resolves repeated string values to canonical instances")
+	public void testStringInternCache() throws InvalidProtocolBufferException {
+		StringInternCache cache = new StringInternCache(8, ClOrdID.tag, AllocAccount.tag);
+		assertEquals(8, cache.getCapacity());
+		assertTrue(cache.accepts(AllocAccount.tag));
+		assertFalse(cache.accepts(Symbol.tag));
+
+		byte[] frame = newOrderSingle().addField(Symbol.tag, "ABC", fl_body).build().getWireMessage().toByteArray();
+		UFEMessage first = UFEMessage.wrap(WireMessage.parseFrom(frame), cache);
+		UFEMessage second = UFEMessage.wrap(WireMessage.parseFrom(frame), cache);
+		String clOrdId = first.getString(ClOrdID.tag, null);
+		assertEquals("123", clOrdId);
+		assertSame(clOrdId, second.findFieldValue(ClOrdID.tag));
+		assertSame(first.findGroup(NoAllocs.tag).get(0).findFieldValue(AllocAccount.tag),
+			second.findGroup(NoAllocs.tag).get(0).getString(AllocAccount.tag, null));
+		// not opted in
+		assertNotSame(first.findFieldValue(Symbol.tag), second.findFieldValue(Symbol.tag));
+		assertEquals("ABC", first.getString(Symbol.tag, null));
+		assertEquals("none", first.getString(Account.tag, "none"));
+		assertEquals(2, cache.size());
+		assertEquals(2, cache.getMissCount());
+		assertEquals(2, cache.getHitCount());
+
+		// flyweight view resolves straight from frame bytes
+		UFEMessageView view = new UFEMessageView().wrap(frame);
+		assertTrue(view.findField(ClOrdID.tag));
+		assertSame(clOrdId, view.getFieldString(cache));
+		ByteBuffer direct = ByteBuffer.allocateDirect(frame.length);
+		direct.put(frame).flip();
+		assertTrue(view.wrap(direct).findField(ClOrdID.tag));
+		assertSame(clOrdId, view.getFieldString(cache));
+		assertTrue(view.findField(Symbol.tag));
+		assertEquals("ABC", view.getFieldString(cache));
+		assertEquals(4, cache.getHitCount());
+		assertSame(cache.internBytes(ByteString.copyFromUtf8("123")), cache.internBytes("x123".getBytes(), 1, 3));
+
+		// bounded, recently used values survive eviction
+		for (int i = 0; i < 100; ++i) {
+			assertSame(clOrdId, cache.intern(ByteString.copyFromUtf8("123")));
+			cache.intern(ByteString.copyFromUtf8("V" + i));
+		}
+		assertEquals(8, cache.size());
+		assertTrue(cache.getEvictionCount() > 0);
+		assertTrue(cache.getHitRate() > 0.5);
+		assertTrue(cache.getFootprintBytes() > 0);
+		String longValue = new String(new char[StringInternCache.MAX_VALUE_LENGTH + 1]).replace('\0', 'x');
+		assertNotSame(cache.intern(ByteString.copyFromUtf8(longValue)), cache.intern(ByteString.copyFromUtf8(longValue)));
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	@DisplayName("Encode cache reuses encoded string values")
+	public void testStringEncodeCache() {
+		StringEncodeCache cache = new StringEncodeCache(2);
+		int account = cache.register("ACC-001");
+		assertEquals(0, account);
+		assertEquals(1, cache.getRegisteredCount());
+		UFEMessage[] msgs = new UFEMessage[2];
+		for (int i = 0; i < msgs.length; ++i) {
+			msgs[i] = newOrderSingle()
+				.setEncodeCache(cache)
+				.addField(Symbol.tag, "EUR/USD", fl_body)
+				.addField(Account.tag, cache.get(account), fl_body)
+				.build();
+		}
+		assertArrayEquals(newOrderSingle()
+				.addField(Symbol.tag, "EUR/USD", fl_body)
+				.addField(Account.tag, "ACC-001", fl_body)
+				.build().getWireMessage().toByteArray(),
+			msgs[1].getWireMessage().toByteArray());
+		assertSame(msgs[0].findField(Symbol.tag).getSval(), msgs[1].findField(Symbol.tag).getSval());
+		assertSame(msgs[0].findField(Account.tag).getSval(), msgs[1].findField(Account.tag).getSval());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		// builder cache is inherited by group items
+		UFEMessage.Builder.GroupBuilderRef grp = new UFEMessage.Builder.GroupBuilderRef();
+		UFEMessage.newBuilder(null).setEncodeCache(cache)
+			.addGroup(NoAllocs.tag, grp, (builder, group) -> builder.addGroupItem(group).addField(AllocAccount.tag, "EUR/USD", fl_body), fl_body);
+		assertSame(msgs[0].findField(Symbol.tag).getSval(), grp._builder.getMval(0).getFields(0).getSval());
+		assertEquals(2, cache.getHitCount());
+
+		// bounded
+		for (int i = 0; i < 10; ++i)
+			cache.encode("V" + i);
+		assertEquals(2, cache.size());
+		assertNotSame(cache.encode("V9"), cache.encode("V9"));
+		assertTrue(cache.getFootprintBytes() > 0);
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getRegisteredCount());
+	}
+}
@@ -9,8 +9,13 @@ import org.junit.jupiter.api.Test;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static com.fix8mt.ufe.Ufeapi.UFEField.UFEFieldLocation.fl_body;
 import static com.fix8mt.ufe.Ufeapi.UFEField.UFEFieldLocation.fl_system;
@@ -23,7 +28,7 @@ import static org.junit.jupiter.api.Assertions.*;
 class UFEedClientTest {
 	private UFEedClient _uc;
 	private List<UFEMessage> _receivedSubMsgs = new ArrayList<>();
-	private List<UFEMessage> _receivedResMsgs = new ArrayList<>();
+	private List<UFEMessage> _receivedResMsgs = Collections.synchronizedList(new ArrayList<>());
 	private List<UFEMessage> _receivedRepMsgs = new ArrayList<>();
 	private final Object _lockAuth = new Object();
 	private final Object _lockSub = new Object();
@@ -116,6 +121,17 @@ class UFEedClientTest {
 		testLogon();
 	}
 
+	@Test
+	@DisplayName("UFEedClient test publish before start")
+	public void testPublishNotStarted() {
+		assertThrows(UFEedException.class, () -> _uc.publish(_uc.createMessage()
+			.setLongName("NewOrderSingle")
+			.setType(st_fixmsg)
+			.setServiceId(1)
+			.setName(MsgType.NEWORDERSINGLE)
+			.addField(ClOrdID.tag, "123", fl_body)));
+	}
+
 	@Test
 	@DisplayName("NewOrderSingle message test")
 	public void testMessage() {
@@ -170,6 +186,7 @@ class UFEedClientTest {
 	}
 
 	private void testLogon() {
+		_uc.getConfiguration().setRequesterPoolSize(4);
 		_uc.start(false);
 
 		// logon
@@ -199,13 +216,43 @@ class UFEedClientTest {
 				.addField(UFE_CMD, UFE_CMD_SERVICE_LIST, fl_system));
 			assertEquals(1, response.getGroups().size());
 
+			// pipelined service list requests
+			List<CompletableFuture<UFEMessage>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; ++i)
+				futures.add(_uc.requestAsync(_uc
+					.createMessage()
+					.setLongName("service_list")
+					.setType(st_system)
+					.setServiceId(UFE_CMD_SERVICE_LIST)
+					.addField(UFE_CMD, UFE_CMD_SERVICE_LIST, fl_system)));
+			for (CompletableFuture<UFEMessage> future : futures)
+				assertEquals(1, future.get(10, TimeUnit.SECONDS).getGroups().size());
+
+			// parallel synchronous service list requests over requester pool
+			List<CompletableFuture<UFEMessage>> responses = new ArrayList<>();
+			for (int i = 0; i < 4; ++i)
+				responses.add(CompletableFuture.supplyAsync(() -> {
+					try {
+						return _uc.request(_uc
+							.createMessage()
+							.setLongName("service_list")
+							.setType(st_system)
+							.setServiceId(UFE_CMD_SERVICE_LIST)
+							.addField(UFE_CMD, UFE_CMD_SERVICE_LIST, fl_system));
+					} catch (UFEedException | InvalidProtocolBufferException e) {
+						throw new IllegalStateException(e);
+					}
+				}));
+			for (CompletableFuture<UFEMessage> future : responses)
+				assertEquals(1, future.get(10, TimeUnit.SECONDS).getGroups().size());
+
 			// subscription check
 			synchronized(_lockSub)
 			{
 				_lockSub.wait(10000);
 				assertTrue(_receivedSubMsgs.size() > 0);
 			}
-		} catch (UFEedException | InterruptedException | InvalidProtocolBufferException e) {
+		} catch (UFEedException | InterruptedException | InvalidProtocolBufferException | ExecutionException | TimeoutException e) {
 			e.printStackTrace();
 			fail();
 		}
@@ -0,0 +1,76 @@
+package com.fix8mt.ufe.ufeedclient;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WakeupPipeTest {
+
+	@Test
+	@DisplayName("Wakeup pipe wakes poll up for every send of concurrent producers")
+	public void testWakeupPipe() throws IOException, InterruptedException {
+		// poll loop of the worker thread: wait for the pipe, clear it, then run queued sends
+		final int pollIntervalMs = 200, producers = 4, count = 2000;
+		final long limitNanos = TimeUnit.MILLISECONDS.toNanos(pollIntervalMs);
+		MpscRing<long[]> commands = new MpscRing<>(16);
+		AtomicLongArray done = new AtomicLongArray(producers);
+		long[] maxLatency = new long[producers];
+		AtomicBoolean stalled = new AtomicBoolean();
+		try (WakeupPipe wakeup = new WakeupPipe(); Selector selector = Selector.open()) {
+			wakeup.source().register(selector, SelectionKey.OP_READ);
+			assertEquals(0, selector.selectNow());
+			wakeup.signal();
+			wakeup.signal();
+			assertEquals(1, selector.selectNow());
+			selector.selectedKeys().clear();
+			wakeup.clear();
+			assertEquals(0, selector.selectNow());
+
+			// each producer waits for its send to run before the next one, so a lost wakeup stalls it for a poll interval;
+			// the first stall ends the run
+			Thread[] threads = new Thread[producers];
+			for (int p = 0; p < producers; ++p) {
+				final int producer = p;
+				threads[p] = new Thread(() -> {
+					for (int i = 0; i < count && !stalled.get(); ++i) {
+						long start = System.nanoTime();
+						while (!commands.offer(new long[] { producer, i }))
+							Thread.yield();
+						wakeup.signal();
+						while (done.get(producer) != i + 1 && !stalled.get())
+							Thread.yield();
+						maxLatency[producer] = Math.max(maxLatency[producer], System.nanoTime() - start);
+						if (maxLatency[producer] >= limitNanos)
+							stalled.set(true);
+					}
+				});
+				threads[p].start();
+			}
+			for (int received = 0; received < producers * count && !stalled.get();) {
+				if (selector.select(pollIntervalMs) > 0) {
+					selector.selectedKeys().clear();
+					wakeup.clear();
+				}
+				long[] command;
+				while ((command = commands.poll()) != null) {
+					assertEquals(done.get((int) command[0]), command[1]);
+					done.set((int) command[0], command[1] + 1);
+					++received;
+				}
+			}
+			for (Thread thread : threads)
+				thread.join();
+		}
+		for (int p = 0; p < producers; ++p)
+			assertTrue(maxLatency[p] < limitNanos,
+				String.format("producer %d waited %d us", p, TimeUnit.NANOSECONDS.toMicros(maxLatency[p])));
+	}
+}